@@ -3,9 +3,12 @@ package de.tum.in.www1.exerciseapp.config;
 import io.github.jhipster.config.JHipsterProperties;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
 import org.ehcache.expiry.Duration;
 import org.ehcache.expiry.Expirations;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
 import org.ehcache.jsr107.Eh107Configuration;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
@@ -23,7 +26,21 @@ public class CacheConfiguration {
 
     private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
+    private final javax.cache.configuration.Configuration<Object, Object> largeRegionConfiguration;
+
+    private final javax.cache.configuration.Configuration<Object, Object> updateTimestampsConfiguration;
+
+    private final javax.cache.configuration.Configuration<Object, Object> buildStatusCacheConfiguration;
+
+    private final javax.cache.configuration.Configuration<Object, Object> visibleCourseIdsCacheConfiguration;
+
+    private final javax.cache.configuration.Configuration<Object, Object> studentDashboardCacheConfiguration;
+
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, @Value("${artemis.build-status-cache-ttl:5}") long buildStatusCacheTtl,
+                              @Value("${artemis.visible-course-ids-cache-ttl:60}") long visibleCourseIdsCacheTtl,
+                              @Value("${artemis.student-dashboard-cache-ttl:60}") long studentDashboardCacheTtl,
+                              @Value("${artemis.cache.large-region-factor:10}") long largeRegionFactor,
+                              @Value("${artemis.cache.off-heap-size:0}") long offHeapSize) {
         JHipsterProperties.Cache.Ehcache ehcache =
             jHipsterProperties.getCache().getEhcache();
 
@@ -32,52 +49,103 @@ public class CacheConfiguration {
                 ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
                 .withExpiry(Expirations.timeToLiveExpiration(Duration.of(ehcache.getTimeToLiveSeconds(), TimeUnit.SECONDS)))
                 .build());
+
+        // Regions with entries per student (participations, results, submissions) hold more entries. If an off-heap size
+        // (in megabytes) is configured, entries evicted from the heap move to an off-heap tier instead of being dropped.
+        ResourcePoolsBuilder largeRegionPools = ResourcePoolsBuilder.heap(ehcache.getMaxEntries() * largeRegionFactor);
+        if (offHeapSize > 0) {
+            largeRegionPools = largeRegionPools.offheap(offHeapSize, MemoryUnit.MB);
+        }
+        largeRegionConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
+            withJavaSerialization(CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, largeRegionPools))
+                .withExpiry(Expirations.timeToLiveExpiration(Duration.of(ehcache.getTimeToLiveSeconds(), TimeUnit.SECONDS)))
+                .build());
+
+        // The query cache is only valid as long as the update timestamps of the tables are known, so they must never expire.
+        // There is one entry per table.
+        updateTimestampsConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                ResourcePoolsBuilder.heap(1000))
+                .withExpiry(Expirations.noExpiration())
+                .build());
+
+        // Build status changes quickly, so it is only cached for a few seconds to coalesce polls of the same build plan
+        buildStatusCacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
+                .withExpiry(Expirations.timeToLiveExpiration(Duration.of(buildStatusCacheTtl, TimeUnit.SECONDS)))
+                .build());
+
+        // Visible courses are cached by the groups of the user and evicted when a course changes. The short time to live
+        // covers courses which are changed directly in the database.
+        visibleCourseIdsCacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
+                .withExpiry(Expirations.timeToLiveExpiration(Duration.of(visibleCourseIdsCacheTtl, TimeUnit.SECONDS)))
+                .build());
+
+        // The dashboard of a student is evicted when one of the student's participations or results changes. Changed
+        // exercises are only shown after the time to live.
+        studentDashboardCacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
+                .withExpiry(Expirations.timeToLiveExpiration(Duration.of(studentDashboardCacheTtl, TimeUnit.SECONDS)))
+                .build());
+    }
+
+    /**
+     * The off-heap tier stores serialized entries. Hibernate cache keys and entries are serializable, but the caches are
+     * declared with Object as key and value type, for which Ehcache has no default serializer.
+     */
+    @SuppressWarnings("unchecked")
+    private static CacheConfigurationBuilder<Object, Object> withJavaSerialization(CacheConfigurationBuilder<Object, Object> builder) {
+        return builder
+            .withKeySerializer((Class) PlainJavaSerializer.class)
+            .withValueSerializer((Class) PlainJavaSerializer.class);
     }
 
     @Bean
     public JCacheManagerCustomizer cacheManagerCustomizer() {
         return cm -> {
             cm.createCache("users", jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.User.class.getName(), jcacheConfiguration);
+            cm.createCache("buildStatus", buildStatusCacheConfiguration);
+            cm.createCache("visibleCourseIds", visibleCourseIdsCacheConfiguration);
+            cm.createCache("studentDashboard", studentDashboardCacheConfiguration);
+            cm.createCache("org.hibernate.cache.internal.StandardQueryCache", jcacheConfiguration);
+            cm.createCache("org.hibernate.cache.spi.UpdateTimestampsCache", updateTimestampsConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.User.class.getName(), largeRegionConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.Authority.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.User.class.getName() + ".authorities", jcacheConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.User.class.getName() + ".authorities", largeRegionConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.PersistentToken.class.getName(), jcacheConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.User.class.getName() + ".persistentTokens", jcacheConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.Course.class.getName(), jcacheConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.Course.class.getName() + ".exercises", jcacheConfiguration);
+            // The subclasses of Exercise, Question, Submission and SubmittedAnswer are cached in the region of their root
+            // entity (single table inheritance), only their collections have own regions.
             cm.createCache(de.tum.in.www1.exerciseapp.domain.Exercise.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.Exercise.class.getName() + ".participations", jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.LtiOutcomeUrl.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.LtiUserId.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.Participation.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.Participation.class.getName() + ".results", jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.Result.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.ProgrammingExercise.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.ModelingExercise.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.QuizExercise.class.getName(), jcacheConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.Exercise.class.getName() + ".participations", largeRegionConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.LtiOutcomeUrl.class.getName(), largeRegionConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.LtiUserId.class.getName(), largeRegionConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.Participation.class.getName(), largeRegionConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.Participation.class.getName() + ".results", largeRegionConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.Result.class.getName(), largeRegionConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.QuizExercise.class.getName() + ".questions", jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.SubmittedAnswer.class.getName(), jcacheConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.SubmittedAnswer.class.getName(), largeRegionConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.Question.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.MultipleChoiceQuestion.class.getName(), jcacheConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.MultipleChoiceQuestion.class.getName() + ".answerOptions", jcacheConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.AnswerOption.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.MultipleChoiceSubmittedAnswer.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.MultipleChoiceSubmittedAnswer.class.getName() + ".selectedOptions", jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.DragAndDropQuestion.class.getName(), jcacheConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.MultipleChoiceSubmittedAnswer.class.getName() + ".selectedOptions", largeRegionConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.DragAndDropQuestion.class.getName() + ".dropLocations", jcacheConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.DragAndDropQuestion.class.getName() + ".dragItems", jcacheConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.DropLocation.class.getName(), jcacheConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.DragItem.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.Submission.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.ModelingSubmission.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.QuizSubmission.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.QuizSubmission.class.getName() + ".submittedAnswers", jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.DragAndDropSubmittedAnswer.class.getName(), jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.DragAndDropSubmittedAnswer.class.getName() + ".assignments", jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.DragAndDropAssignment.class.getName(), jcacheConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.Submission.class.getName(), largeRegionConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.QuizSubmission.class.getName() + ".submittedAnswers", largeRegionConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.DragAndDropSubmittedAnswer.class.getName() + ".assignments", largeRegionConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.DragAndDropAssignment.class.getName(), largeRegionConfiguration);
             cm.createCache(de.tum.in.www1.exerciseapp.domain.Question.class.getName() + ".quizExercises", jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.Result.class.getName() + ".feedbacks", jcacheConfiguration);
-            cm.createCache(de.tum.in.www1.exerciseapp.domain.Feedback.class.getName(), jcacheConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.Result.class.getName() + ".feedbacks", largeRegionConfiguration);
+            cm.createCache(de.tum.in.www1.exerciseapp.domain.Feedback.class.getName(), largeRegionConfiguration);
             // jhipster-needle-ehcache-add-entry
         };
     }
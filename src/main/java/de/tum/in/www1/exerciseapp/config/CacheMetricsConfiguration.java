@@ -0,0 +1,71 @@
+package de.tum.in.www1.exerciseapp.config;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Reports the hit ratio of the Hibernate second level cache regions and the query cache as metrics, together with the
+ * number of statements sent to the database. The values are counted since the start of the server and require
+ * hibernate.generate_statistics to be enabled, which is only the case in prod if artemis.cache.statistics is set.
+ */
+@Configuration
+public class CacheMetricsConfiguration {
+
+    private static final String PROP_METRIC_REG_HIBERNATE_CACHE = "hibernate.cache";
+
+    private final Logger log = LoggerFactory.getLogger(CacheMetricsConfiguration.class);
+
+    private final MetricRegistry metricRegistry;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CacheMetricsConfiguration(MetricRegistry metricRegistry, EntityManagerFactory entityManagerFactory) {
+        this.metricRegistry = metricRegistry;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void init() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            log.debug("Hibernate statistics are disabled, not registering cache metrics");
+            return;
+        }
+        log.debug("Registering Hibernate cache gauges");
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(regionName);
+            metricRegistry.register(MetricRegistry.name(PROP_METRIC_REG_HIBERNATE_CACHE, regionName, "hits"), (Gauge<Long>) regionStatistics::getHitCount);
+            metricRegistry.register(MetricRegistry.name(PROP_METRIC_REG_HIBERNATE_CACHE, regionName, "misses"), (Gauge<Long>) regionStatistics::getMissCount);
+            metricRegistry.register(MetricRegistry.name(PROP_METRIC_REG_HIBERNATE_CACHE, regionName, "hit-ratio"),
+                hitRatio(regionStatistics::getHitCount, regionStatistics::getMissCount));
+        }
+        metricRegistry.register(MetricRegistry.name(PROP_METRIC_REG_HIBERNATE_CACHE, "query", "hits"), (Gauge<Long>) statistics::getQueryCacheHitCount);
+        metricRegistry.register(MetricRegistry.name(PROP_METRIC_REG_HIBERNATE_CACHE, "query", "misses"), (Gauge<Long>) statistics::getQueryCacheMissCount);
+        metricRegistry.register(MetricRegistry.name(PROP_METRIC_REG_HIBERNATE_CACHE, "query", "hit-ratio"),
+            hitRatio(statistics::getQueryCacheHitCount, statistics::getQueryCacheMissCount));
+        // the load on the database, to compare it with and without caching
+        metricRegistry.register(MetricRegistry.name("hibernate", "statements", "prepared"), (Gauge<Long>) statistics::getPrepareStatementCount);
+        metricRegistry.register(MetricRegistry.name("hibernate", "entities", "loaded"), (Gauge<Long>) statistics::getEntityLoadCount);
+        metricRegistry.register(MetricRegistry.name("hibernate", "collections", "loaded"), (Gauge<Long>) statistics::getCollectionLoadCount);
+    }
+
+    private static RatioGauge hitRatio(Gauge<Long> hits, Gauge<Long> misses) {
+        return new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                long hitCount = hits.getValue();
+                return Ratio.of(hitCount, hitCount + misses.getValue());
+            }
+        };
+    }
+}
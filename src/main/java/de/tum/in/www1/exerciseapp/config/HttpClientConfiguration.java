@@ -0,0 +1,170 @@
+package de.tum.in.www1.exerciseapp.config;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared outbound HTTP client for all calls to Bamboo, Bitbucket, JIRA and the LTI consumers.
+ * <p>
+ * All integrations use one pooled Apache HttpClient, so connections (including the TLS handshake) are reused
+ * via keep-alive instead of being opened for every single request. Each integration gets its own RestTemplate,
+ * which records the request latency, and gauges for the connection pool of its host.
+ */
+@Configuration
+public class HttpClientConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(HttpClientConfiguration.class);
+
+    @Value("${artemis.http-client.max-connections:200}")
+    private int MAX_CONNECTIONS;
+
+    @Value("${artemis.http-client.max-connections-per-host:50}")
+    private int MAX_CONNECTIONS_PER_HOST;
+
+    @Value("${artemis.http-client.connect-timeout:5000}")
+    private int CONNECT_TIMEOUT;
+
+    @Value("${artemis.http-client.read-timeout:30000}")
+    private int READ_TIMEOUT;
+
+    @Value("${artemis.http-client.pool-timeout:10000}")
+    private int POOL_TIMEOUT;
+
+    @Value("${artemis.http-client.keep-alive:30000}")
+    private long KEEP_ALIVE;
+
+    @Value("${artemis.bamboo.url:}")
+    private String BAMBOO_URL;
+
+    @Value("${artemis.bitbucket.url:}")
+    private String BITBUCKET_URL;
+
+    @Value("${artemis.jira.url:}")
+    private String JIRA_URL;
+
+    private final MetricRegistry metricRegistry;
+
+    public HttpClientConfiguration(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Bean
+    public PoolingHttpClientConnectionManager httpClientConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(KEEP_ALIVE, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_HOST);
+
+        metricRegistry.register(MetricRegistry.name("http.client", "pool", "leased"), (Gauge<Integer>) () -> connectionManager.getTotalStats().getLeased());
+        metricRegistry.register(MetricRegistry.name("http.client", "pool", "pending"), (Gauge<Integer>) () -> connectionManager.getTotalStats().getPending());
+        metricRegistry.register(MetricRegistry.name("http.client", "pool", "available"), (Gauge<Integer>) () -> connectionManager.getTotalStats().getAvailable());
+        registerRouteGauges(connectionManager, "bamboo", BAMBOO_URL);
+        registerRouteGauges(connectionManager, "bitbucket", BITBUCKET_URL);
+        registerRouteGauges(connectionManager, "jira", JIRA_URL);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpClientConnectionManager) {
+        log.debug("Creating pooled outbound HTTP client");
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(CONNECT_TIMEOUT)
+            .setSocketTimeout(READ_TIMEOUT)
+            .setConnectionRequestTimeout(POOL_TIMEOUT)
+            .build();
+        return HttpClientBuilder.create()
+            .setConnectionManager(httpClientConnectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(keepAliveStrategy())
+            .evictExpiredConnections()
+            .evictIdleConnections(KEEP_ALIVE, TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    @Bean
+    public RestTemplate bambooRestTemplate(CloseableHttpClient httpClient) {
+        return createRestTemplate(httpClient, "bamboo");
+    }
+
+    @Bean
+    public RestTemplate bitbucketRestTemplate(CloseableHttpClient httpClient) {
+        return createRestTemplate(httpClient, "bitbucket");
+    }
+
+    @Bean
+    public RestTemplate jiraRestTemplate(CloseableHttpClient httpClient) {
+        return createRestTemplate(httpClient, "jira");
+    }
+
+    private RestTemplate createRestTemplate(CloseableHttpClient httpClient, String integration) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        Timer timer = metricRegistry.timer(MetricRegistry.name("http.client", integration, "requests"));
+        ClientHttpRequestInterceptor timingInterceptor = (request, body, execution) -> {
+            try (Timer.Context ignored = timer.time()) {
+                return execution.execute(request, body);
+            }
+        };
+        restTemplate.setInterceptors(Collections.singletonList(timingInterceptor));
+        return restTemplate;
+    }
+
+    /**
+     * Keeps connections alive as long as the server allows it, but never longer than the configured keep-alive time.
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            BasicHeaderElementIterator iterator = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (iterator.hasNext()) {
+                HeaderElement element = iterator.nextElement();
+                if (element.getValue() != null && element.getName().equalsIgnoreCase("timeout")) {
+                    try {
+                        return Math.min(Long.parseLong(element.getValue()) * 1000, KEEP_ALIVE);
+                    } catch (NumberFormatException e) {
+                        // ignore invalid keep-alive header
+                    }
+                }
+            }
+            return KEEP_ALIVE;
+        };
+    }
+
+    private void registerRouteGauges(PoolingHttpClientConnectionManager connectionManager, String integration, String url) {
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        try {
+            URL serverUrl = new URL(url);
+            int port = serverUrl.getPort() != -1 ? serverUrl.getPort() : serverUrl.getDefaultPort();
+            HttpHost host = new HttpHost(serverUrl.getHost(), port, serverUrl.getProtocol());
+            HttpRoute route = new HttpRoute(host, null, "https".equals(serverUrl.getProtocol()));
+            connectionManager.setMaxPerRoute(route, MAX_CONNECTIONS_PER_HOST);
+            metricRegistry.register(MetricRegistry.name("http.client", integration, "leased"), (Gauge<Integer>) () -> connectionManager.getStats(route).getLeased());
+            metricRegistry.register(MetricRegistry.name("http.client", integration, "pending"), (Gauge<Integer>) () -> connectionManager.getStats(route).getPending());
+        } catch (MalformedURLException e) {
+            log.warn("Could not register connection pool metrics for {}: {}", integration, e.getMessage());
+        }
+    }
+}
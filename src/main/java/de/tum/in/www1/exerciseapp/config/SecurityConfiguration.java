@@ -117,6 +117,9 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
         web.ignoring()
             .antMatchers(HttpMethod.POST, "/api/results/*-*");
+
+        web.ignoring()
+            .antMatchers(HttpMethod.POST, "/api/repository-notifications");
     }
 
     @Override
@@ -0,0 +1,94 @@
+package de.tum.in.www1.exerciseapp.domain;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The build log of a Result, stored gzip compressed so that it does not have to be fetched from the CI server again.
+ */
+@Entity
+@Table(name = "build_log")
+public class BuildLog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne
+    @JoinColumn(unique = true)
+    private Result result;
+
+    @Column(name = "entry_count")
+    private Integer entryCount;
+
+    /**
+     * Gzip compressed JSON array of the log entries
+     */
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "compressed_log")
+    private byte[] compressedLog;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    public void setResult(Result result) {
+        this.result = result;
+    }
+
+    public Integer getEntryCount() {
+        return entryCount;
+    }
+
+    public void setEntryCount(Integer entryCount) {
+        this.entryCount = entryCount;
+    }
+
+    public byte[] getCompressedLog() {
+        return compressedLog;
+    }
+
+    public void setCompressedLog(byte[] compressedLog) {
+        this.compressedLog = compressedLog;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BuildLog buildLog = (BuildLog) o;
+        if (buildLog.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), buildLog.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "BuildLog{" +
+            "id=" + getId() +
+            ", entryCount='" + getEntryCount() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,90 @@
+package de.tum.in.www1.exerciseapp.domain;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The summed score of a student in all exercises of a course. For each exercise, the score of the relevant result is
+ * counted: the last result before the due date, or the last result if the exercise has no due date.
+ * The score is updated whenever a result of the student in the course changes, see CourseScoreService.
+ */
+@Entity
+@Table(name = "course_score", uniqueConstraints = @UniqueConstraint(columnNames = {"course_id", "student_id"}))
+public class CourseScore implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    private Course course;
+
+    @ManyToOne
+    private User student;
+
+    @Column(name = "score")
+    private Long score;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public void setCourse(Course course) {
+        this.course = course;
+    }
+
+    public User getStudent() {
+        return student;
+    }
+
+    public void setStudent(User student) {
+        this.student = student;
+    }
+
+    public Long getScore() {
+        return score;
+    }
+
+    public void setScore(Long score) {
+        this.score = score;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CourseScore courseScore = (CourseScore) o;
+        if (courseScore.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, courseScore.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "CourseScore{" +
+            "id=" + id +
+            ", score=" + score +
+            '}';
+    }
+}
@@ -19,7 +19,7 @@ import java.util.Set;
  */
 @Entity
 @DiscriminatorValue(value="DD")
-//@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+// cached in the region of Question, Hibernate only supports @Cache on the root entity of the hierarchy
 @JsonTypeName("drag-and-drop")
 public class DragAndDropQuestion extends Question implements Serializable {
 
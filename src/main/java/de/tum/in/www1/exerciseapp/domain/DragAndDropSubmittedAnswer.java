@@ -17,7 +17,7 @@ import java.util.Set;
  */
 @Entity
 @DiscriminatorValue(value="DD")
-//@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+// cached in the region of SubmittedAnswer, Hibernate only supports @Cache on the root entity of the hierarchy
 public class DragAndDropSubmittedAnswer extends SubmittedAnswer implements Serializable {
 
     private static final long serialVersionUID = 1L;
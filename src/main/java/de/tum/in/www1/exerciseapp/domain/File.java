@@ -1,5 +1,7 @@
 package de.tum.in.www1.exerciseapp.domain;
 
+import org.eclipse.jgit.lib.ObjectId;
+
 /**
  * Created by Josias Montag on 14.10.16.
  */
@@ -7,6 +9,9 @@ public class File extends java.io.File {
 
     private Repository repository;
 
+    // id of the Git blob with the current content of the file, null if not known yet
+    private volatile ObjectId blobId;
+
     public File(java.io.File file, Repository repository) {
         super(file.getPath());
         this.repository = repository;
@@ -21,6 +26,14 @@ public class File extends java.io.File {
         this.repository = repository;
     }
 
+    public ObjectId getBlobId() {
+        return blobId;
+    }
+
+    public void setBlobId(ObjectId blobId) {
+        this.blobId = blobId;
+    }
+
     @Override
     public String toString() {
         return super.toString().replaceFirst(repository.getLocalPath().toString(),"").replaceAll("^/+", "");
@@ -0,0 +1,134 @@
+package de.tum.in.www1.exerciseapp.domain;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * A pending update of the score of a participation, which still needs to be sent to the LTI outcome URL.
+ * There is at most one pending update per LTI outcome URL (i.e. per user and exercise): new results increase the
+ * revision of the pending update, and the score of the latest result is determined when the update is sent.
+ */
+@Entity
+@Table(name = "lti_outcome_update")
+public class LtiOutcomeUpdate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(unique = true)
+    private LtiOutcomeUrl outcomeUrl;
+
+    @ManyToOne
+    private Participation participation;
+
+    /**
+     * Incremented for every new result, so that an update which changed while it was sent is not deleted afterwards
+     */
+    @Column(name = "revision")
+    private Integer revision;
+
+    @Column(name = "attempts")
+    private Integer attempts;
+
+    /**
+     * The date of the oldest result which has not been sent yet
+     */
+    @Column(name = "created_date")
+    private ZonedDateTime createdDate;
+
+    @Column(name = "next_attempt_date")
+    private ZonedDateTime nextAttemptDate;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LtiOutcomeUrl getOutcomeUrl() {
+        return outcomeUrl;
+    }
+
+    public void setOutcomeUrl(LtiOutcomeUrl outcomeUrl) {
+        this.outcomeUrl = outcomeUrl;
+    }
+
+    public Participation getParticipation() {
+        return participation;
+    }
+
+    public void setParticipation(Participation participation) {
+        this.participation = participation;
+    }
+
+    public Integer getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Integer revision) {
+        this.revision = revision;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(ZonedDateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public ZonedDateTime getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(ZonedDateTime nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LtiOutcomeUpdate ltiOutcomeUpdate = (LtiOutcomeUpdate) o;
+        if (ltiOutcomeUpdate.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, ltiOutcomeUpdate.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "LtiOutcomeUpdate{" +
+            "id=" + id +
+            ", revision=" + revision +
+            ", attempts=" + attempts +
+            ", createdDate='" + createdDate + "'" +
+            ", nextAttemptDate='" + nextAttemptDate + "'" +
+            '}';
+    }
+}
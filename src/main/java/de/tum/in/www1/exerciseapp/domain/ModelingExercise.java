@@ -11,7 +11,7 @@ import java.util.Objects;
  */
 @Entity
 @DiscriminatorValue(value="M")
-//@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+// cached in the region of Exercise, Hibernate only supports @Cache on the root entity of the hierarchy
 public class ModelingExercise extends Exercise implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -16,7 +16,7 @@ import java.util.List;
  */
 @Entity
 @DiscriminatorValue(value="MC")
-//@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+// cached in the region of Question, Hibernate only supports @Cache on the root entity of the hierarchy
 @JsonTypeName("multiple-choice")
 public class MultipleChoiceQuestion extends Question implements Serializable {
 
@@ -14,7 +14,7 @@ import java.util.Set;
  */
 @Entity
 @DiscriminatorValue(value="MC")
-//@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+// cached in the region of SubmittedAnswer, Hibernate only supports @Cache on the root entity of the hierarchy
 public class MultipleChoiceSubmittedAnswer extends SubmittedAnswer implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import de.tum.in.www1.exerciseapp.domain.enumeration.ParticipationState;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -16,8 +17,12 @@ import java.util.Set;
 
 /**
  * A Participation.
+ * <p>
+ * Only the changed columns are updated, so that setting the result pointers does not write back other columns which
+ * were loaded before the participation was locked.
  */
 @Entity
+@DynamicUpdate
 @Table(name = "participation", uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "exercise_id", "initialization_state"}))
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class Participation implements Serializable {
@@ -41,6 +46,14 @@ public class Participation implements Serializable {
     @Column(name = "initialization_date")
     private ZonedDateTime initializationDate;
 
+    /**
+     * How often the bulk provisioning tried to initialize the participation, so that an initialization which keeps
+     * failing is not resumed on every startup. Kept by ParticipationService.save like the result pointers.
+     */
+    @Column(name = "provisioning_attempts")
+    @JsonIgnore
+    private Integer provisioningAttempts;
+
     @OneToMany(mappedBy = "participation", cascade = CascadeType.REMOVE)
     @JsonIgnore
     @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
@@ -52,6 +65,23 @@ public class Participation implements Serializable {
     @ManyToOne
     private Exercise exercise;
 
+    /**
+     * The result with the latest completion date. Only set by the ParticipationResultService while the participation is
+     * locked, ParticipationService.save keeps the stored value, so that a stale participation does not overwrite it.
+     */
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "latest_result_id")
+    @JsonIgnore
+    private Result latestResult;
+
+    /**
+     * The successful result with the earliest completion date, maintained like {@link #latestResult}.
+     */
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "first_successful_result_id")
+    @JsonIgnore
+    private Result firstSuccessfulResult;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here, do not remove
     public Long getId() {
         return id;
@@ -176,6 +206,30 @@ public class Participation implements Serializable {
     public void setExercise(Exercise exercise) {
         this.exercise = exercise;
     }
+
+    public Result getLatestResult() {
+        return latestResult;
+    }
+
+    public void setLatestResult(Result latestResult) {
+        this.latestResult = latestResult;
+    }
+
+    public Result getFirstSuccessfulResult() {
+        return firstSuccessfulResult;
+    }
+
+    public void setFirstSuccessfulResult(Result firstSuccessfulResult) {
+        this.firstSuccessfulResult = firstSuccessfulResult;
+    }
+
+    public Integer getProvisioningAttempts() {
+        return provisioningAttempts;
+    }
+
+    public void setProvisioningAttempts(Integer provisioningAttempts) {
+        this.provisioningAttempts = provisioningAttempts;
+    }
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here, do not remove
 
     @Override
@@ -14,7 +14,7 @@ import java.util.List;
  */
 @Entity
 @DiscriminatorValue(value="Q")
-//@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+// cached in the region of Exercise, Hibernate only supports @Cache on the root entity of the hierarchy
 public class QuizExercise extends Exercise implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -17,7 +17,7 @@ import java.util.Set;
  */
 @Entity
 @DiscriminatorValue(value="Q")
-//@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+// cached in the region of Submission, Hibernate only supports @Cache on the root entity of the hierarchy
 public class QuizSubmission extends Submission implements Serializable {
 
     private static final long serialVersionUID = 1L;
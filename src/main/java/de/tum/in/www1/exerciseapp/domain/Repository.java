@@ -4,7 +4,7 @@ import org.eclipse.jgit.lib.BaseRepositoryBuilder;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Collection;
+import java.util.Map;
 
 /**
  * Created by Josias Montag on 14.10.16.
@@ -13,7 +13,13 @@ public class Repository extends org.eclipse.jgit.internal.storage.file.FileRepos
 
     private Participation participation;
     private Path localPath;
-    private Collection<File> files;
+    // index of the files in the working tree by path, null if it needs to be rebuilt
+    private volatile Map<String, File> files;
+
+    // time of the last check for changes in the remote repository
+    private volatile long lastRemoteCheck;
+    // true if the remote repository has changed since the last pull
+    private volatile boolean remoteChanged;
 
     public Repository(File gitDir) throws IOException {
         super(gitDir);
@@ -62,11 +68,27 @@ public class Repository extends org.eclipse.jgit.internal.storage.file.FileRepos
         this.localPath = localPath;
     }
 
-    public Collection<File> getFiles() {
+    public Map<String, File> getFiles() {
         return files;
     }
 
-    public void setFiles(Collection<File> files) {
+    public void setFiles(Map<String, File> files) {
         this.files = files;
     }
+
+    public long getLastRemoteCheck() {
+        return lastRemoteCheck;
+    }
+
+    public void setLastRemoteCheck(long lastRemoteCheck) {
+        this.lastRemoteCheck = lastRemoteCheck;
+    }
+
+    public boolean isRemoteChanged() {
+        return remoteChanged;
+    }
+
+    public void setRemoteChanged(boolean remoteChanged) {
+        this.remoteChanged = remoteChanged;
+    }
 }
@@ -0,0 +1,18 @@
+package de.tum.in.www1.exerciseapp.repository;
+
+import de.tum.in.www1.exerciseapp.domain.BuildLog;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for the BuildLog entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface BuildLogRepository extends JpaRepository<BuildLog, Long> {
+
+    Optional<BuildLog> findOneByResultId(Long resultId);
+
+}
@@ -2,8 +2,15 @@ package de.tum.in.www1.exerciseapp.repository;
 
 import de.tum.in.www1.exerciseapp.domain.Course;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
 
 /**
  * Spring Data JPA repository for the Course entity.
@@ -12,4 +19,14 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long> {
 
+    // courses are read on every page load but rarely changed, so the result is kept in the query cache
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Override
+    List<Course> findAll();
+
+    @Query("select c.id from Course c where c.studentGroupName in :groups or c.teachingAssistantGroupName in :groups or c.title = :title")
+    List<Long> findIdsByGroupsOrTitle(@Param("groups") Collection<String> groups, @Param("title") String title);
+
+    @Query("select c.id from Course c where c.title = :title")
+    List<Long> findIdsByTitle(@Param("title") String title);
 }
@@ -0,0 +1,30 @@
+package de.tum.in.www1.exerciseapp.repository;
+
+import de.tum.in.www1.exerciseapp.domain.CourseScore;
+import de.tum.in.www1.exerciseapp.service.dto.CourseScoreDTO;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for the CourseScore entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface CourseScoreRepository extends JpaRepository<CourseScore, Long> {
+
+    Optional<CourseScore> findOneByCourseIdAndStudentId(Long courseId, Long studentId);
+
+    @Query("select new de.tum.in.www1.exerciseapp.service.dto.CourseScoreDTO(s.student.id, s.score) from CourseScore s where s.course.id = :courseId")
+    List<CourseScoreDTO> findScoresByCourseId(@Param("courseId") Long courseId);
+
+    @Modifying
+    @Query("delete from CourseScore s where s.course.id = :courseId")
+    void deleteByCourseId(@Param("courseId") Long courseId);
+
+}
@@ -5,10 +5,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
 
 
 /**
@@ -18,8 +22,15 @@ import java.security.Principal;
 @Repository
 public interface ExerciseRepository extends JpaRepository<Exercise, Long> {
 
+    // exercises are rarely changed, so the exercises of a course are kept in the query cache
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Page<Exercise> findByCourseId(@Param("courseId") Long courseId, Pageable pageable);
 
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    long countByCourseId(Long courseId);
+
+    Page<Exercise> findByCourseIdIn(Collection<Long> courseIds, Pageable pageable);
+
 
     /**
      * Select Exercise for Course ID
@@ -31,4 +42,10 @@ public interface ExerciseRepository extends JpaRepository<Exercise, Long> {
      */
     @Query("SELECT e FROM Exercise e WHERE e.course.id =  :#{#courseId} AND ((NOT EXISTS(SELECT l from LtiOutcomeUrl l WHERE e = l.exercise)) OR EXISTS (SELECT l2 from LtiOutcomeUrl l2 WHERE e = l2.exercise AND l2.user.login = :#{#principal.name})) ")
     Page<Exercise> findByCourseIdWhereLtiOutcomeUrlExists(@Param("courseId") Long courseId, @Param("principal") Principal principal, Pageable pageable);
+
+    /**
+     * Same as findByCourseIdWhereLtiOutcomeUrlExists, but for the given user and without paging
+     */
+    @Query("SELECT e FROM Exercise e WHERE e.course.id = :courseId AND ((NOT EXISTS(SELECT l from LtiOutcomeUrl l WHERE e = l.exercise)) OR EXISTS (SELECT l2 from LtiOutcomeUrl l2 WHERE e = l2.exercise AND l2.user.login = :login)) ")
+    List<Exercise> findAllByCourseIdWhereLtiOutcomeUrlExistsForUser(@Param("courseId") Long courseId, @Param("login") String login);
 }
@@ -0,0 +1,52 @@
+package de.tum.in.www1.exerciseapp.repository;
+
+import de.tum.in.www1.exerciseapp.domain.LtiOutcomeUpdate;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the LtiOutcomeUpdate entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface LtiOutcomeUpdateRepository extends JpaRepository<LtiOutcomeUpdate, Long> {
+
+    @Query("select u from LtiOutcomeUpdate u join fetch u.outcomeUrl where u.nextAttemptDate <= :now order by u.nextAttemptDate asc")
+    List<LtiOutcomeUpdate> findDue(@Param("now") ZonedDateTime now, Pageable pageable);
+
+    @Query("select min(u.createdDate) from LtiOutcomeUpdate u")
+    ZonedDateTime findOldestCreatedDate();
+
+    /**
+     * Coalesces a new result into the pending update of the outcome URL, if there is one.
+     *
+     * @return the number of updated pending updates (0 or 1)
+     */
+    @Modifying
+    @Transactional
+    @Query("update LtiOutcomeUpdate u set u.participation = :participation, u.revision = u.revision + 1, u.attempts = 0, u.nextAttemptDate = :now where u.outcomeUrl.id = :outcomeUrlId")
+    int coalesce(@Param("outcomeUrlId") Long outcomeUrlId, @Param("participation") Participation participation, @Param("now") ZonedDateTime now);
+
+    /**
+     * Deletes the update after it has been sent, unless it has been changed in the meantime.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from LtiOutcomeUpdate u where u.id = :id and u.revision = :revision")
+    int deleteRevision(@Param("id") Long id, @Param("revision") Integer revision);
+
+    @Modifying
+    @Transactional
+    @Query("update LtiOutcomeUpdate u set u.attempts = :attempts, u.nextAttemptDate = :nextAttemptDate where u.id = :id and u.revision = :revision")
+    int scheduleRetry(@Param("id") Long id, @Param("revision") Integer revision, @Param("attempts") Integer attempts, @Param("nextAttemptDate") ZonedDateTime nextAttemptDate);
+
+}
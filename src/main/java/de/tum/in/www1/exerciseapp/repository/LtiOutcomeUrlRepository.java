@@ -5,8 +5,10 @@ import de.tum.in.www1.exerciseapp.domain.LtiOutcomeUrl;
 import de.tum.in.www1.exerciseapp.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +25,8 @@ public interface LtiOutcomeUrlRepository extends JpaRepository<LtiOutcomeUrl,Lon
     Optional<LtiOutcomeUrl> findByUserIsCurrentUserAndExercise(@Param("exercise") Exercise exercise);
 
 
+    // looked up for every new result, but only written when a user starts an exercise via LTI
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<LtiOutcomeUrl> findByUserAndExercise(User user, Exercise exercise);
 
 
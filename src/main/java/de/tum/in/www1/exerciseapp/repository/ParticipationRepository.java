@@ -3,10 +3,13 @@ package de.tum.in.www1.exerciseapp.repository;
 import de.tum.in.www1.exerciseapp.domain.Participation;
 import de.tum.in.www1.exerciseapp.domain.enumeration.ParticipationState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -25,8 +28,21 @@ public interface ParticipationRepository extends JpaRepository<Participation, Lo
 
     Participation findOneByExerciseIdAndStudentLoginAndInitializationState(Long exerciseId, String username, ParticipationState state);
 
+    @Query("select p from Participation p where p.exercise.course.id = :courseId and p.student.login = :login and p.initializationState in :states")
+    List<Participation> findByCourseIdAndStudentLoginAndInitializationStateIn(@Param("courseId") Long courseId, @Param("login") String login, @Param("states") Collection<ParticipationState> states);
+
     Participation findOneByBuildPlanId(String buildPlanId);
 
+    /**
+     * Selects the participation and locks it until the end of the transaction, so that its result pointers are not
+     * updated concurrently.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Participation p where p.id = :participationId")
+    Participation findOneForUpdate(@Param("participationId") Long participationId);
+
+    List<Participation> findByInitializationStateIn(Collection<ParticipationState> states);
+
     @Query("select participation from Participation participation where participation.student.login = ?#{principal.username}")
     List<Participation> findByStudentIsCurrentUser();
 
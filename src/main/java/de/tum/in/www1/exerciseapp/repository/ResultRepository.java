@@ -1,11 +1,16 @@
 package de.tum.in.www1.exerciseapp.repository;
 
 import de.tum.in.www1.exerciseapp.domain.Result;
+import de.tum.in.www1.exerciseapp.service.dto.ExerciseResultDTO;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,28 +26,88 @@ public interface ResultRepository extends JpaRepository<Result, Long> {
 
     List<Result> findByParticipationExerciseIdOrderByCompletionDateAsc(Long exerciseId);
 
-    // TODO: What if select max ... doesn't work?
-    @Query("select r from Result r where r.completionDate = (select max(rr.completionDate) from Result rr where rr.participation.exercise.id = :exerciseId and rr.participation.student.id = r.participation.student.id) and r.participation.exercise.id = :exerciseId order by r.completionDate asc")
-    List<Result> findLatestResultsForExercise(@Param("exerciseId") Long exerciseId);
+    /**
+     * Selects the latest result of each student in an exercise with the number of results of its participation,
+     * using the result pointer of the participation. If a student has multiple participations, the one with the latest
+     * result is used. The results are ordered by id, so that the next page starts after the last id of the previous one.
+     *
+     * @param exerciseId id of the exercise
+     * @param afterId    only results with a greater id are selected
+     * @param pageable   the maximum number of results
+     * @return list of the results
+     */
+    @Query("select new de.tum.in.www1.exerciseapp.service.dto.ExerciseResultDTO(r.id, r.completionDate, r.successful, r.resultString, r.score, " +
+        "(select count(rr.id) from Result rr where rr.participation = p), p.id, p.initializationDate, s.login, s.firstName, s.lastName) " +
+        "from Participation p join p.latestResult r join p.student s " +
+        "where p.exercise.id = :exerciseId and r.id > :afterId " +
+        "and not exists (select p2 from Participation p2 join p2.latestResult r2 where p2.exercise = p.exercise and p2.student = p.student and r2.completionDate > r.completionDate) " +
+        "order by r.id asc")
+    List<ExerciseResultDTO> findLatestResultRowsForExercise(@Param("exerciseId") Long exerciseId, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("select r from Result r where r.completionDate = (select min(rr.completionDate) from Result rr where rr.participation.exercise.id = :exerciseId and rr.participation.student.id = r.participation.student.id and rr.successful = true) and r.participation.exercise.id = :exerciseId and r.successful = true order by r.completionDate asc")
-    List<Result> findEarliestSuccessfulResultsForExercise(@Param("exerciseId") Long exerciseId);
+    /**
+     * Selects the first successful result of each student in an exercise with the number of results of its participation,
+     * like {@link #findLatestResultRowsForExercise(Long, Long, Pageable)}.
+     *
+     * @param exerciseId id of the exercise
+     * @param afterId    only results with a greater id are selected
+     * @param pageable   the maximum number of results
+     * @return list of the results
+     */
+    @Query("select new de.tum.in.www1.exerciseapp.service.dto.ExerciseResultDTO(r.id, r.completionDate, r.successful, r.resultString, r.score, " +
+        "(select count(rr.id) from Result rr where rr.participation = p), p.id, p.initializationDate, s.login, s.firstName, s.lastName) " +
+        "from Participation p join p.firstSuccessfulResult r join p.student s " +
+        "where p.exercise.id = :exerciseId and r.id > :afterId " +
+        "and not exists (select p2 from Participation p2 join p2.firstSuccessfulResult r2 where p2.exercise = p.exercise and p2.student = p.student and r2.completionDate < r.completionDate) " +
+        "order by r.id asc")
+    List<ExerciseResultDTO> findEarliestSuccessfulResultRowsForExercise(@Param("exerciseId") Long exerciseId, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("select r from Result r where r.completionDate = (select min(rr.completionDate) from Result rr where rr.participation.exercise.id = r.participation.exercise.id and rr.participation.student.id = r.participation.student.id and rr.successful = true) and r.participation.exercise.course.id = :courseId and r.successful = true order by r.completionDate asc")
+    /**
+     * Selects the first successful result of each participation of a course, using the result pointer of the participation.
+     */
+    @Query("select r from Result r join fetch r.participation p where r = p.firstSuccessfulResult and p.exercise.course.id = :courseId order by r.completionDate asc")
     List<Result> findEarliestSuccessfulResultsForCourse(@Param("courseId") Long courseId);
 
 
     /**
-     * Custom query that counts the number of results for each participation of a particular exercise
-     * @param exerciseId id of exercise for which the number of results in participations is aggregated
-     * @return list of object arrays, where each object array contains two Long values, participation id (index 0) and
-     * number of results for this participation (index 1)
+     * Custom query that selects the values needed to calculate the course scores of a student
+     * @param courseId id of the course
+     * @param studentId id of the student
+     * @return list of object arrays, where each object array contains the student id (index 0), participation id (index 1),
+     * due date of the exercise (index 2), completion date (index 3) and score (index 4) of a result. Participations
+     * without results are included with null as completion date and score.
+     */
+    @Query("select p.student.id, p.id, e.dueDate, r.completionDate, r.score from Participation p join p.exercise e left join p.results r where e.course.id = :courseId and p.student.id = :studentId")
+    List<Object[]> findScoresForCourseAndStudent(@Param("courseId") Long courseId, @Param("studentId") Long studentId);
+
+    /**
+     * Custom query that selects the values needed to calculate the course scores of all students of a course
+     * @param courseId id of the course
+     * @return list of object arrays, see {@link #findScoresForCourseAndStudent(Long, Long)}
      */
-    @Query("select participation.id, count(id) from Result where participation.exercise.id = :exerciseId group by participation.id")
-    List<Object[]> findSubmissionCountsForStudents(@Param("exerciseId") Long exerciseId);
+    @Query("select p.student.id, p.id, e.dueDate, r.completionDate, r.score from Participation p join p.exercise e left join p.results r where e.course.id = :courseId")
+    List<Object[]> findScoresForCourse(@Param("courseId") Long courseId);
 
     List<Result> findByParticipationExerciseIdAndSuccessfulOrderByCompletionDateAsc(Long exerciseId, boolean successful);
 
     Optional<Result> findFirstByParticipationIdOrderByCompletionDateDesc(Long participationId);
 
+    @Query("select r from Result r join fetch r.participation p where p.id in :participationIds and r = p.latestResult")
+    List<Result> findLatestResultsForParticipations(@Param("participationIds") Collection<Long> participationIds);
+
+    /**
+     * Selects the results of the participation with the latest completion date as a locking read, which also sees the
+     * results committed after the transaction started. Used with a page size of 1 to maintain the result pointers.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from Result r where r.participation.id = :participationId order by r.completionDate desc, r.id desc")
+    List<Result> findLatestByParticipationIdForUpdate(@Param("participationId") Long participationId, Pageable pageable);
+
+    /**
+     * Selects the successful results of the participation with the earliest completion date as a locking read,
+     * see {@link #findLatestByParticipationIdForUpdate(Long, Pageable)}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from Result r where r.participation.id = :participationId and r.successful = true order by r.completionDate asc, r.id asc")
+    List<Result> findFirstSuccessfulByParticipationIdForUpdate(@Param("participationId") Long participationId, Pageable pageable);
+
 }
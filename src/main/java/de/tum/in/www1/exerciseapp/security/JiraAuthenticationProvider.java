@@ -1,5 +1,8 @@
 package de.tum.in.www1.exerciseapp.security;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import de.tum.in.www1.exerciseapp.domain.Authority;
 import de.tum.in.www1.exerciseapp.domain.User;
 import de.tum.in.www1.exerciseapp.exception.ArtemisAuthenticationException;
@@ -9,10 +12,12 @@ import de.tum.in.www1.exerciseapp.service.UserService;
 import de.tum.in.www1.exerciseapp.web.rest.util.HeaderUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.*;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -22,11 +27,19 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
+import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
@@ -51,14 +64,75 @@ public class JiraAuthenticationProvider implements ArtemisAuthenticationProvider
     @Value("${artemis.jira.password}")
     private String JIRA_PASSWORD;
 
+    // in seconds, how long the JIRA groups of a user are used before they are fetched again
+    @Value("${artemis.jira.authentication-cache.time-to-live:300}")
+    private long CACHE_TIME_TO_LIVE;
+
+    // in seconds, how long a password is accepted without asking JIRA again
+    @Value("${artemis.jira.authentication-cache.credentials-time-to-live:3600}")
+    private long CREDENTIALS_TIME_TO_LIVE;
+
+    @Value("${artemis.jira.authentication-cache.max-entries:10000}")
+    private int CACHE_MAX_ENTRIES;
+
+    // how many cached users are refreshed concurrently, the requests also count towards the maximum concurrent requests
+    @Value("${artemis.jira.authentication-cache.refresh-parallelism:4}")
+    private int REFRESH_PARALLELISM;
+
+    @Value("${artemis.jira.max-concurrent-requests:20}")
+    private int MAX_CONCURRENT_REQUESTS;
+
+    // in seconds, how long a login waits if the maximum number of requests to JIRA are running
+    @Value("${artemis.jira.request-permit-timeout:10}")
+    private long REQUEST_PERMIT_TIMEOUT;
+
     private final UserService userService;
     private final UserRepository userRepository;
     private final CourseService courseService;
+    private final RestTemplate restTemplate;
+    private final MetricRegistry metricRegistry;
+
+    // by lower case username
+    private final Map<String, CachedJiraUser> cachedUsers = new ConcurrentHashMap<>();
+
+    private Semaphore jiraRequestPermits;
+
+    // the refresh runs on its own threads, so that it does not delay the other scheduled tasks
+    private ScheduledExecutorService refreshScheduler;
+    private ExecutorService refreshExecutor;
+
+    private Meter cacheHits;
+    private Meter cacheMisses;
+    private Meter cacheRefreshes;
+    private Meter refreshFailures;
+    private Meter userUpdates;
 
-    public JiraAuthenticationProvider(UserService userService, UserRepository userRepository, CourseService courseService) {
+    public JiraAuthenticationProvider(UserService userService, UserRepository userRepository, CourseService courseService, @Qualifier("jiraRestTemplate") RestTemplate restTemplate, MetricRegistry metricRegistry) {
         this.userService = userService;
         this.userRepository = userRepository;
         this.courseService = courseService;
+        this.restTemplate = restTemplate;
+        this.metricRegistry = metricRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        jiraRequestPermits = new Semaphore(MAX_CONCURRENT_REQUESTS);
+        cacheHits = metricRegistry.meter(MetricRegistry.name(JiraAuthenticationProvider.class, "cache", "hits"));
+        cacheMisses = metricRegistry.meter(MetricRegistry.name(JiraAuthenticationProvider.class, "cache", "misses"));
+        cacheRefreshes = metricRegistry.meter(MetricRegistry.name(JiraAuthenticationProvider.class, "cache", "refreshes"));
+        refreshFailures = metricRegistry.meter(MetricRegistry.name(JiraAuthenticationProvider.class, "cache", "refresh-failures"));
+        userUpdates = metricRegistry.meter(MetricRegistry.name(JiraAuthenticationProvider.class, "user-updates"));
+        metricRegistry.register(MetricRegistry.name(JiraAuthenticationProvider.class, "cache", "size"), (Gauge<Integer>) cachedUsers::size);
+        refreshExecutor = Executors.newFixedThreadPool(REFRESH_PARALLELISM, new CustomizableThreadFactory("jira-refresh-"));
+        refreshScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("jira-refresh-scheduler-"));
+        refreshScheduler.scheduleWithFixedDelay(this::refreshCachedUsers, 60, 60, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refreshScheduler.shutdownNow();
+        refreshExecutor.shutdownNow();
     }
 
     @Override
@@ -73,6 +147,9 @@ public class JiraAuthenticationProvider implements ArtemisAuthenticationProvider
 
     /**
      * Gets or creates the user object for an JIRA user.
+     * <p>
+     * Verified credentials and the JIRA groups are cached, so that JIRA is not asked on every login. The user is only
+     * saved if it is new or its groups have changed.
      *
      * @param authentication
      * @param skipPasswordCheck     Skip checking the password
@@ -82,8 +159,106 @@ public class JiraAuthenticationProvider implements ArtemisAuthenticationProvider
     public User getOrCreateUser(Authentication authentication, Boolean skipPasswordCheck) {
         String username = authentication.getName().toLowerCase();
         String password = authentication.getCredentials().toString();
-        HttpEntity<Principal> entity = new HttpEntity<>(!skipPasswordCheck ? HeaderUtil.createAuthorization(username, password) : HeaderUtil.createAuthorization(JIRA_USER, JIRA_PASSWORD));
-        RestTemplate restTemplate = new RestTemplate();
+
+        CachedJiraUser cachedUser = cachedUsers.get(username);
+        long now = System.currentTimeMillis();
+        if (cachedUser != null && now - cachedUser.groupsFetched < CACHE_TIME_TO_LIVE * 1000
+            && (skipPasswordCheck || cachedUser.matchesCredentials(password, now - CREDENTIALS_TIME_TO_LIVE * 1000))) {
+            cacheHits.mark();
+            cachedUser.lastUsed = now;
+            return updateUser(cachedUser);
+        }
+        cacheMisses.mark();
+
+        HttpHeaders authorization = !skipPasswordCheck ? HeaderUtil.createAuthorization(username, password) : HeaderUtil.createAuthorization(JIRA_USER, JIRA_PASSWORD);
+        Map content = getJiraUser(username, authorization);
+        CachedJiraUser jiraUser = new CachedJiraUser((String) content.get("name"), (String) content.get("displayName"),
+            (String) content.get("emailAddress"), getGroupStrings((ArrayList) ((Map) content.get("groups")).get("items")));
+        if (cachedUser != null && skipPasswordCheck) {
+            // keep the verified credentials of the last login
+            jiraUser.passwordSalt = cachedUser.passwordSalt;
+            jiraUser.passwordHash = cachedUser.passwordHash;
+            jiraUser.credentialsVerified = cachedUser.credentialsVerified;
+        } else if (!skipPasswordCheck) {
+            jiraUser.setCredentials(password);
+        }
+        if (cachedUsers.size() < CACHE_MAX_ENTRIES || cachedUsers.containsKey(username)) {
+            cachedUsers.put(username, jiraUser);
+        }
+        return updateUser(jiraUser);
+    }
+
+    /**
+     * Refreshes the groups of the cached users in the background, so that logins of active users do not have to wait
+     * for JIRA. Users who have not logged in within the time to live or who have been deactivated in JIRA are removed
+     * from the cache. Runs every minute on the refresh scheduler and waits until all users have been refreshed.
+     */
+    public void refreshCachedUsers() {
+        long now = System.currentTimeMillis();
+        List<Callable<Void>> refreshes = new ArrayList<>();
+        for (Map.Entry<String, CachedJiraUser> entry : cachedUsers.entrySet()) {
+            CachedJiraUser cachedUser = entry.getValue();
+            if (now - cachedUser.lastUsed >= CACHE_TIME_TO_LIVE * 1000) {
+                cachedUsers.remove(entry.getKey(), cachedUser);
+                continue;
+            }
+            if (now - cachedUser.groupsFetched < CACHE_TIME_TO_LIVE * 500) {
+                continue;
+            }
+            refreshes.add(() -> {
+                refreshCachedUser(entry.getKey(), cachedUser, now);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> refresh : refreshExecutor.invokeAll(refreshes)) {
+                try {
+                    refresh.get();
+                } catch (ExecutionException e) {
+                    refreshFailures.mark();
+                    log.error("Error while refreshing a cached JIRA user", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            log.warn("Could not refresh the cached JIRA users: {}", e.getMessage());
+        }
+    }
+
+    private void refreshCachedUser(String username, CachedJiraUser cachedUser, long now) {
+        try {
+            Map content = getJiraUser(username, HeaderUtil.createAuthorization(JIRA_USER, JIRA_PASSWORD));
+            if (Boolean.FALSE.equals(content.get("active"))) {
+                // the verified credentials must not be accepted any more, the next login asks JIRA again
+                cachedUsers.remove(username, cachedUser);
+                log.info("Removed the deactivated JIRA user {} from the cache", username);
+                return;
+            }
+            List<String> groups = getGroupStrings((ArrayList) ((Map) content.get("groups")).get("items"));
+            cachedUser.refreshGroups(groups, now);
+            updateUser(cachedUser);
+            cacheRefreshes.mark();
+        } catch (AuthenticationException | RestClientException e) {
+            // the cached groups are used until they expire, afterwards the next login asks JIRA again
+            refreshFailures.mark();
+            log.warn("Could not refresh the JIRA groups of user {}: {}", username, e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the JIRA user with its groups, limiting the number of concurrent requests to JIRA.
+     */
+    private Map getJiraUser(String username, HttpHeaders authorization) {
+        try {
+            if (!jiraRequestPermits.tryAcquire(REQUEST_PERMIT_TIMEOUT, TimeUnit.SECONDS)) {
+                throw new ProviderNotFoundException("Could not authenticate via JIRA, too many concurrent requests");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalAuthenticationServiceException("JIRA Authentication was interrupted");
+        }
+        HttpEntity<Principal> entity = new HttpEntity<>(authorization);
         ResponseEntity<Map> authenticationResponse = null;
         try {
             authenticationResponse = restTemplate.exchange(
@@ -97,30 +272,47 @@ public class JiraAuthenticationProvider implements ArtemisAuthenticationProvider
             } else if (e.getStatusCode().is5xxServerError()) {
                 throw new ProviderNotFoundException("Could not authenticate via JIRA");
             }
+        } finally {
+            jiraRequestPermits.release();
         }
-        if (authenticationResponse != null) {
-            Map content = authenticationResponse.getBody();
-            User user = userRepository.findOneByLogin((String) content.get("name")).orElseGet(() -> {
-                return userService.createUser((String) content.get("name"), "",
-                    (String) content.get("displayName"), "", (String) content.get("emailAddress"), null,
-                    "en");
-            });
-            user.setGroups(getGroupStrings((ArrayList) ((Map) content.get("groups")).get("items")));
-            user.setAuthorities(buildAuthoritiesFromGroups(getGroupStrings((ArrayList) ((Map) content.get("groups")).get("items"))));
+        if (authenticationResponse == null) {
+            throw new InternalAuthenticationServiceException("JIRA Authentication failed");
+        }
+        return authenticationResponse.getBody();
+    }
+
+    /**
+     * Gets or creates the user and updates its groups and authorities, if they have changed in JIRA.
+     */
+    private User updateUser(CachedJiraUser jiraUser) {
+        Optional<User> existingUser = userService.getUserWithAuthoritiesByLogin(jiraUser.name);
+        User user = existingUser.orElseGet(() -> userService.createUser(jiraUser.name, "",
+            jiraUser.displayName, "", jiraUser.emailAddress, null,
+            "en"));
+        Set<Authority> authorities = buildAuthoritiesFromGroups(jiraUser.groups);
+        boolean changed = !existingUser.isPresent()
+            || !new HashSet<>(user.getGroups()).equals(new HashSet<>(jiraUser.groups))
+            || !user.getAuthorities().equals(authorities);
+        if (changed) {
+            user.setGroups(new ArrayList<>(jiraUser.groups));
+            user.setAuthorities(authorities);
             userRepository.save(user);
-            if (!user.getActivated()) {
-                userService.activateRegistration(user.getActivationKey());
-            }
+            userUpdates.mark();
+        }
+        if (!user.getActivated()) {
+            userService.activateRegistration(user.getActivationKey());
+            changed = true;
+        }
+        if (!changed) {
+            return user;
+        }
 
-            Optional<User> matchingUser = userService.getUserWithAuthoritiesByLogin(username);
-            if (matchingUser.isPresent()) {
-                return matchingUser.get();
-            } else {
-                throw new UsernameNotFoundException("User " + username + " was not found in the " +
-                    "database");
-            }
+        Optional<User> matchingUser = userService.getUserWithAuthoritiesByLogin(jiraUser.name);
+        if (matchingUser.isPresent()) {
+            return matchingUser.get();
         } else {
-            throw new InternalAuthenticationServiceException("JIRA Authentication failed");
+            throw new UsernameNotFoundException("User " + jiraUser.name + " was not found in the " +
+                "database");
         }
     }
 
@@ -155,7 +347,8 @@ public class JiraAuthenticationProvider implements ArtemisAuthenticationProvider
         }
 
         // Check if user is a tutor in any course
-        if (groups.stream().anyMatch(g -> courseService.getAllTeachingAssistantGroupNames().contains(g))) {
+        List<String> teachingAssistantGroupNames = courseService.getAllTeachingAssistantGroupNames();
+        if (groups.stream().anyMatch(teachingAssistantGroupNames::contains)) {
             Authority taAuthority = new Authority();
             taAuthority.setName(AuthoritiesConstants.TEACHING_ASSISTANT);
             authorities.add(taAuthority);
@@ -180,7 +373,6 @@ public class JiraAuthenticationProvider implements ArtemisAuthenticationProvider
         Map<String, Object> body = new HashMap<>();
         body.put("name", username);
         HttpEntity<?> entity = new HttpEntity<>(body,headers);
-        RestTemplate restTemplate = new RestTemplate();
         try {
             restTemplate.exchange(
                 JIRA_URL + "/rest/api/2/group/user?groupname=" + group,
@@ -209,7 +401,6 @@ public class JiraAuthenticationProvider implements ArtemisAuthenticationProvider
     public Optional<String> getUsernameForEmail(String email) throws ArtemisAuthenticationException {
         HttpHeaders headers = HeaderUtil.createAuthorization(JIRA_USER, JIRA_PASSWORD);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
         try {
             ResponseEntity<ArrayList> authenticationResponse = restTemplate.exchange(
                 JIRA_URL + "/rest/api/2/user/search?username=" + email,
@@ -231,4 +422,60 @@ public class JiraAuthenticationProvider implements ArtemisAuthenticationProvider
         }
 
     }
+
+    /**
+     * The JIRA groups of a user and the hash of the credentials which have been verified by JIRA.
+     */
+    private static class CachedJiraUser {
+
+        private static final SecureRandom RANDOM = new SecureRandom();
+
+        private final String name;
+        private final String displayName;
+        private final String emailAddress;
+        private volatile List<String> groups;
+        private volatile long groupsFetched;
+        private volatile long lastUsed;
+
+        private byte[] passwordSalt;
+        private byte[] passwordHash;
+        private long credentialsVerified;
+
+        private CachedJiraUser(String name, String displayName, String emailAddress, List<String> groups) {
+            this.name = name;
+            this.displayName = displayName;
+            this.emailAddress = emailAddress;
+            this.groups = groups;
+            this.groupsFetched = System.currentTimeMillis();
+            this.lastUsed = groupsFetched;
+        }
+
+        private void refreshGroups(List<String> groups, long fetched) {
+            this.groups = groups;
+            this.groupsFetched = fetched;
+        }
+
+        private void setCredentials(String password) {
+            byte[] salt = new byte[16];
+            RANDOM.nextBytes(salt);
+            passwordSalt = salt;
+            passwordHash = hash(salt, password);
+            credentialsVerified = System.currentTimeMillis();
+        }
+
+        private boolean matchesCredentials(String password, long minimumCredentialsVerified) {
+            return passwordHash != null && credentialsVerified >= minimumCredentialsVerified
+                && MessageDigest.isEqual(passwordHash, hash(passwordSalt, password));
+        }
+
+        private static byte[] hash(byte[] salt, String password) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(salt);
+                return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
 }
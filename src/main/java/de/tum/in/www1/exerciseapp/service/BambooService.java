@@ -5,18 +5,25 @@ import de.tum.in.www1.exerciseapp.exception.BambooException;
 import de.tum.in.www1.exerciseapp.exception.GitException;
 import de.tum.in.www1.exerciseapp.repository.FeedbackRepository;
 import de.tum.in.www1.exerciseapp.repository.ResultRepository;
+import de.tum.in.www1.exerciseapp.service.dto.BambooBuildResultDTO;
+import de.tum.in.www1.exerciseapp.service.util.BambooBuildResultParser;
 import de.tum.in.www1.exerciseapp.web.rest.util.HeaderUtil;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestTemplate;
 import org.swift.bamboo.cli.BambooClient;
 import org.swift.common.cli.CliClient;
@@ -25,11 +32,11 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -64,11 +71,17 @@ public class BambooService implements ContinuousIntegrationService {
     private final GitService gitService;
     private final ResultRepository resultRepository;
     private final FeedbackRepository feedbackRepository;
+    private final BuildArtifactCacheService buildArtifactCacheService;
+    private final ParticipationResultService participationResultService;
+    private final RestTemplate restTemplate;
 
-    public BambooService(GitService gitService, ResultRepository resultRepository, FeedbackRepository feedbackRepository) {
+    public BambooService(GitService gitService, ResultRepository resultRepository, FeedbackRepository feedbackRepository, BuildArtifactCacheService buildArtifactCacheService, ParticipationResultService participationResultService, @Qualifier("bambooRestTemplate") RestTemplate restTemplate) {
         this.gitService = gitService;
         this.resultRepository = resultRepository;
         this.feedbackRepository = feedbackRepository;
+        this.buildArtifactCacheService = buildArtifactCacheService;
+        this.participationResultService = participationResultService;
+        this.restTemplate = restTemplate;
     }
 
     private BambooClient getBambooClient() {
@@ -133,7 +146,16 @@ public class BambooService implements ContinuousIntegrationService {
         deletePlan(getProjectKeyFromBuildPlanId(buildPlanId), getPlanKeyFromBuildPlanId(buildPlanId));
     }
 
+    /**
+     * Get the current status of the build plan of the given participation.
+     * The status is cached for a short time per build plan, so that concurrent polls for the same build plan
+     * only cause one request to Bamboo.
+     *
+     * @param participation participation for which to get status
+     * @return build status
+     */
     @Override
+    @Cacheable(cacheNames = "buildStatus", key = "#participation.buildPlanId", sync = true)
     public BuildStatus getBuildStatus(Participation participation) {
         Map<String, Boolean> status = retrieveBuildStatus(participation.getBuildPlanId());
         if (status == null) {
@@ -152,13 +174,13 @@ public class BambooService implements ContinuousIntegrationService {
 
     @Override
     public Set<Feedback> getLatestBuildResultDetails(Result result) {
-        Map<String, Object> buildResultDetails = retrieveLatestBuildResultDetails(result.getParticipation().getBuildPlanId());
-        addFeedbackToResult(result, buildResultDetails);
+        BambooBuildResultDTO buildResult = retrieveLatestBuildResult(result.getParticipation().getBuildPlanId());
+        addFeedbackToResult(result, buildResult);
         return result.getFeedbacks();
     }
 
     @Override
-    public List<BuildLogEntry> getLatestBuildLogs(Participation participation) {
+    public Optional<List<BuildLogEntry>> getLatestBuildLogs(Participation participation) {
         return retrieveLatestBuildLogs(participation.getBuildPlanId());
     }
 
@@ -277,42 +299,43 @@ public class BambooService implements ContinuousIntegrationService {
 
     /**
      * Retrieves the latest build result for the given plan key and saves it as result.
-     * It checks if the build result is the current one. If not, it waits for a configurable delay and then tries again.
+     * It checks if the build result is the current one. If not, it returns null without waiting, so that the caller can
+     * try again later. On the last attempt, the latest available build result is saved in any case.
      *
      * @param participation
+     * @param notificationDate the date at which Bamboo notified us about the completed build
+     * @param isLastAttempt    if true, the latest build result is saved even if it seems to be outdated
+     * @return the saved result, or null if Bamboo does not provide the result of the notified build yet
      */
     @Override
-    public void onBuildCompleted(Participation participation) {
+    public Result onBuildCompleted(Participation participation, ZonedDateTime notificationDate, boolean isLastAttempt) {
         log.info("Retrieving build result...");
         Boolean isOldBuildResult = true;
-        Map buildResults = new HashMap<>();
+        BambooBuildResultDTO buildResult = null;
         try {
-            buildResults = retrieveLatestBuildResult(participation.getBuildPlanId());
-            isOldBuildResult = TimeUnit.SECONDS.toMillis(ZonedDateTime.now().toEpochSecond() - ((ZonedDateTime) buildResults.get("buildCompletedDate")).toEpochSecond()) > RESULT_RETRIEVAL_DELAY;
+            buildResult = retrieveLatestBuildResult(participation.getBuildPlanId());
+            isOldBuildResult = Duration.between(buildResult.getBuildCompletedDate(), notificationDate).toMillis() > RESULT_RETRIEVAL_DELAY;
         } catch (Exception e) {
-            // First try failed.
+            // Bamboo did not return a (valid) build result
         }
 
-        if (isOldBuildResult) {
-            log.info("It seems we got an old build result from Bamboo. Waiting " + RESULT_RETRIEVAL_DELAY / 1000 + "s to retrieve build result...");
-            try {
-                Thread.sleep(RESULT_RETRIEVAL_DELAY);
-            } catch (InterruptedException e) {
-                log.error("Sleep error", e);
-            }
-            log.info("Retrieving build result (second try)...");
-            buildResults = retrieveLatestBuildResult(participation.getBuildPlanId());
+        if (isOldBuildResult && !isLastAttempt) {
+            log.info("It seems we got an old build result from Bamboo for plan {}. The retrieval will be retried later.", participation.getBuildPlanId());
+            return null;
+        }
+        if (buildResult == null) {
+            log.error("Could not retrieve the build result for plan {} from Bamboo", participation.getBuildPlanId());
+            return null;
         }
 
         Result result = new Result();
-        result.setSuccessful((boolean) buildResults.get("successful"));
-        result.setResultString((String) buildResults.get("buildTestSummary"));
-        result.setCompletionDate((ZonedDateTime) buildResults.get("buildCompletedDate"));
+        result.setSuccessful(buildResult.isSuccessful());
+        result.setResultString(buildResult.getBuildTestSummary());
+        result.setCompletionDate(buildResult.getBuildCompletedDate());
         result.setScore(calculateScoreForResult(result));
-        result.setBuildArtifact(buildResults.containsKey("artifact"));
+        result.setBuildArtifact(buildResult.hasArtifact());
         result.setParticipation(participation);
 
-        Map buildResultDetails = retrieveLatestBuildResultDetails(participation.getBuildPlanId());
         if (result.getFeedbacks() != null && result.getFeedbacks().size() > 0) {
             //cleanup
             for(Feedback feedback : new ArrayList<Feedback>(result.getFeedbacks())) {
@@ -320,49 +343,36 @@ public class BambooService implements ContinuousIntegrationService {
                 feedbackRepository.delete(feedback);
             }
         }
-        addFeedbackToResult(result, buildResultDetails);
-        resultRepository.save(result);
+        addFeedbackToResult(result, buildResult);
+        Result savedResult = resultRepository.save(result);
+        participationResultService.onResultChanged(participation);
+        return savedResult;
     }
 
     /**
-     * Converts build result details into feedback and stores it in the result object
-     * @param
-     * @param buildResultDetails returned build result details from the rest API of bamboo
+     * Converts the failed tests of a build result into feedback and stores it in the result object
+     * @param result the result to which the feedback is added
+     * @param buildResult returned build result from the rest API of bamboo
      *
      * @return a Set of feedbacks stored in a result
      */
-    public Set<Feedback> addFeedbackToResult(Result result, Map<String, Object> buildResultDetails) {
-        if(buildResultDetails == null) {
+    public Set<Feedback> addFeedbackToResult(Result result, BambooBuildResultDTO buildResult) {
+        if(buildResult == null) {
             return null;
         }
 
-        HashSet<Feedback> feedbacks = new HashSet<>();
-
-        try {
-            List<Map<String, Object>> details = (List<Map<String, Object>>)buildResultDetails.get("details");
-
-            //breaking down the Bamboo API answer to get all the relevant details
-            for(Map<String, Object> detail : details) {
-                String className = (String)detail.get("className");
-                String methodName = (String)detail.get("methodName");
-
-                HashMap<String, Object> errorsMap = (HashMap<String, Object>) detail.get("errors");
-                List<HashMap<String, Object>> errors = (List<HashMap<String, Object>>)errorsMap.get("error");
-
-                String errorMessageString = "";
-                for(HashMap<String, Object> error : errors) {
-                    //Splitting string at the first linebreak to only get the first line of the Exception
-                    errorMessageString += ((String)error.get("message")).split("\\n", 2)[0] + "\n";
-                }
-
-                Feedback feedback = new Feedback();
-                feedback.setText(methodName);
-                feedback.setDetailText(errorMessageString);
-                feedback = feedbackRepository.save(feedback);
-                result.addFeedbacks(feedback);
+        for(BambooBuildResultDTO.FailedTestDTO failedTest : buildResult.getFailedTests()) {
+            StringBuilder errorMessageString = new StringBuilder();
+            for(String errorMessage : failedTest.getErrorMessages()) {
+                //Splitting string at the first linebreak to only get the first line of the Exception
+                errorMessageString.append(errorMessage.split("\\n", 2)[0]).append("\n");
             }
-        } catch(Exception failedToParse) {
-            log.error("Parsing from bamboo to feedback failed" + failedToParse);
+
+            Feedback feedback = new Feedback();
+            feedback.setText(failedTest.getMethodName());
+            feedback.setDetailText(errorMessageString.toString());
+            feedback = feedbackRepository.save(feedback);
+            result.addFeedbacks(feedback);
         }
 
         return result.getFeedbacks();
@@ -396,97 +406,64 @@ public class BambooService implements ContinuousIntegrationService {
     }
 
     /**
-     * Performs a request to the Bamboo REST API to retrive the latest result for the given plan.
+     * Performs requests to the Bamboo REST API to retrieve the latest result for the given plan with its shared
+     * artifacts, and the failed tests with their errors of the default job of the same build.
+     * <p>
+     * The responses are parsed while they are streamed and only the fields required by ArTEMiS are read.
+     * <p>
+     * TODO: This currently just gets the failed tests of the default job!
      *
      * @param planKey the key of the plan for which to retrieve the latest result
-     * @return a map containing the following data:
-     * - successful:       if the build was successful
-     * - buildTestSummary:      a string generated by Bamboo summarizing the build result
-     * - buildCompletedDate:    the completion date of the build
+     * @return the latest build result, or null if it could not be retrieved
      */
-    private Map<String, Object> retrieveLatestBuildResult(String planKey) {
-        HttpHeaders headers = HeaderUtil.createAuthorization(BAMBOO_USER, BAMBOO_PASSWORD);
-        HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<Map> response = null;
-        try {
-            response = restTemplate.exchange(
-                BAMBOO_SERVER_URL + "/rest/api/latest/result/" + planKey.toUpperCase() + "/latest.json?expand=testResults,artifacts",
-                HttpMethod.GET,
-                entity,
-                Map.class);
-        } catch (Exception e) {
-            log.error("HttpError while retrieving results", e);
+    private BambooBuildResultDTO retrieveLatestBuildResult(String planKey) {
+        planKey = planKey.toUpperCase();
+        BambooBuildResultDTO buildResult = retrieveBuildResult(planKey + "/latest", "artifacts");
+        if (buildResult == null) {
+            return null;
         }
-        if (response != null) {
-            Map<String, Object> result = new HashMap<>();
-            boolean successful = (boolean) response.getBody().get("successful");
-            result.put("successful", successful);
-            String buildTestSummary = (String) response.getBody().get("buildTestSummary");
-            result.put("buildTestSummary", buildTestSummary);
-            String dateString = (String) response.getBody().get("buildCompletedDate");
-            ZonedDateTime buildCompletedDate = ZonedDateTime.parse(dateString);
-            result.put("buildCompletedDate", buildCompletedDate);
-
-            if(response.getBody().containsKey("artifacts")) {
-                Map<String, Object> artifacts = (Map<String, Object>)response.getBody().get("artifacts");
-                if((int)artifacts.get("size") > 0 && artifacts.containsKey("artifact")) {
-                    Map<String, Object> firstArtifact = (Map<String, Object>) ((ArrayList<Map>) artifacts.get("artifact")).get(0);
-                    String artifact = (String) ((Map<String, Object>) firstArtifact.get("link")).get("href");
-                    result.put("artifact", artifact);
-                }
-            }
-
-            return result;
+        // the job result of the same build, even if a newer build finished in the meantime
+        String jobResultKey = buildResult.getBuildNumber() != null ? planKey + "-JOB1-" + buildResult.getBuildNumber() : planKey + "-JOB1/latest";
+        BambooBuildResultDTO jobResult = retrieveBuildResult(jobResultKey, "testResults.failedTests.testResult.errors");
+        if (jobResult != null) {
+            buildResult.setFailedTests(jobResult.getFailedTests());
         }
-        return null;
+        return buildResult;
     }
 
     /**
-     * Performs a request to the Bamboo REST API to retrieve details on the failed tests of the latest build.
-     * <p>
-     * TODO: This currently just gets the failed tests of the default job!
+     * Performs a request to the Bamboo REST API to retrieve a build result with the given expansions.
      *
-     * @param planKey the key of the plan for which to retrieve the details
-     * @return
+     * @param resultKey the key of the result, e.g. "PROJECT-PLAN/latest" or "PROJECT-PLAN-42"
+     * @param expand    the expansions of the result, or null to only retrieve the summary (e.g. the build number)
+     * @return the build result, or null if it could not be retrieved
      */
-    private Map<String, Object> retrieveLatestBuildResultDetails(String planKey) {
+    private BambooBuildResultDTO retrieveBuildResult(String resultKey, String expand) {
         HttpHeaders headers = HeaderUtil.createAuthorization(BAMBOO_USER, BAMBOO_PASSWORD);
-        HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<Map> response = null;
         try {
-            // https://bamboobruegge.in.tum.de/rest/api/latest/result/EIST16W1-TESTEXERCISEAPP-JOB1/latest.json?expand=testResults.failedTests.testResult.errors
-            response = restTemplate.exchange(
-                BAMBOO_SERVER_URL + "/rest/api/latest/result/" + planKey.toUpperCase() + "-JOB1/latest.json?expand=testResults.failedTests.testResult.errors",
+            return restTemplate.execute(
+                BAMBOO_SERVER_URL + "/rest/api/latest/result/" + resultKey + ".json" + (expand != null ? "?expand=" + expand : ""),
                 HttpMethod.GET,
-                entity,
-                Map.class);
+                request -> request.getHeaders().putAll(headers),
+                response -> BambooBuildResultParser.parse(response.getBody()));
         } catch (Exception e) {
-            log.error("HttpError while retrieving build result details", e);
-        }
-        if (response != null) {
-            Map<String, Object> result = new HashMap<>();
-            List resultDetails = (List) ((Map) ((Map) response.getBody().get("testResults")).get("failedTests")).get("testResult");
-            result.put("details", resultDetails);
-            return result;
+            log.error("HttpError while retrieving results", e);
         }
         return null;
     }
 
-
     /**
      * Performs a request to the Bamboo REST API to retrieve the build log of the latest build.
      *
+     * The build log is stored for each new result, see {@link BuildLogService}.
+     *
      * @param planKey
-     * @return
+     * @return the build log entries, or an empty Optional if the request failed, so that no empty build log is stored
      */
-    //TODO: save this in the result class so that ArTEMiS does not need to retrieve it everytime
-    public List<BuildLogEntry> retrieveLatestBuildLogs(String planKey) {
+    public Optional<List<BuildLogEntry>> retrieveLatestBuildLogs(String planKey) {
         HttpHeaders headers = HeaderUtil.createAuthorization(BAMBOO_USER, BAMBOO_PASSWORD);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<Map> response = null;
+        ResponseEntity<Map> response;
         try {
             response = restTemplate.exchange(
                 BAMBOO_SERVER_URL + "/rest/api/latest/result/" + planKey.toUpperCase() + "-JOB1/latest.json?expand=logEntries",
@@ -495,80 +472,106 @@ public class BambooService implements ContinuousIntegrationService {
                 Map.class);
         } catch (Exception e) {
             log.error("HttpError while retrieving build result logs", e);
+            return Optional.empty();
+        }
+        if (response.getBody() == null || !(response.getBody().get("logEntries") instanceof Map)) {
+            log.error("Bamboo returned no log entries for build plan {}", planKey);
+            return Optional.empty();
         }
 
-        ArrayList logs = new ArrayList<BuildLogEntry>();
-
-        if (response != null) {
-            for (HashMap<String, Object> logEntry : (List<HashMap>) ((Map) response.getBody().get("logEntries")).get("logEntry")) {
+        List<BuildLogEntry> logs = new ArrayList<>();
+        List<HashMap> logEntries = (List<HashMap>) ((Map) response.getBody().get("logEntries")).get("logEntry");
+        if (logEntries != null) {
+            for (HashMap<String, Object> logEntry : logEntries) {
                 Instant i = Instant.ofEpochMilli((long) logEntry.get("date"));
                 ZonedDateTime logDate = ZonedDateTime.ofInstant(i, ZoneId.systemDefault());
                 BuildLogEntry log = new BuildLogEntry(logDate, (String) logEntry.get("log"));
                 logs.add(log);
             }
         }
-        return logs;
+        return Optional.of(logs);
     }
 
 
     /**
-     * Gets the latest available artifact for the given plan key
+     * Gets the latest available artifact for the given plan key.
+     * The artifact is downloaded into the build artifact cache once and then served from there. Range requests are
+     * supported, as the artifact is returned as a resource with a known content length.
+     * <p>
+     * Only the build number of the latest build is requested to look up the cached artifact. The artifact link of the
+     * build is only requested on a cache miss, without the test results.
      *
-      * @param participation
+     * @param participation
      * @return
      */
     public ResponseEntity retrieveLatestArtifact(Participation participation) {
-        String planKey = participation.getBuildPlanId();
-        Map<String, Object> latestResult = retrieveLatestBuildResult(planKey);
-        // If the build has an artifact, the response contains an artifact key.
-        // It seems this key is only available if the "Share" checkbox in Bamboo was used.
-        if(latestResult.containsKey("artifact")) {
-            // The URL points to the directory. Bamboo returns an "Index of" page.
-            // Recursively walk through the responses until we get the actual artifact.
-            return retrievArtifactPage((String)latestResult.get("artifact"));
-        }
-        else {
+        String planKey = participation.getBuildPlanId().toUpperCase();
+        BambooBuildResultDTO latestBuild = retrieveBuildResult(planKey + "/latest", null);
+        if (latestBuild == null || latestBuild.getBuildNumber() == null) {
             throw new BambooException("No build artifact available for this plan");
         }
+        String cacheKey = planKey + "-" + latestBuild.getBuildNumber();
+        Resource artifact = buildArtifactCacheService.getArtifact(cacheKey).orElseGet(() -> {
+            // the same build as above, even if a newer build finished in the meantime
+            BambooBuildResultDTO buildResult = retrieveBuildResult(cacheKey, "artifacts");
+            // If the build has an artifact, the response contains an artifact key.
+            // It seems this key is only available if the "Share" checkbox in Bamboo was used.
+            if (buildResult == null || !buildResult.hasArtifact()) {
+                throw new BambooException("No build artifact available for this plan");
+            }
+            // The URL points to the directory. Bamboo returns an "Index of" page.
+            // Recursively walk through the responses until we get the actual artifact.
+            return retrieveArtifactPage(buildResult.getArtifactLink(), cacheKey);
+        });
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + artifact.getFilename() + "\"")
+            .body(artifact);
     }
 
     /**
-     * Gets the content from a Bamboo artifact link
+     * Gets the content from a Bamboo artifact link and streams it into the build artifact cache.
      * Follows links on HTML directory pages, if necessary
      *
-     * @param url
-     * @return
+     * @param url      the artifact link
+     * @param cacheKey the key under which the artifact is cached
+     * @return the cached artifact
      */
-    private ResponseEntity retrievArtifactPage(String url) throws BambooException {
+    private Resource retrieveArtifactPage(String url, String cacheKey) throws BambooException {
         HttpHeaders headers = HeaderUtil.createAuthorization(BAMBOO_USER, BAMBOO_PASSWORD);
-        HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<byte[]> response;
+        String[] artifactLink = new String[1];
+        Resource artifact;
 
         try {
-            response = restTemplate.exchange(url, HttpMethod.GET, entity, byte[].class);
+            artifact = restTemplate.execute(url, HttpMethod.GET, request -> request.getHeaders().putAll(headers), response -> {
+                MediaType contentType = response.getHeaders().getContentType();
+                if (contentType != null && MediaType.TEXT_HTML.includes(contentType)) {
+                    // This is an "Index of" HTML page.
+                    String html = StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+                    Pattern p = Pattern.compile("href=\"(.*?)\"", Pattern.CASE_INSENSITIVE);
+                    Matcher m = p.matcher(html);
+                    if (m.find()) {
+                        artifactLink[0] = m.group(1);
+                    }
+                    return null;
+                }
+                // Actual artifact file
+                String fileName = url.substring(url.lastIndexOf('/') + 1);
+                return buildArtifactCacheService.putArtifact(cacheKey, fileName, response.getBody());
+            });
         } catch (Exception e) {
             log.error("HttpError while retrieving build artifact", e);
             throw new BambooException("HttpError while retrieving build artifact");
         }
 
-        if(response.getHeaders().containsKey("Content-Type") && response.getHeaders().get("Content-Type").get(0).equals("text/html")) {
-            // This is an "Index of" HTML page.
-            String html = new String(response.getBody(), StandardCharsets.UTF_8);
-            Pattern p = Pattern.compile("href=\"(.*?)\"", Pattern.CASE_INSENSITIVE);
-            Matcher m = p.matcher(html);
-            if (m.find()) {
-                url = m.group(1);
-                // Recursively walk through the responses until we get the actual artifact.
-                return retrievArtifactPage(BAMBOO_SERVER_URL + url);
-            } else {
-                throw new BambooException("No artifact link found on artifact page");
-            }
+        if (artifact != null) {
+            return artifact;
         }
-        else {
-            // Actual artifact file
-            return response;
+        if (artifactLink[0] == null) {
+            throw new BambooException("No artifact link found on artifact page");
         }
+        // Recursively walk through the responses until we get the actual artifact.
+        return retrieveArtifactPage(BAMBOO_SERVER_URL + artifactLink[0], cacheKey);
     }
 
     /**
@@ -582,7 +585,6 @@ public class BambooService implements ContinuousIntegrationService {
     public Map<String, Boolean> retrieveBuildStatus(String planKey) {
         HttpHeaders headers = HeaderUtil.createAuthorization(BAMBOO_USER, BAMBOO_PASSWORD);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
         ResponseEntity<Map> response = null;
         try {
             response = restTemplate.exchange(
@@ -614,7 +616,6 @@ public class BambooService implements ContinuousIntegrationService {
     public Boolean buildPlanIdIsValid(String buildPlanId) {
         HttpHeaders headers = HeaderUtil.createAuthorization(BAMBOO_USER, BAMBOO_PASSWORD);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
         ResponseEntity<Map> response = null;
         try {
             response = restTemplate.exchange(
@@ -6,6 +6,7 @@ import de.tum.in.www1.exerciseapp.exception.BitbucketException;
 import de.tum.in.www1.exerciseapp.web.rest.util.HeaderUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.*;
@@ -41,9 +42,11 @@ public class BitbucketService implements VersionControlService {
     private String USER_PREFIX = "";
 
     private final UserService userService;
+    private final RestTemplate restTemplate;
 
-    public BitbucketService(UserService userService) {
+    public BitbucketService(UserService userService, @Qualifier("bitbucketRestTemplate") RestTemplate restTemplate) {
         this.userService = userService;
+        this.restTemplate = restTemplate;
     }
 
     @Override
@@ -136,7 +139,6 @@ public class BitbucketService implements VersionControlService {
         ((Map) body.get("project")).put("key", baseProjectKey);
         HttpHeaders headers = HeaderUtil.createAuthorization(BITBUCKET_USER, BITBUCKET_PASSWORD);
         HttpEntity<?> entity = new HttpEntity<>(body, headers);
-        RestTemplate restTemplate = new RestTemplate();
         ResponseEntity<Map> response;
         try {
             response = restTemplate.exchange(
@@ -180,7 +182,6 @@ public class BitbucketService implements VersionControlService {
     private Boolean userExists(String username) throws BitbucketException {
         HttpHeaders headers = HeaderUtil.createAuthorization(BITBUCKET_USER, BITBUCKET_PASSWORD);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
         try {
             restTemplate.exchange(
                 BITBUCKET_SERVER_URL + "/rest/api/1.0/users/" + username,
@@ -220,7 +221,6 @@ public class BitbucketService implements VersionControlService {
             .queryParam("notify", "false");
 
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
 
         log.debug("Creating Bitbucket user {} ({})", username, emailAddress);
 
@@ -251,7 +251,6 @@ public class BitbucketService implements VersionControlService {
         body.put("groups", groups);
         HttpEntity<?> entity = new HttpEntity<>(body, headers);
 
-        RestTemplate restTemplate = new RestTemplate();
 
         log.debug("Adding Bitbucket user {} to groups {}", username, groups);
 
@@ -279,7 +278,6 @@ public class BitbucketService implements VersionControlService {
         String baseUrl = BITBUCKET_SERVER_URL + "/rest/api/1.0/projects/" + projectKey + "/repos/" + repositorySlug + "/permissions/users?name=";//NAME&PERMISSION
         HttpHeaders headers = HeaderUtil.createAuthorization(BITBUCKET_USER, BITBUCKET_PASSWORD);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
         try {
             restTemplate.exchange(
                 baseUrl + username + "&permission=REPO_WRITE",
@@ -302,7 +300,6 @@ public class BitbucketService implements VersionControlService {
         log.info("Delete repository " + baseUrl);
         HttpHeaders headers = HeaderUtil.createAuthorization(BITBUCKET_USER, BITBUCKET_PASSWORD);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
         try {
             restTemplate.exchange(baseUrl, HttpMethod.DELETE, entity, Map.class);
         } catch (Exception e) {
@@ -321,7 +318,6 @@ public class BitbucketService implements VersionControlService {
         String repositorySlug = getRepositorySlugFromUrl(repositoryUrl);
         HttpHeaders headers = HeaderUtil.createAuthorization(BITBUCKET_USER, BITBUCKET_PASSWORD);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
         try {
             restTemplate.exchange(BITBUCKET_SERVER_URL + "/rest/api/1.0/projects/" + projectKey + "/repos/" + repositorySlug, HttpMethod.GET, entity, Map.class);
         } catch (Exception e) {
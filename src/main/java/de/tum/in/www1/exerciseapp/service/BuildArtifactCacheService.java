@@ -0,0 +1,312 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Bounded on-disk cache for build artifacts, so that repeated downloads of the same artifact are served locally instead
+ * of being fetched from the CI server again.
+ * <p>
+ * Each entry is stored in its own directory (named after the cache key) in the cache directory. If the total size of
+ * all entries exceeds the configured maximum, the least recently used entries are evicted. The files of an evicted
+ * entry are only deleted once all streams opened on it have been closed, so that running downloads can finish.
+ */
+@Service
+public class BuildArtifactCacheService {
+
+    private final Logger log = LoggerFactory.getLogger(BuildArtifactCacheService.class);
+
+    @Value("${artemis.build-artifact-cache.path:./build-artifacts/}")
+    private String CACHE_PATH;
+
+    @Value("${artemis.build-artifact-cache.max-size:1073741824}")
+    private long CACHE_MAX_SIZE;
+
+    private final MetricRegistry metricRegistry;
+
+    // access ordered, so that the first entry is the least recently used one
+    private final LinkedHashMap<String, CachedArtifact> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize = 0;
+
+    private Meter hits;
+    private Meter misses;
+    private Meter evictions;
+
+    public BuildArtifactCacheService(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path cacheDirectory = Paths.get(CACHE_PATH);
+        Files.createDirectories(cacheDirectory);
+
+        // index the artifacts cached before the last restart, least recently used first
+        List<File> cachedArtifacts = new ArrayList<>();
+        try (DirectoryStream<Path> entryDirectories = Files.newDirectoryStream(cacheDirectory, Files::isDirectory)) {
+            for (Path entryDirectory : entryDirectories) {
+                try (Stream<Path> files = Files.list(entryDirectory)) {
+                    Optional<Path> artifact = files.filter(Files::isRegularFile).filter(file -> !file.getFileName().toString().startsWith(".")).findFirst();
+                    if (artifact.isPresent()) {
+                        cachedArtifacts.add(artifact.get().toFile());
+                    } else {
+                        FileSystemUtils.deleteRecursively(entryDirectory.toFile());
+                    }
+                }
+            }
+        }
+        cachedArtifacts.sort(Comparator.comparingLong(File::lastModified));
+        synchronized (this) {
+            for (File artifact : cachedArtifacts) {
+                CachedArtifact cachedArtifact = new CachedArtifact(artifact);
+                entries.put(artifact.getParentFile().getName(), cachedArtifact);
+                totalSize += cachedArtifact.size;
+            }
+        }
+        log.info("Build artifact cache in {} contains {} artifacts ({} bytes)", cacheDirectory.toAbsolutePath(), cachedArtifacts.size(), totalSize);
+
+        hits = metricRegistry.meter(MetricRegistry.name(BuildArtifactCacheService.class, "hits"));
+        misses = metricRegistry.meter(MetricRegistry.name(BuildArtifactCacheService.class, "misses"));
+        evictions = metricRegistry.meter(MetricRegistry.name(BuildArtifactCacheService.class, "evictions"));
+        metricRegistry.register(MetricRegistry.name(BuildArtifactCacheService.class, "size"), (Gauge<Long>) this::getTotalSize);
+    }
+
+    /**
+     * Get a cached artifact. The artifact is opened right away, so that it cannot be deleted before it is read.
+     * The returned resource must be read (or its stream closed), e.g. by returning it as response body.
+     *
+     * @param key the key of the artifact, e.g. the build plan and the build number
+     * @return the cached artifact, or an empty Optional if the artifact is not cached
+     */
+    public Optional<Resource> getArtifact(String key) {
+        String cleanKey = clean(key);
+        synchronized (this) {
+            CachedArtifact cachedArtifact = entries.get(cleanKey);
+            if (cachedArtifact == null) {
+                misses.mark();
+                return Optional.empty();
+            }
+            InputStream content;
+            try {
+                content = openStream(cleanKey, cachedArtifact);
+            } catch (FileNotFoundException e) {
+                // the file has been deleted from the disk, the artifact is downloaded again
+                log.warn("Cached build artifact {} does not exist anymore", cachedArtifact.file);
+                entries.remove(cleanKey);
+                totalSize -= cachedArtifact.size;
+                misses.mark();
+                return Optional.empty();
+            }
+            hits.mark();
+            // the modification date is used to restore the LRU order after a restart
+            cachedArtifact.file.setLastModified(System.currentTimeMillis());
+            return Optional.of(new CachedArtifactResource(cleanKey, cachedArtifact, content));
+        }
+    }
+
+    /**
+     * Stores an artifact in the cache. The content is streamed to disk, so the artifact is never held in memory.
+     * Least recently used artifacts are evicted if the cache exceeds its maximum size.
+     *
+     * @param key      the key of the artifact, e.g. the build plan and the build number
+     * @param fileName the file name of the artifact
+     * @param content  the content of the artifact, which is not closed by this method
+     * @return the cached artifact, which must be read like the one returned by {@link #getArtifact(String)}
+     * @throws IOException if the artifact could not be written
+     */
+    public Resource putArtifact(String key, String fileName, InputStream content) throws IOException {
+        String cleanKey = clean(key);
+        Path entryDirectory = Paths.get(CACHE_PATH, cleanKey);
+        Files.createDirectories(entryDirectory);
+        // write to a hidden temporary file first, so that incomplete downloads are never served
+        Path temporaryFile = Files.createTempFile(entryDirectory, ".download", ".tmp");
+        try {
+            Files.copy(content, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+            Path artifactPath = entryDirectory.resolve(clean(fileName));
+            Files.move(temporaryFile, artifactPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            CachedArtifact cachedArtifact = new CachedArtifact(artifactPath.toFile());
+            synchronized (this) {
+                CachedArtifact previous = entries.put(cleanKey, cachedArtifact);
+                if (previous != null) {
+                    totalSize -= previous.size;
+                    remove(cleanKey, previous);
+                }
+                totalSize += cachedArtifact.size;
+                evict(cleanKey);
+                return new CachedArtifactResource(cleanKey, cachedArtifact, openStream(cleanKey, cachedArtifact));
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Evicts least recently used artifacts until the cache fits into its maximum size again.
+     *
+     * @param keepKey the key of the artifact that was just added, which is never evicted
+     */
+    private void evict(String keepKey) {
+        Iterator<Map.Entry<String, CachedArtifact>> iterator = entries.entrySet().iterator();
+        List<Map.Entry<String, CachedArtifact>> evictedEntries = new ArrayList<>();
+        while (totalSize > CACHE_MAX_SIZE && iterator.hasNext()) {
+            Map.Entry<String, CachedArtifact> entry = iterator.next();
+            if (entry.getKey().equals(keepKey)) {
+                continue;
+            }
+            totalSize -= entry.getValue().size;
+            iterator.remove();
+            evictedEntries.add(entry);
+            evictions.mark();
+            log.debug("Evicted build artifact {} from the cache", entry.getKey());
+        }
+        evictedEntries.forEach(entry -> remove(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Marks an artifact which is not in the cache anymore as removed and deletes its file, unless it is still read.
+     */
+    private void remove(String key, CachedArtifact cachedArtifact) {
+        cachedArtifact.removed = true;
+        if (cachedArtifact.openStreams == 0) {
+            delete(key, cachedArtifact);
+        }
+    }
+
+    private void delete(String key, CachedArtifact cachedArtifact) {
+        cachedArtifact.deleted = true;
+        CachedArtifact current = entries.get(key);
+        // the artifact might have been downloaded again into the same file in the meantime
+        if (current == null || !current.file.equals(cachedArtifact.file)) {
+            cachedArtifact.file.delete();
+            // only deleted if it is empty, i.e. not while the artifact is downloaded again
+            cachedArtifact.file.getParentFile().delete();
+        }
+    }
+
+    /**
+     * Opens a stream on the artifact, which keeps the file from being deleted until the stream is closed.
+     * Must be called while holding the lock of the cache.
+     */
+    private InputStream openStream(String key, CachedArtifact cachedArtifact) throws FileNotFoundException {
+        if (cachedArtifact.deleted) {
+            throw new FileNotFoundException("The build artifact " + cachedArtifact.file + " has been evicted from the cache");
+        }
+        InputStream content = new FileInputStream(cachedArtifact.file);
+        cachedArtifact.openStreams++;
+        return new FilterInputStream(content) {
+
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    synchronized (BuildArtifactCacheService.this) {
+                        if (!closed) {
+                            closed = true;
+                            cachedArtifact.openStreams--;
+                            if (cachedArtifact.openStreams == 0 && cachedArtifact.removed && !cachedArtifact.deleted) {
+                                delete(key, cachedArtifact);
+                            }
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Makes a key or file name safe to be used as a path segment. Names starting with a dot are reserved for temporary files.
+     */
+    private String clean(String name) {
+        String cleanName = name.replaceAll("[^A-Za-z0-9_.-]", "_");
+        if (cleanName.isEmpty() || cleanName.startsWith(".")) {
+            cleanName = "artifact" + cleanName;
+        }
+        return cleanName;
+    }
+
+    private static class CachedArtifact {
+
+        private final File file;
+        private final long size;
+
+        // guarded by the lock of the cache
+        private int openStreams = 0;
+        private boolean removed = false;
+        private boolean deleted = false;
+
+        private CachedArtifact(File file) {
+            this.file = file;
+            this.size = file.length();
+        }
+    }
+
+    /**
+     * A cached artifact, which is opened when the resource is created. Range requests read each range from a new
+     * stream, a later range of a request with multiple ranges fails if the artifact has been deleted in the meantime.
+     */
+    private class CachedArtifactResource extends AbstractResource {
+
+        private final String key;
+        private final CachedArtifact cachedArtifact;
+        private InputStream firstStream;
+
+        private CachedArtifactResource(String key, CachedArtifact cachedArtifact, InputStream firstStream) {
+            this.key = key;
+            this.cachedArtifact = cachedArtifact;
+            this.firstStream = firstStream;
+        }
+
+        @Override
+        public String getDescription() {
+            return "cached build artifact [" + cachedArtifact.file + "]";
+        }
+
+        @Override
+        public String getFilename() {
+            return cachedArtifact.file.getName();
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return cachedArtifact.size;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            synchronized (BuildArtifactCacheService.this) {
+                if (firstStream != null) {
+                    InputStream content = firstStream;
+                    firstStream = null;
+                    return content;
+                }
+                return openStream(key, cachedArtifact);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import de.tum.in.www1.exerciseapp.domain.BuildLog;
+import de.tum.in.www1.exerciseapp.domain.BuildLogEntry;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.Result;
+import de.tum.in.www1.exerciseapp.repository.BuildLogRepository;
+import de.tum.in.www1.exerciseapp.repository.ResultRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service Implementation for storing the build logs of results, so that they do not need to be fetched from the CI server every time.
+ */
+@Service
+@Transactional
+public class BuildLogService {
+
+    private final Logger log = LoggerFactory.getLogger(BuildLogService.class);
+
+    private final BuildLogRepository buildLogRepository;
+    private final ResultRepository resultRepository;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public BuildLogService(BuildLogRepository buildLogRepository, ResultRepository resultRepository) {
+        this.buildLogRepository = buildLogRepository;
+        this.resultRepository = resultRepository;
+    }
+
+    /**
+     * Stores the build log of a result compressed in the database. An already stored build log of the result is replaced.
+     *
+     * @param result     the result the build log belongs to
+     * @param logEntries the entries of the build log
+     * @return the persisted build log
+     */
+    public BuildLog saveBuildLogs(Result result, List<BuildLogEntry> logEntries) throws IOException {
+        log.debug("Request to save {} build log entries for Result : {}", logEntries.size(), result.getId());
+        BuildLog buildLog = buildLogRepository.findOneByResultId(result.getId()).orElseGet(() -> {
+            BuildLog newBuildLog = new BuildLog();
+            newBuildLog.setResult(result);
+            return newBuildLog;
+        });
+        buildLog.setEntryCount(logEntries.size());
+        buildLog.setCompressedLog(compress(logEntries));
+        return buildLogRepository.save(buildLog);
+    }
+
+    /**
+     * Get the stored build log of the latest result of the given participation.
+     *
+     * @param participation the participation for which to get the build log
+     * @param pageable      the requested page of log entries, or null to get all entries
+     * @return the requested log entries, or an empty Optional if no build log was stored for the latest result
+     */
+    @Transactional(readOnly = true)
+    public Optional<Page<BuildLogEntry>> findLatestBuildLogs(Participation participation, Pageable pageable) {
+        Optional<Result> latestResult = resultRepository.findFirstByParticipationIdOrderByCompletionDateDesc(participation.getId());
+        if (!latestResult.isPresent()) {
+            return Optional.empty();
+        }
+        Optional<BuildLog> buildLog = buildLogRepository.findOneByResultId(latestResult.get().getId());
+        if (!buildLog.isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            if (pageable == null) {
+                return Optional.of(new PageImpl<>(decompress(buildLog.get().getCompressedLog(), 0, 0)));
+            }
+            List<BuildLogEntry> logEntries = decompress(buildLog.get().getCompressedLog(), pageable.getOffset(), pageable.getPageSize());
+            return Optional.of(new PageImpl<>(logEntries, pageable, buildLog.get().getEntryCount()));
+        } catch (IOException e) {
+            log.error("Could not read stored build log of Result " + latestResult.get().getId(), e);
+            return Optional.empty();
+        }
+    }
+
+    private byte[] compress(List<BuildLogEntry> logEntries) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (JsonGenerator generator = jsonFactory.createGenerator(new GZIPOutputStream(outputStream))) {
+            generator.writeStartArray();
+            for (BuildLogEntry logEntry : logEntries) {
+                generator.writeStartObject();
+                generator.writeNumberField("time", logEntry.getTime() != null ? logEntry.getTime().toInstant().toEpochMilli() : 0);
+                generator.writeStringField("log", logEntry.getLog());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Reads the log entries from the compressed build log. Only the requested entries are parsed, all others are skipped.
+     *
+     * @param compressedLog the gzip compressed JSON array of log entries
+     * @param offset        the number of entries to skip
+     * @param limit         the maximum number of entries to read, or 0 to read all entries
+     * @return the log entries
+     */
+    private List<BuildLogEntry> decompress(byte[] compressedLog, int offset, int limit) throws IOException {
+        List<BuildLogEntry> logEntries = new ArrayList<>();
+        try (JsonParser parser = jsonFactory.createParser(new GZIPInputStream(new ByteArrayInputStream(compressedLog)))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Invalid build log format");
+            }
+            int index = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (index++ < offset) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (limit > 0 && logEntries.size() >= limit) {
+                    break;
+                }
+                long time = 0;
+                String logText = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("time".equals(fieldName)) {
+                        time = parser.getLongValue();
+                    } else if ("log".equals(fieldName)) {
+                        logText = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                logEntries.add(new BuildLogEntry(ZonedDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()), logText));
+            }
+        }
+        return logEntries;
+    }
+}
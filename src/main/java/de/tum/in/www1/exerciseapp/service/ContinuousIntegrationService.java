@@ -7,6 +7,7 @@ import de.tum.in.www1.exerciseapp.domain.Result;
 import org.springframework.http.ResponseEntity;
 
 import java.net.URL;
+import java.time.ZonedDateTime;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -53,10 +54,15 @@ public interface ContinuousIntegrationService {
      * Configure this as a build step in the build plan.
      * <p>
      * Important: The implementation is responsible for retrieving and saving the result from the CI system.
+     * If the CI system does not provide the result of the notified build yet, the implementation must not wait for it,
+     * but return null, so that the retrieval can be retried later.
      *
-     * @param participation participation for which build has completed
+     * @param participation    participation for which build has completed
+     * @param notificationDate date at which the CI system notified us about the completed build
+     * @param isLastAttempt    if true, the latest available build result is saved even if it seems to be outdated
+     * @return the saved result, or null if the result of the notified build is not available yet
      */
-    public void onBuildCompleted(Participation participation);
+    public Result onBuildCompleted(Participation participation, ZonedDateTime notificationDate, boolean isLastAttempt);
 
     /**
      * Get the current status of the build for the given participation, i.e. INACTIVE, QUEUED, or BUILDING.
@@ -90,9 +96,9 @@ public interface ContinuousIntegrationService {
      * Get the build logs of the latest CI build.
      *
      * @param participation  participation for which to get the build logs
-     * @return  list of build log entries
+     * @return  list of build log entries, or an empty Optional if the build logs could not be retrieved
      */
-    public List<BuildLogEntry> getLatestBuildLogs(Participation participation);
+    public Optional<List<BuildLogEntry>> getLatestBuildLogs(Participation participation);
 
     /**
      * Get the public URL to the build plan. Used for the "Go to Build Plan" button, if this feature is enabled for the exercise.
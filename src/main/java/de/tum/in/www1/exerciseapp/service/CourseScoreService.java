@@ -0,0 +1,324 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import de.tum.in.www1.exerciseapp.domain.Course;
+import de.tum.in.www1.exerciseapp.domain.CourseScore;
+import de.tum.in.www1.exerciseapp.domain.Exercise;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.repository.*;
+import de.tum.in.www1.exerciseapp.service.dto.CourseScoreDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service for maintaining the persisted course scores of the students.
+ * <p>
+ * Instead of calculating the scores from all results of a course on every request, the score of a student is
+ * recalculated from the results of this student only, whenever one of them or a participation of the student is created,
+ * updated or deleted. Every student with a participation in the course has a score, which is 0 if none of the results
+ * of the student counts (e.g. no result yet or only results after the due date). The scores
+ * of a course are recalculated completely if the due date of one of its exercises changes or an exercise is deleted.
+ * <p>
+ * The scores are written in their own transactions after the transaction which changed the results has been committed.
+ */
+@Service
+public class CourseScoreService {
+
+    private final Logger log = LoggerFactory.getLogger(CourseScoreService.class);
+
+    private final CourseScoreRepository courseScoreRepository;
+    private final ResultRepository resultRepository;
+    private final ParticipationRepository participationRepository;
+    private final ExerciseRepository exerciseRepository;
+    private final CourseRepository courseRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // serializes the updates of the same score, so that concurrent results of a student do not create duplicate scores
+    private final Object[] scoreLocks = new Object[64];
+
+    // held exclusively while the scores of a course are rebuilt
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    // rebuilds the scores of all courses in the background
+    private ExecutorService rebuildExecutor;
+
+    private final AtomicBoolean rebuildingAllScores = new AtomicBoolean();
+
+    public CourseScoreService(CourseScoreRepository courseScoreRepository, ResultRepository resultRepository, ParticipationRepository participationRepository,
+                              ExerciseRepository exerciseRepository, CourseRepository courseRepository, UserRepository userRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.courseScoreRepository = courseScoreRepository;
+        this.resultRepository = resultRepository;
+        this.participationRepository = participationRepository;
+        this.exerciseRepository = exerciseRepository;
+        this.courseRepository = courseRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < scoreLocks.length; i++) {
+            scoreLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuildExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("course-score-rebuild-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Get the average score of all students of a course which have a participation in the course.
+     *
+     * @param courseId the id of the course
+     * @return the summed scores of the students, divided by the number of exercises in the course
+     */
+    @Transactional(readOnly = true)
+    public List<CourseScoreDTO> getAverageScores(Long courseId) {
+        long numberOfExercises = exerciseRepository.countByCourseId(courseId);
+        List<CourseScoreDTO> scores = courseScoreRepository.findScoresByCourseId(courseId);
+        if (numberOfExercises > 0) {
+            scores.forEach(score -> score.setScore(score.getScore() / numberOfExercises));
+        }
+        return scores;
+    }
+
+    /**
+     * Updates the course score of the student of the participation after a result of the participation has been
+     * created, updated or deleted. If called within a transaction, the score is updated after it has been committed.
+     *
+     * @param participation the participation of the changed result
+     */
+    public void onResultChanged(Participation participation) {
+        if (participation == null || participation.getId() == null) {
+            return;
+        }
+        Long participationId = participation.getId();
+        afterCommit(() -> {
+            // the participation of a result received via REST might only contain the id
+            Participation storedParticipation = transactionTemplate.execute(status -> participationRepository.findOne(participationId));
+            if (storedParticipation == null || storedParticipation.getStudent() == null || storedParticipation.getExercise() == null
+                || storedParticipation.getExercise().getCourse() == null) {
+                return;
+            }
+            updateScoreNow(storedParticipation.getExercise().getCourse().getId(), storedParticipation.getStudent().getId());
+        });
+    }
+
+    /**
+     * Creates the course score of the student of a new participation, which is 0 if the student did not have a
+     * participation in the course yet. If called within a transaction, the score is created after it has been committed.
+     *
+     * @param participation the created participation
+     */
+    public void onParticipationCreated(Participation participation) {
+        onResultChanged(participation);
+    }
+
+    /**
+     * Recalculates the course score of a student from the results of the student in the course.
+     * Deletes the score if the student does not have any participations in the course anymore.
+     * If called within a transaction, the score is updated after it has been committed.
+     *
+     * @param courseId  the id of the course
+     * @param studentId the id of the student
+     */
+    public void updateScore(Long courseId, Long studentId) {
+        afterCommit(() -> updateScoreNow(courseId, studentId));
+    }
+
+    /**
+     * Recalculates the scores of the course of the exercise if the due date or the course of the exercise changed,
+     * because the due date determines which result of a participation counts.
+     *
+     * @param updatedExercise the updated exercise
+     * @param previousDueDate the due date of the exercise before the update
+     * @param previousCourse  the course of the exercise before the update
+     */
+    public void onExerciseUpdated(Exercise updatedExercise, ZonedDateTime previousDueDate, Course previousCourse) {
+        Long previousCourseId = previousCourse != null ? previousCourse.getId() : null;
+        Long updatedCourseId = updatedExercise.getCourse() != null ? updatedExercise.getCourse().getId() : null;
+        if (!Objects.equals(previousCourseId, updatedCourseId)) {
+            rebuildScoresAfterCommit(previousCourseId);
+            rebuildScoresAfterCommit(updatedCourseId);
+        } else if (!isSameDate(previousDueDate, updatedExercise.getDueDate())) {
+            log.info("The due date of exercise {} changed", updatedExercise.getId());
+            rebuildScoresAfterCommit(updatedCourseId);
+        }
+    }
+
+    /**
+     * Recalculates the scores of the course of the deleted exercise.
+     *
+     * @param exercise the deleted exercise
+     */
+    public void onExerciseDeleted(Exercise exercise) {
+        if (exercise != null && exercise.getCourse() != null) {
+            rebuildScoresAfterCommit(exercise.getCourse().getId());
+        }
+    }
+
+    /**
+     * Recalculates the scores of all students of a course, e.g. to initially fill the scores of existing results.
+     *
+     * @param courseId the id of the course
+     * @return the number of students with a score in the course
+     */
+    public int rebuildScores(Long courseId) {
+        log.info("Rebuilding the scores of course {}", courseId);
+        // no score of the course must be inserted between deleting and inserting all scores
+        rebuildLock.writeLock().lock();
+        try {
+            return transactionTemplate.execute(status -> {
+                Map<Long, Long> scores = sumScores(resultRepository.findScoresForCourse(courseId));
+                courseScoreRepository.deleteByCourseId(courseId);
+                scores.forEach((studentId, score) -> courseScoreRepository.save(createCourseScore(courseId, studentId, score)));
+                return scores.size();
+            });
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recalculates the scores of all students of all courses in the background. Does nothing if the scores of all
+     * courses are being rebuilt already.
+     *
+     * @return true if the rebuild was started, false if it is running already
+     */
+    public boolean startRebuildAllScores() {
+        if (!rebuildingAllScores.compareAndSet(false, true)) {
+            return false;
+        }
+        rebuildExecutor.submit(() -> {
+            try {
+                int count = 0;
+                for (Course course : courseRepository.findAll()) {
+                    count += rebuildScores(course.getId());
+                }
+                log.info("Rebuilt {} scores of all courses", count);
+            } catch (Exception e) {
+                log.error("Rebuilding the scores of all courses failed", e);
+            } finally {
+                rebuildingAllScores.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Updates the score in its own transaction. The locks are only released after the transaction has been committed,
+     * so that concurrent updates of the same score do not both insert it.
+     */
+    private void updateScoreNow(Long courseId, Long studentId) {
+        rebuildLock.readLock().lock();
+        try {
+            synchronized (scoreLocks[Math.floorMod(Objects.hash(courseId, studentId), scoreLocks.length)]) {
+                transactionTemplate.execute(status -> {
+                    Long score = sumScores(resultRepository.findScoresForCourseAndStudent(courseId, studentId)).get(studentId);
+                    Optional<CourseScore> courseScore = courseScoreRepository.findOneByCourseIdAndStudentId(courseId, studentId);
+                    if (score == null) {
+                        courseScore.ifPresent(courseScoreRepository::delete);
+                    } else if (!courseScore.isPresent()) {
+                        courseScoreRepository.save(createCourseScore(courseId, studentId, score));
+                    } else if (!score.equals(courseScore.get().getScore())) {
+                        courseScore.get().setScore(score);
+                        courseScoreRepository.save(courseScore.get());
+                    }
+                    return null;
+                });
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void rebuildScoresAfterCommit(Long courseId) {
+        if (courseId != null) {
+            afterCommit(() -> rebuildScores(courseId));
+        }
+    }
+
+    /**
+     * Runs the action after the current transaction has been committed, so that it sees the changed results, or
+     * immediately if there is no transaction. Failures are only logged, as the changes are committed already.
+     */
+    private void afterCommit(Runnable action) {
+        Runnable loggingAction = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.error("Updating the course scores failed", e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    loggingAction.run();
+                }
+            });
+        } else {
+            loggingAction.run();
+        }
+    }
+
+    private boolean isSameDate(ZonedDateTime date, ZonedDateTime otherDate) {
+        return date == null ? otherDate == null : otherDate != null && date.isEqual(otherDate);
+    }
+
+    /**
+     * Sums up the scores of the relevant result of each participation by student. The relevant result is the last result
+     * before the due date of the exercise, or the last result if the exercise does not have a due date.
+     *
+     * @param results the results, as selected by {@link ResultRepository#findScoresForCourse(Long)}
+     * @return the summed score by student id, 0 for students whose participations have no relevant result
+     */
+    private Map<Long, Long> sumScores(List<Object[]> results) {
+        Map<Long, Object[]> relevantResults = new HashMap<>();
+        Map<Long, Long> scores = new HashMap<>();
+        for (Object[] result : results) {
+            scores.putIfAbsent((Long) result[0], 0L);
+            ZonedDateTime dueDate = (ZonedDateTime) result[2];
+            ZonedDateTime completionDate = (ZonedDateTime) result[3];
+            if (completionDate == null || (dueDate != null && !completionDate.isBefore(dueDate))) {
+                continue;
+            }
+            relevantResults.merge((Long) result[1], result, (current, other) -> ((ZonedDateTime) other[3]).isAfter((ZonedDateTime) current[3]) ? other : current);
+        }
+        for (Object[] result : relevantResults.values()) {
+            Long score = (Long) result[4];
+            scores.merge((Long) result[0], score != null ? score : 0L, Long::sum);
+        }
+        return scores;
+    }
+
+    private CourseScore createCourseScore(Long courseId, Long studentId, Long score) {
+        CourseScore courseScore = new CourseScore();
+        courseScore.setCourse(courseRepository.getOne(courseId));
+        courseScore.setStudent(userRepository.getOne(studentId));
+        courseScore.setScore(score);
+        return courseScore;
+    }
+}
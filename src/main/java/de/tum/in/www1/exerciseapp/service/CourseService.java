@@ -2,8 +2,11 @@ package de.tum.in.www1.exerciseapp.service;
 
 import de.tum.in.www1.exerciseapp.domain.*;
 import de.tum.in.www1.exerciseapp.repository.CourseRepository;
+import de.tum.in.www1.exerciseapp.security.AuthoritiesConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +24,9 @@ public class CourseService {
 
     private final Logger log = LoggerFactory.getLogger(CourseService.class);
 
+    // TODO: Maybe we want to externalize the configuration of the "Archive" course name
+    public static final String ARCHIVE_COURSE_TITLE = "Archive";
+
     private final CourseRepository courseRepository;
     private final UserService userService;
 
@@ -35,6 +41,7 @@ public class CourseService {
      * @param course the entity to save
      * @return the persisted entity
      */
+    @CacheEvict(cacheNames = "visibleCourseIds", allEntries = true)
     public Course save(Course course) {
         log.debug("Request to save Course : {}", course);
         return courseRepository.save(course);
@@ -50,18 +57,52 @@ public class CourseService {
         log.debug("Request to get all Courses");
         List<Course> result = courseRepository.findAll();
         User user = userService.getUserWithGroupsAndAuthorities();
+        Stream<Course> userCourses = result.stream().filter(course -> isMemberOfCourse(course, user));
+        List<Course> userAuthorizedCourses = userCourses.collect(Collectors.toList());
+        return userAuthorizedCourses;
+    }
+
+    /**
+     * Checks if the current user is a student, teaching assistant or instructor of the given course, i.e. if the course
+     * is one of the courses returned by {@link #findAll()}.
+     *
+     * @param course the course
+     * @return true if the user may see the course
+     */
+    @Transactional(readOnly = true)
+    public boolean isMemberOfCourse(Course course) {
+        return isMemberOfCourse(course, userService.getUserWithGroupsAndAuthorities());
+    }
+
+    private boolean isMemberOfCourse(Course course, User user) {
         Authority adminAuthority = new Authority();
         adminAuthority.setName("ROLE_ADMIN");
         Authority taAuthority = new Authority();
         taAuthority.setName("ROLE_TA");
-        Stream<Course> userCourses = result.stream().filter(
-            course -> user.getGroups().contains(course.getStudentGroupName())
-                || user.getGroups().contains(course.getTeachingAssistantGroupName())
-                || (user.getAuthorities().contains(taAuthority) && course.getTitle().equals("Archive"))
-                || user.getAuthorities().contains(adminAuthority)
-        );
-        List<Course> userAuthorizedCourses = userCourses.collect(Collectors.toList());
-        return userAuthorizedCourses;
+        return user.getGroups().contains(course.getStudentGroupName())
+            || user.getGroups().contains(course.getTeachingAssistantGroupName())
+            || (user.getAuthorities().contains(taAuthority) && course.getTitle().equals(ARCHIVE_COURSE_TITLE))
+            || user.getAuthorities().contains(adminAuthority);
+    }
+
+    /**
+     * Get the ids of the courses whose exercises are visible for users with the given groups: the courses in which one
+     * of the groups is the student or teaching assistant group, and the archive course.
+     * <p>
+     * The result is cached by groups, so the list should be sorted to share the cache entry between users.
+     *
+     * @param groups the sorted groups of the user
+     * @return the ids of the visible courses
+     */
+    @Cacheable(cacheNames = "visibleCourseIds")
+    @Transactional(readOnly = true)
+    public List<Long> findVisibleCourseIds(List<String> groups) {
+        log.debug("Request to get the visible Courses for groups : {}", groups);
+        if (groups.isEmpty()) {
+            // an empty IN list is not valid SQL
+            return courseRepository.findIdsByTitle(ARCHIVE_COURSE_TITLE);
+        }
+        return courseRepository.findIdsByGroupsOrTitle(groups, ARCHIVE_COURSE_TITLE);
     }
 
     /**
@@ -81,99 +122,28 @@ public class CourseService {
      *
      * @param id the id of the entity
      */
+    @CacheEvict(cacheNames = "visibleCourseIds", allEntries = true)
     public void delete(Long id) {
         log.debug("Request to delete Course : {}", id);
         courseRepository.delete(id);
     }
 
-    public List<String> getAllTeachingAssistantGroupNames() {
-        List<Course> courses = courseRepository.findAll();
-        return courses.stream().map(Course::getTeachingAssistantGroupName).collect(Collectors.toList());
-    }
-
     /**
-     * Getting a Collection of Results in which the average Score of a course is returned as a result
+     * Checks if the current user is an instructor (i.e. an admin) or a teaching assistant of the given course.
      *
-     * @param courseId the courseId
-     * @return the collection of results in the result score the average score is saved, which contains the participation and the user
+     * @param course the course
+     * @return true if the user may manage the exercises of the course
      */
     @Transactional(readOnly = true)
-    public Collection<Result> getAllOverallScoresOfCourse(Long courseId) {
-        Course course = findOne(courseId);
-        Set<Exercise> exercisesOfCourse = course.getExercises();
-        //key stores the userId to identify if he already got a score, value contains the Result itself with the score of the user
-        HashMap<Long, Result> allOverallSummedScoresOfCourse = new HashMap<>();
-
-        for (Exercise exercise : exercisesOfCourse) {
-            Set<Participation> participations = exercise.getParticipations();
-            boolean exerciseHasDueDate = exercise.getDueDate() != null;
-
-            for (Participation participation : participations) {
-
-                //id of user in the datbase to reference to the user
-                long userID = participation.getStudent().getId();
-                Result bestResult = choseResultInParticipation(participation, exerciseHasDueDate);
-
-                //if student already appeared, once add the new score to the old one
-                if (allOverallSummedScoresOfCourse.containsKey(userID)) {
-                    long oldScore = allOverallSummedScoresOfCourse.get(userID).getScore();
-                    bestResult.setScore(oldScore + bestResult.getScore());
-                    allOverallSummedScoresOfCourse.remove(userID);
-                }
-                allOverallSummedScoresOfCourse.put(userID, bestResult);
-            }
-        }
-
-        //divide the scores by the amount of exercises to get the average Score of all Exercises
-        Collection<Result> allOverallScores = allOverallSummedScoresOfCourse.values();
-        int numberOfExercises = exercisesOfCourse.size();
-        for (Result result : allOverallScores) {
-            result.setScore(result.getScore() / (long) numberOfExercises);
-        }
-
-        return allOverallScores;
+    public boolean isInstructorOrTeachingAssistantInCourse(Course course) {
+        User user = userService.getUserWithGroupsAndAuthorities();
+        Authority adminAuthority = new Authority();
+        adminAuthority.setName(AuthoritiesConstants.ADMIN);
+        return user.getAuthorities().contains(adminAuthority) || user.getGroups().contains(course.getTeachingAssistantGroupName());
     }
 
-    /**
-     * Find the best Result in a Participation
-     *
-     * @param participation the participation you want the best result from
-     * @param hasDueDate if the participation has a duedate take last result before the due date if not take the overall last result
-     * @return the best result a student had within the time of the exercise
-     */
-    @Transactional(readOnly = true)
-    public Result choseResultInParticipation(Participation participation, boolean hasDueDate) {
-        List<Result> results = new ArrayList<>(participation.getResults());
-
-        Result chosenResult;
-        //edge case of no result submitted to a participation
-        if(results.size() <= 0){
-            chosenResult = new Result();
-            chosenResult.setScore((long) 0);
-            chosenResult.setParticipation(participation);
-            return chosenResult;
-        }
-
-        //sorting in descending order to have the last result at the beginning
-        results.sort(Comparator.comparing(Result::getCompletionDate).reversed());
-
-        if(hasDueDate){
-            //find the first result that is before the due date otherwise handles the case where all results were submitted after the due date,
-            chosenResult = results.stream()
-                .filter(x -> x.getCompletionDate().isBefore(participation.getExercise().getDueDate()))
-                .findFirst()
-                .orElse(new Result());
-        }else{
-            chosenResult = results.remove(0); //no due date use last result
-        }
-
-        //edge case where the db has stored null for score
-        if (chosenResult.getScore() == null) {
-            chosenResult.setScore((long) 0);
-        }
-        //setting participation in result to have student id later
-        chosenResult.setParticipation(participation);
-
-        return chosenResult;
+    public List<String> getAllTeachingAssistantGroupNames() {
+        List<Course> courses = courseRepository.findAll();
+        return courses.stream().map(Course::getTeachingAssistantGroupName).collect(Collectors.toList());
     }
 }
@@ -0,0 +1,221 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import de.tum.in.www1.exerciseapp.domain.Repository;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for committing and pushing the changes made in the online editor.
+ * <p>
+ * If a quiet period is configured, commit requests with immediate set to false are executed in the background
+ * (write-behind). All requests for the same repository within the quiet period are coalesced into one commit and push,
+ * which avoids a push (and therefore a build on the CI server) for every request. An immediate commit of the student is
+ * executed right away and replaces the pending commit.
+ * <p>
+ * Saving a file only schedules a commit if artemis.git.commit-on-save is enabled, as every push starts a build.
+ * A failed deferred commit is retried after the quiet period, up to {@link #MAX_COMMIT_ATTEMPTS} times.
+ */
+@Service
+public class DeferredCommitService {
+
+    private final Logger log = LoggerFactory.getLogger(DeferredCommitService.class);
+
+    private static final String COMMIT_MESSAGE = "Changes by Online Editor";
+
+    private static final int MAX_COMMIT_ATTEMPTS = 3;
+
+    @Value("${artemis.git.commit-quiet-period:0}")
+    private long COMMIT_QUIET_PERIOD;
+
+    @Value("${artemis.git.commit-on-save:false}")
+    private boolean COMMIT_ON_SAVE;
+
+    @Value("${artemis.git.push-parallelism:2}")
+    private int PUSH_PARALLELISM;
+
+    private final Optional<GitService> gitService;
+    private final MetricRegistry metricRegistry;
+
+    // the commit scheduled for each repository, by local path
+    private final Map<Path, PendingCommit> pendingCommits = new HashMap<>();
+
+    private ScheduledExecutorService pushExecutor;
+
+    private Meter commitRequests;
+    private Meter pushes;
+    private Meter failures;
+
+    public DeferredCommitService(Optional<GitService> gitService, MetricRegistry metricRegistry) {
+        this.gitService = gitService;
+        this.metricRegistry = metricRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        pushExecutor = Executors.newScheduledThreadPool(PUSH_PARALLELISM, new CustomizableThreadFactory("deferred-commit-"));
+        commitRequests = metricRegistry.meter(MetricRegistry.name(DeferredCommitService.class, "requests"));
+        pushes = metricRegistry.meter(MetricRegistry.name(DeferredCommitService.class, "pushes"));
+        failures = metricRegistry.meter(MetricRegistry.name(DeferredCommitService.class, "failures"));
+    }
+
+    /**
+     * Executes the pending commits before shutting down, so that no changes of the students are lost.
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        synchronized (pendingCommits) {
+            log.info("Executing {} pending commits before shutdown", pendingCommits.size());
+        }
+        // delayed tasks are still executed after shutdown
+        pushExecutor.shutdown();
+        pushExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Commits all changes in the repository and pushes them. Without a quiet period or if the commit is requested
+     * explicitly, this happens immediately, otherwise it is scheduled after the quiet period.
+     *
+     * @param repository Local Repository Object.
+     * @param immediate  true if the commit must not be deferred, e.g. because the student submits the exercise
+     * @return true if the commit was scheduled, false if it was already executed
+     * @throws IOException
+     * @throws GitAPIException
+     */
+    public boolean commit(Repository repository, boolean immediate) throws IOException, GitAPIException {
+        commitRequests.mark();
+        if (immediate || COMMIT_QUIET_PERIOD <= 0) {
+            cancelPendingCommit(repository);
+            commitAndPush(repository);
+            return false;
+        }
+        schedulePendingCommit(repository);
+        return true;
+    }
+
+    /**
+     * Schedules a commit of the changes saved in the repository after the quiet period, e.g. after a file was saved in
+     * the online editor. Does nothing unless commits on save are enabled and a quiet period is configured, the changes
+     * are then only committed explicitly.
+     *
+     * @param repository Local Repository Object.
+     * @return true if the commit was scheduled
+     */
+    public boolean scheduleCommit(Repository repository) {
+        if (!COMMIT_ON_SAVE || COMMIT_QUIET_PERIOD <= 0) {
+            return false;
+        }
+        schedulePendingCommit(repository);
+        return true;
+    }
+
+    private void schedulePendingCommit(Repository repository) {
+        Path localPath = repository.getLocalPath();
+        synchronized (pendingCommits) {
+            // restart the quiet period, if the pending commit is already running, the new one is executed afterwards
+            PendingCommit previousCommit = pendingCommits.get(localPath);
+            if (previousCommit != null) {
+                previousCommit.future.cancel(false);
+            }
+            schedule(repository, new PendingCommit(1));
+        }
+    }
+
+    private void schedule(Repository repository, PendingCommit pendingCommit) {
+        pendingCommit.future = pushExecutor.schedule(() -> executePendingCommit(repository, pendingCommit), COMMIT_QUIET_PERIOD, TimeUnit.SECONDS);
+        pendingCommits.put(repository.getLocalPath(), pendingCommit);
+    }
+
+    /**
+     * Checks if a commit of the repository is scheduled but not executed yet.
+     *
+     * @param localPath Path of the local repository.
+     * @return true if a commit is pending
+     */
+    public boolean isCommitPending(Path localPath) {
+        synchronized (pendingCommits) {
+            return pendingCommits.containsKey(localPath);
+        }
+    }
+
+    private void cancelPendingCommit(Repository repository) {
+        synchronized (pendingCommits) {
+            PendingCommit pendingCommit = pendingCommits.remove(repository.getLocalPath());
+            if (pendingCommit != null) {
+                pendingCommit.future.cancel(false);
+            }
+        }
+    }
+
+    private void executePendingCommit(Repository repository, PendingCommit pendingCommit) {
+        synchronized (pendingCommits) {
+            // a newer commit might already be scheduled, which must stay pending
+            pendingCommits.remove(repository.getLocalPath(), pendingCommit);
+        }
+        try {
+            commitAndPush(repository);
+        } catch (Exception e) {
+            log.error("Deferred commit of the repository at " + repository.getLocalPath() + " failed (attempt " + pendingCommit.attempt + ")", e);
+            failures.mark();
+            retryPendingCommit(repository, pendingCommit);
+        }
+    }
+
+    /**
+     * Schedules the failed commit again, unless a newer commit of the repository is already pending. The changes stay in
+     * the working tree, so they are also included in the next commit of the student if all attempts fail.
+     */
+    private void retryPendingCommit(Repository repository, PendingCommit failedCommit) {
+        if (failedCommit.attempt >= MAX_COMMIT_ATTEMPTS) {
+            log.warn("Giving up the deferred commit of the repository at {} after {} attempts", repository.getLocalPath(), failedCommit.attempt);
+            return;
+        }
+        synchronized (pendingCommits) {
+            if (pendingCommits.containsKey(repository.getLocalPath())) {
+                return;
+            }
+            if (pushExecutor.isShutdown()) {
+                log.warn("Not retrying the deferred commit of the repository at {} during shutdown", repository.getLocalPath());
+                return;
+            }
+            schedule(repository, new PendingCommit(failedCommit.attempt + 1));
+        }
+    }
+
+    private void commitAndPush(Repository repository) throws IOException, GitAPIException {
+        gitService.get().executeWithWriteLock(repository, () -> {
+            gitService.get().stageAllChanges(repository);
+            gitService.get().commitAndPush(repository, COMMIT_MESSAGE);
+            return null;
+        });
+        pushes.mark();
+    }
+
+    private static class PendingCommit {
+
+        private final int attempt;
+
+        private ScheduledFuture<?> future;
+
+        private PendingCommit(int attempt) {
+            this.attempt = attempt;
+        }
+    }
+}
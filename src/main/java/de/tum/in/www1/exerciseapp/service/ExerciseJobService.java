@@ -0,0 +1,390 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.ProgrammingExercise;
+import de.tum.in.www1.exerciseapp.domain.enumeration.ParticipationState;
+import de.tum.in.www1.exerciseapp.repository.ParticipationRepository;
+import de.tum.in.www1.exerciseapp.service.dto.ExerciseJobDTO;
+import de.tum.in.www1.exerciseapp.service.dto.ExerciseJobDTO.JobType;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Service for the cleanup and the archiving of all participations of a programming exercise.
+ * <p>
+ * Both operations run as background jobs. The calls to the CI server and to the version control server are executed in
+ * parallel, but each external system has its own bounded worker pool, so that neither of them is overloaded. The progress
+ * of a job can be queried while it is running and its result (a zip file with the student repositories) can be
+ * downloaded until it is deleted after the configured retention time.
+ */
+@Service
+public class ExerciseJobService {
+
+    private final Logger log = LoggerFactory.getLogger(ExerciseJobService.class);
+
+    @Value("${artemis.exercise-jobs.ci-parallelism:4}")
+    private int CI_PARALLELISM;
+
+    @Value("${artemis.exercise-jobs.vcs-parallelism:4}")
+    private int VCS_PARALLELISM;
+
+    @Value("${artemis.exercise-jobs.result-retention:3600}")
+    private long RESULT_RETENTION;
+
+    private final ParticipationRepository participationRepository;
+    private final ParticipationService participationService;
+    private final Optional<ContinuousIntegrationService> continuousIntegrationService;
+    private final Optional<VersionControlService> versionControlService;
+    private final Optional<GitService> gitService;
+
+    private final Map<String, ExerciseJobDTO> jobs = new ConcurrentHashMap<>();
+
+    // runs the jobs themselves, which only coordinate the work of the pools below
+    private ExecutorService jobExecutor;
+    private ExecutorService continuousIntegrationExecutor;
+    private ExecutorService versionControlExecutor;
+    private ScheduledExecutorService deletionExecutor;
+
+    public ExerciseJobService(ParticipationRepository participationRepository, ParticipationService participationService, Optional<ContinuousIntegrationService> continuousIntegrationService, Optional<VersionControlService> versionControlService, Optional<GitService> gitService) {
+        this.participationRepository = participationRepository;
+        this.participationService = participationService;
+        this.continuousIntegrationService = continuousIntegrationService;
+        this.versionControlService = versionControlService;
+        this.gitService = gitService;
+    }
+
+    @PostConstruct
+    public void init() {
+        jobExecutor = Executors.newFixedThreadPool(2, new CustomizableThreadFactory("exercise-job-"));
+        continuousIntegrationExecutor = Executors.newFixedThreadPool(CI_PARALLELISM, new CustomizableThreadFactory("exercise-job-ci-"));
+        versionControlExecutor = Executors.newFixedThreadPool(VCS_PARALLELISM, new CustomizableThreadFactory("exercise-job-vcs-"));
+        deletionExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("exercise-job-deletion-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        jobExecutor.shutdownNow();
+        continuousIntegrationExecutor.shutdownNow();
+        versionControlExecutor.shutdownNow();
+        deletionExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts a job which deletes the build plans (except BASE) and optionally the repositories of all participations
+     * of the exercise. If repositories are deleted, they are archived into a zip file first.
+     * If a job for the exercise is already running, this job is returned instead.
+     *
+     * @param exercise           the exercise to cleanup
+     * @param deleteRepositories whether the repositories should be archived and deleted
+     * @return the started job
+     */
+    public synchronized ExerciseJobDTO startCleanup(ProgrammingExercise exercise, boolean deleteRepositories) {
+        Optional<ExerciseJobDTO> runningJob = findRunningJob(exercise.getId());
+        if (runningJob.isPresent()) {
+            return runningJob.get();
+        }
+        ExerciseJobDTO job = new ExerciseJobDTO(exercise.getId(), JobType.CLEANUP, deleteRepositories);
+        jobs.put(job.getId(), job);
+        jobExecutor.submit(() -> runJob(job, () -> cleanup(job, exercise, deleteRepositories)));
+        return job;
+    }
+
+    /**
+     * Starts a job which archives the repositories of all participations of the exercise into a zip file. Nothing is deleted.
+     * If a job for the exercise is already running, this job is returned instead.
+     *
+     * @param exercise the exercise to archive
+     * @return the started job
+     */
+    public synchronized ExerciseJobDTO startArchive(ProgrammingExercise exercise) {
+        Optional<ExerciseJobDTO> runningJob = findRunningJob(exercise.getId());
+        if (runningJob.isPresent()) {
+            return runningJob.get();
+        }
+        ExerciseJobDTO job = new ExerciseJobDTO(exercise.getId(), JobType.ARCHIVE, false);
+        jobs.put(job.getId(), job);
+        jobExecutor.submit(() -> runJob(job, () -> archive(job, exercise)));
+        return job;
+    }
+
+    /**
+     * Get a job by id.
+     *
+     * @param jobId the id of the job
+     * @return the job, or an empty Optional if no such job exists or its result was already deleted
+     */
+    public Optional<ExerciseJobDTO> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private Optional<ExerciseJobDTO> findRunningJob(Long exerciseId) {
+        return jobs.values().stream().filter(job -> job.isRunning() && job.getExerciseId().equals(exerciseId)).findFirst();
+    }
+
+    private void runJob(ExerciseJobDTO job, Callable<Path> work) {
+        log.info("Starting {}", job);
+        try {
+            Path resultFile = work.call();
+            String message = job.getFailedParticipations().isEmpty() ? null : job.getFailedParticipations().size() + " participations could not be processed completely";
+            job.finish(resultFile, message);
+            log.info("Finished {}", job);
+        } catch (Exception e) {
+            log.error("Failed " + job, e);
+            job.fail(e.getMessage());
+        }
+        scheduleForDeletion(job);
+    }
+
+    /**
+     * Writes the repositories of all participations of the exercise into one zip archive, e.g. directly into an HTTP response.
+     * The repositories are fetched in parallel ahead of the writer and their files are read from the object database,
+     * so no working tree and no intermediate zip files are written to disk.
+     *
+     * @param exercise     the exercise whose repositories are archived
+     * @param outputStream the stream to write the archive to, it is not closed by this method
+     * @throws IOException if the archive could not be written
+     */
+    public void writeArchive(ProgrammingExercise exercise, OutputStream outputStream) throws IOException {
+        List<Participation> participations = participationRepository.findByExerciseId(exercise.getId()).stream()
+            .filter(participation -> participation.getRepositoryUrl() != null)
+            .collect(Collectors.toList());
+        log.info("Streaming the archive of {} repositories of Exercise {}", participations.size(), exercise.getId());
+        writeArchive(participations, outputStream, (participation, archived) -> {});
+    }
+
+    /**
+     * Deletes the build plans of all participations and, if requested, archives and deletes their repositories.
+     *
+     * @return the zip file with the repositories, or null if no repositories were deleted
+     */
+    private Path cleanup(ExerciseJobDTO job, ProgrammingExercise exercise, boolean deleteRepositories) throws IOException {
+        List<Participation> participations = participationRepository.findByExerciseId(exercise.getId());
+        job.setTotal(participations.size());
+
+        // 1. delete the build plan of each participation
+        Map<Participation, CompletableFuture<Boolean>> buildPlanDeletions = new LinkedHashMap<>();
+        for (Participation participation : participations) {
+            buildPlanDeletions.put(participation, CompletableFuture.supplyAsync(() -> deleteBuildPlan(participation), continuousIntegrationExecutor));
+        }
+
+        // 2. in the meantime, archive the repositories
+        List<Participation> participationsWithRepository = participations.stream()
+            .filter(participation -> deleteRepositories && participation.getRepositoryUrl() != null)
+            .collect(Collectors.toList());
+        Set<Long> archivedParticipationIds = ConcurrentHashMap.newKeySet();
+        Path zipFilePath = null;
+        if (!participationsWithRepository.isEmpty()) {
+            log.info("Create zip file for all repositories");
+            zipFilePath = createResultFilePath(job, exercise);
+            try (OutputStream outputStream = Files.newOutputStream(zipFilePath)) {
+                writeArchive(participationsWithRepository, outputStream, (participation, archived) -> {
+                    if (archived) {
+                        archivedParticipationIds.add(participation.getId());
+                    }
+                });
+            }
+        } else if (deleteRepositories) {
+            log.info("No student repositories have been found.");
+        }
+
+        // 3. delete the repositories, but only those which were archived successfully
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        buildPlanDeletions.forEach((participation, buildPlanDeletion) -> {
+            CompletableFuture<Boolean> completion = buildPlanDeletion;
+            if (participationsWithRepository.contains(participation)) {
+                boolean archived = archivedParticipationIds.contains(participation.getId());
+                // the repository is deleted after the build plan, as both steps update the participation
+                completion = buildPlanDeletion.thenApplyAsync(buildPlanDeleted -> archived && deleteRepository(participation) && buildPlanDeleted, versionControlExecutor);
+            }
+            futures.add(completion.thenAccept(successful -> job.participationCompleted(participation.getId(), successful)));
+        });
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return zipFilePath;
+    }
+
+    /**
+     * Archives the repositories of all participations into one zip file.
+     *
+     * @return the zip file with the repositories, or null if no repository could be archived
+     */
+    private Path archive(ExerciseJobDTO job, ProgrammingExercise exercise) throws IOException {
+        List<Participation> participations = participationRepository.findByExerciseId(exercise.getId());
+        job.setTotal(participations.size());
+
+        List<Participation> participationsWithRepository = new ArrayList<>();
+        for (Participation participation : participations) {
+            if (participation.getRepositoryUrl() == null) {     //ignore participations without repository URL
+                job.participationCompleted(participation.getId(), true);
+            } else {
+                participationsWithRepository.add(participation);
+            }
+        }
+        if (participationsWithRepository.isEmpty()) {
+            log.info("No student repositories have been found. Ignoring the request to archive repositories of Exercise {}", exercise.getId());
+            return null;
+        }
+
+        log.info("Create zip file for all repositories");
+        Path zipFilePath = createResultFilePath(job, exercise);
+        AtomicInteger archivedRepositories = new AtomicInteger();
+        try (OutputStream outputStream = Files.newOutputStream(zipFilePath)) {
+            writeArchive(participationsWithRepository, outputStream, (participation, archived) -> {
+                if (archived) {
+                    archivedRepositories.incrementAndGet();
+                }
+                job.participationCompleted(participation.getId(), archived);
+            });
+        }
+        if (archivedRepositories.get() == 0) {
+            log.info("The zip file could not be created. Ignoring the request to archive repositories of Exercise {}", exercise.getId());
+            Files.deleteIfExists(zipFilePath);
+            return null;
+        }
+        return zipFilePath;
+    }
+
+    /**
+     * Writes the repositories of the given participations into one zip archive in a single pass. Up to twice as many
+     * repositories as the version control pool has threads are fetched ahead of the writer, which bounds the disk space
+     * used by the fetched repositories. Repositories which could not be fetched are listed in an extra file of the archive.
+     *
+     * @param participations the participations, all of them must have a repository
+     * @param outputStream   the stream to write the archive to, it is not closed by this method
+     * @param onArchived     called for each participation after its repository was written or could not be fetched
+     * @throws IOException if the archive could not be written, the remaining repositories are skipped in this case
+     */
+    private void writeArchive(List<Participation> participations, OutputStream outputStream, BiConsumer<Participation, Boolean> onArchived) throws IOException {
+        int prefetchLimit = 2 * VCS_PARALLELISM;
+        Iterator<Participation> remainingParticipations = participations.iterator();
+        Deque<Map.Entry<Participation, CompletableFuture<Path>>> fetchedRepositories = new ArrayDeque<>();
+        List<String> failedRepositories = new ArrayList<>();
+
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(new CloseShieldOutputStream(outputStream))) {
+            while (remainingParticipations.hasNext() || !fetchedRepositories.isEmpty()) {
+                while (remainingParticipations.hasNext() && fetchedRepositories.size() < prefetchLimit) {
+                    Participation participation = remainingParticipations.next();
+                    fetchedRepositories.add(new AbstractMap.SimpleEntry<>(participation,
+                        CompletableFuture.supplyAsync(() -> fetchRepository(participation), versionControlExecutor)));
+                }
+
+                Map.Entry<Participation, CompletableFuture<Path>> next = fetchedRepositories.poll();
+                Participation participation = next.getKey();
+                Path repositoryPath;
+                try {
+                    repositoryPath = next.getValue().join();
+                } catch (CompletionException ex) {
+                    log.error("Archiving the repository " + participation.getRepositoryUrl() + " did not work as expected", ex.getCause());
+                    failedRepositories.add(participation.getRepositoryUrl());
+                    onArchived.accept(participation, false);
+                    continue;
+                }
+                try {
+                    gitService.get().writeRepositoryToZip(repositoryPath, repositoryFolderName(participation), zipOutputStream);
+                } finally {
+                    gitService.get().deleteFetchedRepository(repositoryPath);
+                }
+                onArchived.accept(participation, true);
+            }
+
+            if (!failedRepositories.isEmpty()) {
+                zipOutputStream.putNextEntry(new ZipEntry("FAILED_REPOSITORIES.txt"));
+                zipOutputStream.write(String.join("\n", failedRepositories).getBytes(StandardCharsets.UTF_8));
+                zipOutputStream.closeEntry();
+            }
+        } finally {
+            // only left if writing the archive failed, e.g. because the client closed the connection
+            fetchedRepositories.forEach(fetchedRepository -> fetchedRepository.getValue().thenAccept(gitService.get()::deleteFetchedRepository));
+        }
+    }
+
+    private Path fetchRepository(Participation participation) {
+        try {
+            return gitService.get().fetchRepository(participation.getRepositoryUrlAsUrl());
+        } catch (Exception ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    private String repositoryFolderName(Participation participation) {
+        return Paths.get(gitService.get().folderNameForRepositoryUrl(participation.getRepositoryUrlAsUrl())).getFileName().toString();
+    }
+
+    /**
+     * Every job gets its own directory, so that the results of two jobs of the same exercise do not overwrite each other.
+     */
+    private Path createResultFilePath(ExerciseJobDTO job, ProgrammingExercise exercise) throws IOException {
+        Path jobDirectory = Files.createDirectories(Paths.get("zippedRepos", job.getId()));
+        return jobDirectory.resolve(exercise.getCourse().getTitle() + " " + exercise.getTitle() + " Student Repositories.zip");
+    }
+
+    private boolean deleteBuildPlan(Participation participation) {
+        if (participation.getBuildPlanId() == null) {     //ignore participations without build plan id
+            return true;
+        }
+        try {
+            continuousIntegrationService.get().deleteBuildPlan(participation.getBuildPlanId());
+        } catch (Exception ex) {
+            log.error("Deleting the build plan " + participation.getBuildPlanId() + " did not work as expected", ex);
+        }
+        participation.setInitializationState(ParticipationState.INACTIVE);
+        participation.setBuildPlanId(null);
+        participationService.save(participation);
+        return true;
+    }
+
+    private boolean deleteRepository(Participation participation) {
+        try {
+            //delete the locally cloned repo again
+            gitService.get().deleteLocalRepository(participation);
+            //finally delete the repository on the VC Server
+            versionControlService.get().deleteRepository(participation.getRepositoryUrlAsUrl());
+            participation.setRepositoryUrl(null);
+            participation.setInitializationState(ParticipationState.FINISHED);
+            participationService.save(participation);
+            return true;
+        } catch (Exception ex) {
+            log.error("Deleting the repository " + participation.getRepositoryUrl() + " did not work as expected", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the result of the job and forgets the job after the retention time.
+     */
+    private void scheduleForDeletion(ExerciseJobDTO job) {
+        deletionExecutor.schedule(() -> {
+            jobs.remove(job.getId());
+            Path resultFile = job.getResultFile();
+            job.discardResult();
+            if (resultFile != null) {
+                try {
+                    log.info("Delete file " + resultFile);
+                    Files.deleteIfExists(resultFile);
+                    Files.deleteIfExists(resultFile.getParent());
+                } catch (IOException e) {
+                    log.error("Deleting the file " + resultFile + " did not work", e);
+                }
+            }
+        }, RESULT_RETENTION, TimeUnit.SECONDS);
+    }
+}
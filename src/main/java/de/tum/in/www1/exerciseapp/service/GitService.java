@@ -1,28 +1,58 @@
 package de.tum.in.www1.exerciseapp.service;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import de.tum.in.www1.exerciseapp.domain.File;
 import de.tum.in.www1.exerciseapp.domain.Participation;
 import de.tum.in.www1.exerciseapp.domain.Repository;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.HiddenFileFilter;
+import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.PullResult;
 import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.BranchTrackingStatus;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -47,7 +77,89 @@ public class GitService {
     @Value("${artemis.git.email}")
     private String GIT_EMAIL;
 
-    private final HashMap<Path, Repository> cachedRepositories = new HashMap<>();
+    @Value("${artemis.git.clone-branch:}")
+    private String CLONE_BRANCH;
+
+    @Value("${artemis.git.remote-check-interval:30}")
+    private long REMOTE_CHECK_INTERVAL;
+
+    @Value("${artemis.repository-cache.max-size:200}")
+    private int REPOSITORY_CACHE_MAX_SIZE;
+
+    @Value("${artemis.repository-cache.max-idle-time:1800}")
+    private long REPOSITORY_CACHE_MAX_IDLE_TIME;
+
+    private final MetricRegistry metricRegistry;
+
+    // access ordered, so that the first entry is the least recently used one
+    private final LinkedHashMap<Path, CachedRepository> cachedRepositories = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Striped locks, so that the same repository is never cloned or opened concurrently
+    private final Object[] checkoutLocks = new Object[256];
+
+    // the last access of each local repository since the start of the server, including the repositories which are not cached anymore
+    private final Map<Path, Long> lastAccesses = new ConcurrentHashMap<>();
+
+    @Value("${artemis.repository-lock.timeout:10}")
+    private long REPOSITORY_LOCK_TIMEOUT;
+
+    // Striped read/write locks, so that the online editor never modifies a repository while it is read or pulled
+    private final ReadWriteLock[] repositoryLocks = new ReadWriteLock[256];
+
+    private Meter cacheHits;
+    private Meter cacheMisses;
+    private Meter cacheEvictions;
+    private Timer lockWaits;
+    private Timer checkoutClones;
+    private Timer fetchClones;
+    private Meter remoteChanges;
+    private Meter remoteUnchanged;
+    private Meter lockTimeouts;
+
+    /**
+     * An operation on a repository which is executed while holding the lock of the repository.
+     */
+    @FunctionalInterface
+    public interface RepositoryOperation<T> {
+        T execute() throws IOException, GitAPIException;
+    }
+
+    public GitService(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        for (int i = 0; i < checkoutLocks.length; i++) {
+            checkoutLocks[i] = new Object();
+        }
+        for (int i = 0; i < repositoryLocks.length; i++) {
+            // fair, so that a commit is not starved by the file requests of the online editor
+            repositoryLocks[i] = new ReentrantReadWriteLock(true);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        cacheHits = metricRegistry.meter(MetricRegistry.name(GitService.class, "repository-cache", "hits"));
+        cacheMisses = metricRegistry.meter(MetricRegistry.name(GitService.class, "repository-cache", "misses"));
+        cacheEvictions = metricRegistry.meter(MetricRegistry.name(GitService.class, "repository-cache", "evictions"));
+        metricRegistry.register(MetricRegistry.name(GitService.class, "repository-cache", "size"), (Gauge<Integer>) this::getCachedRepositoryCount);
+        lockWaits = metricRegistry.timer(MetricRegistry.name(GitService.class, "repository-lock", "waits"));
+        lockTimeouts = metricRegistry.meter(MetricRegistry.name(GitService.class, "repository-lock", "timeouts"));
+        // the time until the online editor can show the first file of a repository which is not available locally yet
+        String cloneMode = CLONE_BRANCH == null || CLONE_BRANCH.isEmpty() ? "all-branches" : "single-branch";
+        checkoutClones = metricRegistry.timer(MetricRegistry.name(GitService.class, "repository-clone", "checkout", cloneMode));
+        fetchClones = metricRegistry.timer(MetricRegistry.name(GitService.class, "repository-clone", "fetch", cloneMode));
+        remoteChanges = metricRegistry.meter(MetricRegistry.name(GitService.class, "remote-check", "changed"));
+        remoteUnchanged = metricRegistry.meter(MetricRegistry.name(GitService.class, "remote-check", "unchanged"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        List<CachedRepository> repositories;
+        synchronized (cachedRepositories) {
+            repositories = new ArrayList<>(cachedRepositories.values());
+            cachedRepositories.clear();
+        }
+        repositories.forEach(cachedRepository -> cachedRepository.repository.close());
+    }
 
     /**
      * Get the local repository for a given participation.
@@ -76,43 +188,189 @@ public class GitService {
      */
     public Repository getOrCheckoutRepository(URL repoUrl) throws IOException, GitAPIException {
         Path localPath = new java.io.File(REPO_CLONE_PATH + folderNameForRepositoryUrl(repoUrl)).toPath();
+        lastAccesses.put(localPath, System.currentTimeMillis());
 
         // check if Repository object already created and available in cachedRepositories
-        if (cachedRepositories.containsKey(localPath)) {
-            return cachedRepositories.get(localPath);
+        Repository cachedRepository = getCachedRepository(localPath);
+        if (cachedRepository != null) {
+            cacheHits.mark();
+            return cachedRepository;
         }
+        cacheMisses.mark();
+
+        synchronized (checkoutLocks[Math.floorMod(localPath.hashCode(), checkoutLocks.length)]) {
+            // another request might have opened the repository in the meantime
+            cachedRepository = getCachedRepository(localPath);
+            if (cachedRepository != null) {
+                return cachedRepository;
+            }
 
-        // Check if the repository is already checked out on the server
-        if (!Files.exists(localPath)) {
-            // Repository is not yet available on the server
-            // We need to check it out from the remote repository
-            log.info("Cloning from " + repoUrl + " to " + localPath);
-            Git.cloneRepository()
-                .setURI(repoUrl.toString())
-                .setCredentialsProvider(new UsernamePasswordCredentialsProvider(GIT_USER, GIT_PASSWORD))
-                .setDirectory(localPath.toFile())
-                .call();
+            // Check if the repository is already checked out on the server
+            boolean cloned = !Files.exists(localPath);
+            if (cloned) {
+                // Repository is not yet available on the server
+                // We need to check it out from the remote repository
+                log.info("Cloning from " + repoUrl + " to " + localPath);
+                try (Timer.Context ignored = checkoutClones.time()) {
+                    cloneCommand(repoUrl, localPath)
+                        .call()
+                        .close();
+                }
+            }
+            else {
+                log.info("Repository at " + localPath + " already exists");
+            }
+
+            // Open the repository from the filesystem
+            FileRepositoryBuilder builder = new FileRepositoryBuilder();
+            builder.setGitDir(new java.io.File(localPath + "/.git"))
+                .readEnvironment() // scan environment GIT_* variables
+                .findGitDir()
+                .setup();
+
+            // Create the JGit repository object
+            Repository repository = new Repository(builder);
+            repository.setLocalPath(localPath);
+            if (cloned) {
+                // the clone is up to date, no need to check the remote repository for changes right away
+                repository.setLastRemoteCheck(System.currentTimeMillis());
+            }
+
+            // Cache the JGit repository object for later use
+            // Avoids the expensive re-opening of local repositories
+            cacheRepository(localPath, repository);
+
+            return repository;
         }
-        else {
-            log.info("Repository at " + localPath + " already exists");
+    }
+
+    private Repository getCachedRepository(Path localPath) {
+        synchronized (cachedRepositories) {
+            CachedRepository cachedRepository = cachedRepositories.get(localPath);
+            if (cachedRepository == null) {
+                return null;
+            }
+            cachedRepository.lastAccess = System.currentTimeMillis();
+            return cachedRepository.repository;
         }
+    }
 
-        // Open the repository from the filesystem
-        FileRepositoryBuilder builder = new FileRepositoryBuilder();
-        builder.setGitDir(new java.io.File(localPath + "/.git"))
-            .readEnvironment() // scan environment GIT_* variables
-            .findGitDir()
-            .setup();
+    private void cacheRepository(Path localPath, Repository repository) {
+        List<Repository> evictedRepositories = new ArrayList<>();
+        synchronized (cachedRepositories) {
+            CachedRepository previous = cachedRepositories.put(localPath, new CachedRepository(repository));
+            if (previous != null) {
+                evictedRepositories.add(previous.repository);
+            }
+            Iterator<CachedRepository> iterator = cachedRepositories.values().iterator();
+            while (cachedRepositories.size() > REPOSITORY_CACHE_MAX_SIZE && iterator.hasNext()) {
+                CachedRepository eldest = iterator.next();
+                if (eldest.repository == repository) {
+                    break;
+                }
+                iterator.remove();
+                evictedRepositories.add(eldest.repository);
+            }
+        }
+        closeEvictedRepositories(evictedRepositories);
+    }
 
-        // Create the JGit repository object
-        Repository repository = new Repository(builder);
-        repository.setLocalPath(localPath);
+    /**
+     * Removes a repository from the cache and closes it.
+     */
+    private void uncacheRepository(Path localPath) {
+        CachedRepository cachedRepository;
+        synchronized (cachedRepositories) {
+            cachedRepository = cachedRepositories.remove(localPath);
+        }
+        if (cachedRepository != null) {
+            cachedRepository.repository.close();
+        }
+    }
 
-        // Cache the JGit repository object for later use
-        // Avoids the expensive re-opening of local repositories
-        cachedRepositories.put(localPath, repository);
+    /**
+     * Closes the repositories which have not been accessed within the configured idle time,
+     * so that their pack files do not stay open until the next restart.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleRepositories() {
+        long minimumLastAccess = System.currentTimeMillis() - REPOSITORY_CACHE_MAX_IDLE_TIME * 1000;
+        List<Repository> evictedRepositories = new ArrayList<>();
+        synchronized (cachedRepositories) {
+            Iterator<CachedRepository> iterator = cachedRepositories.values().iterator();
+            while (iterator.hasNext()) {
+                CachedRepository cachedRepository = iterator.next();
+                if (cachedRepository.lastAccess >= minimumLastAccess) {
+                    // the following entries have been accessed even more recently
+                    break;
+                }
+                iterator.remove();
+                evictedRepositories.add(cachedRepository.repository);
+            }
+        }
+        closeEvictedRepositories(evictedRepositories);
+    }
 
-        return repository;
+    private void closeEvictedRepositories(List<Repository> evictedRepositories) {
+        for (Repository repository : evictedRepositories) {
+            // requests which still use the repository can continue, JGit reopens the pack files if needed
+            repository.close();
+            cacheEvictions.mark();
+            log.debug("Evicted Repository at " + repository.getLocalPath() + " from the cache");
+        }
+    }
+
+    public int getCachedRepositoryCount() {
+        synchronized (cachedRepositories) {
+            return cachedRepositories.size();
+        }
+    }
+
+    /**
+     * Executes an operation which only reads the repository. Multiple read operations on the same repository can run concurrently.
+     *
+     * @param repo      Local Repository Object.
+     * @param operation the operation to execute
+     * @return the result of the operation
+     * @throws CannotAcquireLockException if the lock could not be acquired within the configured timeout
+     */
+    public <T> T executeWithReadLock(Repository repo, RepositoryOperation<T> operation) throws IOException, GitAPIException {
+        return executeLocked(repositoryLock(repo.getLocalPath()).readLock(), repo.getLocalPath(), operation);
+    }
+
+    /**
+     * Executes an operation which modifies the repository (e.g. its files, the index or the commits) exclusively.
+     *
+     * @param repo      Local Repository Object.
+     * @param operation the operation to execute
+     * @return the result of the operation
+     * @throws CannotAcquireLockException if the lock could not be acquired within the configured timeout
+     */
+    public <T> T executeWithWriteLock(Repository repo, RepositoryOperation<T> operation) throws IOException, GitAPIException {
+        return executeLocked(repositoryLock(repo.getLocalPath()).writeLock(), repo.getLocalPath(), operation);
+    }
+
+    private ReadWriteLock repositoryLock(Path localPath) {
+        return repositoryLocks[Math.floorMod(localPath.hashCode(), repositoryLocks.length)];
+    }
+
+    private <T> T executeLocked(Lock lock, Path localPath, RepositoryOperation<T> operation) throws IOException, GitAPIException {
+        boolean acquired;
+        try (Timer.Context ignored = lockWaits.time()) {
+            acquired = lock.tryLock(REPOSITORY_LOCK_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting for the lock of the repository at " + localPath, e);
+        }
+        if (!acquired) {
+            lockTimeouts.mark();
+            throw new CannotAcquireLockException("Timed out waiting for the lock of the repository at " + localPath);
+        }
+        try {
+            return operation.execute();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -126,6 +384,8 @@ public class GitService {
         Git git = new Git(repo);
         git.commit().setMessage(message).setAllowEmpty(true).setCommitter(GIT_NAME, GIT_EMAIL).call();
         git.push().setCredentialsProvider(new UsernamePasswordCredentialsProvider(GIT_USER, GIT_PASSWORD)).call();
+        // flush cache of files, the blob ids are taken from the new HEAD
+        repo.setFiles(null);
     }
 
     /**
@@ -153,30 +413,82 @@ public class GitService {
         Git git = new Git(repo);
         // flush cache of files
         repo.setFiles(null);
-        return git.pull().setCredentialsProvider(new UsernamePasswordCredentialsProvider(GIT_USER, GIT_PASSWORD)).call();
+        // pushes notified from now on are not necessarily included in this pull
+        repo.setRemoteChanged(false);
+        try {
+            return git.pull().setCredentialsProvider(new UsernamePasswordCredentialsProvider(GIT_USER, GIT_PASSWORD)).call();
+        } catch (GitAPIException | RuntimeException e) {
+            repo.setRemoteChanged(true);
+            throw e;
+        }
     }
 
     /**
-     * List all files in the repository
+     * Checks if the branch of the remote repository has moved since the last fetch, by comparing the remote ref with the
+     * local remote-tracking ref. The remote repository is contacted at most once per configured interval, unless a push
+     * to it was notified (see {@link #remoteRepositoryChanged(String, String)}).
      *
      * @param repo Local Repository Object.
-     * @return Collection of File objects
+     * @return true if the remote branch has moved and the repository should be pulled
+     * @throws IOException
+     * @throws GitAPIException
      */
-    public Collection<File> listFiles(Repository repo) {
-        // Check if list of files is already cached
-        if(repo.getFiles() == null) {
-            Iterator<java.io.File> itr = FileUtils.iterateFiles(repo.getLocalPath().toFile(), HiddenFileFilter.VISIBLE, HiddenFileFilter.VISIBLE);
-            Collection<File> files = new LinkedList<>();
-
-            while(itr.hasNext()) {
-                files.add(new File(itr.next(), repo));
-            }
+    public boolean hasRemoteChanged(Repository repo) throws IOException, GitAPIException {
+        if (repo.isRemoteChanged()) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - repo.getLastRemoteCheck() < REMOTE_CHECK_INTERVAL * 1000) {
+            return false;
+        }
+        repo.setLastRemoteCheck(now);
+
+        String branch = repo.getFullBranch();
+        ObjectId trackedId = repo.resolve(Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + repo.getBranch());
+        Collection<Ref> remoteRefs = new Git(repo).lsRemote()
+            .setCredentialsProvider(new UsernamePasswordCredentialsProvider(GIT_USER, GIT_PASSWORD))
+            .setHeads(true)
+            .call();
+        boolean changed = remoteRefs.stream()
+            .filter(ref -> ref.getName().equals(branch))
+            .anyMatch(ref -> !ref.getObjectId().equals(trackedId));
+        if (changed) {
+            remoteChanges.mark();
+            repo.setRemoteChanged(true);
+        } else {
+            remoteUnchanged.mark();
+        }
+        return changed;
+    }
 
-            // Cache the list of files
-            // Avoid expensive rescanning
-            repo.setFiles(files);
+    /**
+     * Marks the cached repository as changed on the remote, e.g. when the version control server notifies about a push,
+     * so that the next status check pulls it without waiting for the check interval.
+     *
+     * @param projectKey     the key of the project of the remote repository
+     * @param repositorySlug the slug of the remote repository
+     */
+    public void remoteRepositoryChanged(String projectKey, String repositorySlug) {
+        String folderName = ("/" + projectKey + "/" + repositorySlug).toLowerCase();
+        synchronized (cachedRepositories) {
+            cachedRepositories.forEach((localPath, cachedRepository) -> {
+                if (localPath.toString().toLowerCase().endsWith(folderName)) {
+                    cachedRepository.repository.setRemoteChanged(true);
+                    log.debug("Repository at " + localPath + " was changed on the remote");
+                }
+            });
         }
-        return repo.getFiles();
+    }
+
+    /**
+     * List all files in the repository
+     *
+     * @param repo Local Repository Object.
+     * @return Collection of File objects
+     * @throws IOException
+     */
+    public Collection<File> listFiles(Repository repo) throws IOException {
+        return getFileIndex(repo).values();
     }
 
 
@@ -186,18 +498,85 @@ public class GitService {
      * @param repo Local Repository Object.
      * @param filename String of zje filename (including path)
      * @return The File object
+     * @throws IOException
      */
-    public Optional<File> getFileByName(Repository repo, String filename) {
+    public Optional<File> getFileByName(Repository repo, String filename) throws IOException {
 
         // Makes sure the requested file is part of the scanned list of files.
         // Ensures that it is not possible to do bad things like filename="../../passwd"
 
-        for (File file : listFiles(repo)) {
-            if (file.toString().equals(filename)) {
-                return Optional.of(file);
+        return Optional.ofNullable(getFileIndex(repo).get(filename));
+    }
+
+
+    /**
+     * Get the id of the Git blob with the content of the file, e.g. to be used as ETag.
+     * For files which are unchanged since the last commit, the id is taken from the index of the repository.
+     * Otherwise it is calculated from the content on the first call and cached until the file is modified.
+     *
+     * @param file File of a repository, as returned by {@link #getFileByName(Repository, String)}.
+     * @return the blob id of the current content
+     * @throws IOException
+     */
+    public ObjectId getBlobId(File file) throws IOException {
+        ObjectId blobId = file.getBlobId();
+        if (blobId == null) {
+            try (InputStream inputStream = new FileInputStream(file); ObjectInserter.Formatter formatter = new ObjectInserter.Formatter()) {
+                blobId = formatter.idFor(Constants.OBJ_BLOB, file.length(), inputStream);
+            }
+            file.setBlobId(blobId);
+        }
+        return blobId;
+    }
+
+
+    /**
+     * Get the index of all (visible) files in the working tree of the repository, by path.
+     * The index is cached in the repository until it is invalidated by changing the files, a commit or a pull.
+     */
+    private Map<String, File> getFileIndex(Repository repo) throws IOException {
+        Map<String, File> files = repo.getFiles();
+        if (files == null) {
+            files = buildFileIndex(repo);
+            // Cache the index of files
+            // Avoid expensive rescanning
+            repo.setFiles(files);
+        }
+        return files;
+    }
+
+    /**
+     * Walks HEAD, the index and the working tree of the repository at once. The blob id of a file is only taken over
+     * from HEAD if the working tree file is unchanged, otherwise it is calculated lazily by {@link #getBlobId(File)}.
+     */
+    private Map<String, File> buildFileIndex(Repository repo) throws IOException {
+        Map<String, File> files = new LinkedHashMap<>();
+        try (RevWalk revWalk = new RevWalk(repo); TreeWalk treeWalk = new TreeWalk(repo)) {
+            ObjectId head = repo.resolve(Constants.HEAD);
+            int headTree = treeWalk.addTree(head != null ? revWalk.parseCommit(head).getTree() : new EmptyTreeIterator());
+            int index = treeWalk.addTree(new DirCacheIterator(repo.readDirCache()));
+            int workingTree = treeWalk.addTree(new FileTreeIterator(repo));
+            treeWalk.setRecursive(true);
+
+            while (treeWalk.next()) {
+                String path = treeWalk.getPathString();
+                FileTreeIterator workingTreeFile = treeWalk.getTree(workingTree, FileTreeIterator.class);
+                // skip deleted and hidden files (and files in hidden folders)
+                if (workingTreeFile == null || ("/" + path).contains("/.")) {
+                    continue;
+                }
+                File file = new File(new java.io.File(repo.getLocalPath().toFile(), path), repo);
+
+                DirCacheIterator indexFile = treeWalk.getTree(index, DirCacheIterator.class);
+                if (treeWalk.getTree(headTree, AbstractTreeIterator.class) != null && indexFile != null
+                    && treeWalk.idEqual(headTree, index)
+                    && !workingTreeFile.isModified(indexFile.getDirCacheEntry(), false, treeWalk.getObjectReader())) {
+                    file.setBlobId(treeWalk.getObjectId(headTree));
+                }
+                files.put(path, file);
             }
         }
-        return Optional.empty();
+        return files;
     }
 
 
@@ -223,10 +602,8 @@ public class GitService {
      */
     public void deleteLocalRepository(Repository repo) throws IOException {
         Path repoPath = repo.getLocalPath();
-        cachedRepositories.remove(repoPath);
-        FileUtils.deleteDirectory(repoPath.toFile());
+        deleteLocalRepository(repoPath);
         repo.setFiles(null);
-        log.debug("Deleted Repository at " + repoPath);
     }
 
 
@@ -238,33 +615,194 @@ public class GitService {
      */
     public void deleteLocalRepository(Participation participation) throws IOException {
         Path repoPath = new java.io.File(REPO_CLONE_PATH + folderNameForRepositoryUrl(participation.getRepositoryUrlAsUrl())).toPath();
-        cachedRepositories.remove(repoPath);
-        if (Files.exists(repoPath)) {
-            FileUtils.deleteDirectory(repoPath.toFile());
-            log.info("Deleted Repository at " + repoPath);
+        deleteLocalRepository(repoPath);
+    }
+
+    private void deleteLocalRepository(Path repoPath) throws IOException {
+        try {
+            executeLocked(repositoryLock(repoPath).writeLock(), repoPath, () -> {
+                uncacheRepository(repoPath);
+                lastAccesses.remove(repoPath);
+                if (Files.exists(repoPath)) {
+                    FileUtils.deleteDirectory(repoPath.toFile());
+                    log.info("Deleted Repository at " + repoPath);
+                }
+                return null;
+            });
+        } catch (GitAPIException e) {
+            // not thrown when deleting the folder
+            throw new IOException(e);
         }
     }
 
-    public Path zipRepository(Repository repo) throws IOException {
-        String zipRepoName = repo.getParticipation().getExercise().getCourse().getTitle() + "-" + repo.getParticipation().getExercise().getTitle() + "-" + repo.getParticipation().getStudent().getLogin() + ".zip";
-        Path repoPath = repo.getLocalPath();
-        Path zipFilePath = Paths.get(REPO_CLONE_PATH, "zippedRepos", zipRepoName);
-        Files.createDirectories(Paths.get(REPO_CLONE_PATH, "zippedRepos"));
-        try (ZipOutputStream zs = new ZipOutputStream(Files.newOutputStream(zipFilePath))) {
-            Files.walk(repoPath)
-                .filter(path -> !Files.isDirectory(path))
-                .forEach(path -> {
-                    ZipEntry zipEntry = new ZipEntry(repoPath.relativize(path).toString());
-                    try {
-                        zs.putNextEntry(zipEntry);
-                        Files.copy(path, zs);
-                        zs.closeEntry();
-                    } catch (Exception e) {
-                        log.error("Create zip file error", e);
+    /**
+     * Lists the local repositories (clones with a working tree) in the clone path.
+     * Repositories fetched with {@link #fetchRepository(URL)} are not included.
+     *
+     * @return the paths of the local repositories, as used by {@link #getOrCheckoutRepository(URL)}
+     * @throws IOException if the clone path could not be read
+     */
+    public List<Path> listLocalRepositories() throws IOException {
+        Path clonePath = Paths.get(REPO_CLONE_PATH);
+        if (!Files.isDirectory(clonePath)) {
+            return Collections.emptyList();
+        }
+        // the repositories are stored in <project key>/<repository slug>
+        try (Stream<Path> paths = Files.walk(clonePath, 3)) {
+            return paths
+                .filter(path -> path.getFileName().toString().equals(Constants.DOT_GIT) && Files.isDirectory(path))
+                .map(gitDir -> new java.io.File(REPO_CLONE_PATH + clonePath.relativize(gitDir.getParent())).toPath())
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Get the time of the last access of a local repository. For repositories which have not been accessed since the start
+     * of the server, the last modification of the index of the repository is used instead.
+     *
+     * @param localPath Path of the local repository.
+     * @return the time of the last access in milliseconds
+     * @throws IOException if the repository could not be read
+     */
+    public long getLastAccess(Path localPath) throws IOException {
+        Long lastAccess = lastAccesses.get(localPath);
+        if (lastAccess != null) {
+            return lastAccess;
+        }
+        Path index = localPath.resolve(Constants.DOT_GIT).resolve("index");
+        return Files.getLastModifiedTime(Files.exists(index) ? index : localPath).toMillis();
+    }
+
+    /**
+     * Deletes a local repository folder to free disk space, but only if the repository has not been accessed since the
+     * given time, contains no uncommitted changes and no commits which have not been pushed yet. The repository is
+     * removed from the cache and will be cloned again when it is accessed the next time.
+     *
+     * @param localPath         Path of the local repository.
+     * @param minimumLastAccess the repository is kept if it was accessed at or after this time (in milliseconds)
+     * @return true if the repository was deleted
+     * @throws IOException
+     * @throws CannotAcquireLockException if the repository is in use
+     */
+    public boolean deleteLocalRepositoryIfUnused(Path localPath, long minimumLastAccess) throws IOException {
+        try {
+            return executeLocked(repositoryLock(localPath).writeLock(), localPath, () -> {
+                if (!Files.exists(localPath) || getLastAccess(localPath) >= minimumLastAccess) {
+                    return false;
+                }
+                try (Git git = Git.open(localPath.toFile())) {
+                    if (!git.status().call().isClean() || hasUnpushedCommits(git.getRepository())) {
+                        return false;
                     }
-                });
+                }
+                uncacheRepository(localPath);
+                lastAccesses.remove(localPath);
+                FileUtils.deleteDirectory(localPath.toFile());
+                log.info("Deleted unused Repository at " + localPath);
+                return true;
+            });
+        } catch (GitAPIException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private boolean hasUnpushedCommits(org.eclipse.jgit.lib.Repository repository) throws IOException {
+        if (repository.resolve(Constants.HEAD) == null) {
+            // the repository does not contain any commits yet
+            return false;
         }
-        return zipFilePath;
+        BranchTrackingStatus trackingStatus = BranchTrackingStatus.of(repository, repository.getBranch());
+        // without a remote-tracking branch, it cannot be determined if the commits have been pushed
+        return trackingStatus == null || trackingStatus.getAheadCount() > 0;
+    }
+
+    /**
+     * Fetches the object database of a remote repository into a new temporary folder, without checking out a working tree.
+     * The folder should be deleted with {@link #deleteFetchedRepository(Path)} when it is not needed anymore.
+     *
+     * @param repoUrl The remote repository.
+     * @return the path of the fetched (bare) repository
+     * @throws IOException
+     * @throws GitAPIException
+     */
+    public Path fetchRepository(URL repoUrl) throws IOException, GitAPIException {
+        Path fetchPath = Files.createDirectories(Paths.get(REPO_CLONE_PATH, "fetched-repos"));
+        Path localPath = Files.createTempDirectory(fetchPath, "repo-");
+        log.debug("Fetching " + repoUrl + " to " + localPath);
+        try (Timer.Context ignored = fetchClones.time()) {
+            cloneCommand(repoUrl, localPath)
+                .setBare(true)
+                .call()
+                .close();
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            deleteFetchedRepository(localPath);
+            throw e;
+        }
+        return localPath;
+    }
+
+    /**
+     * Writes all files of the HEAD commit of a fetched repository into a zip archive. The file contents are read
+     * directly from the object database, so the repository does not need a working tree.
+     *
+     * @param repoPath        Path of the repository returned by {@link #fetchRepository(URL)}.
+     * @param entryPrefix     Folder inside the archive in which the files are stored.
+     * @param zipOutputStream The archive to write to.
+     * @throws IOException if the repository could not be read or the archive could not be written
+     */
+    public void writeRepositoryToZip(Path repoPath, String entryPrefix, ZipOutputStream zipOutputStream) throws IOException {
+        try (org.eclipse.jgit.lib.Repository repository = new FileRepositoryBuilder().setGitDir(repoPath.toFile()).setBare().build();
+             RevWalk revWalk = new RevWalk(repository);
+             TreeWalk treeWalk = new TreeWalk(repository)) {
+            ObjectId head = repository.resolve(Constants.HEAD);
+            if (head == null) {
+                // the repository does not contain any commits yet
+                return;
+            }
+            RevCommit commit = revWalk.parseCommit(head);
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                // skip submodules, they are not part of the object database
+                if (treeWalk.getFileMode(0).getObjectType() != Constants.OBJ_BLOB) {
+                    continue;
+                }
+                ZipEntry zipEntry = new ZipEntry(entryPrefix + "/" + treeWalk.getPathString());
+                zipEntry.setTime(commit.getCommitTime() * 1000L);
+                zipOutputStream.putNextEntry(zipEntry);
+                repository.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).copyTo(zipOutputStream);
+                zipOutputStream.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Creates the command to clone the given remote repository. If a clone branch is configured, only this branch
+     * (and its history) is cloned instead of all branches of the repository.
+     */
+    private CloneCommand cloneCommand(URL repoUrl, Path localPath) {
+        CloneCommand cloneCommand = Git.cloneRepository()
+            .setURI(repoUrl.toString())
+            .setCredentialsProvider(new UsernamePasswordCredentialsProvider(GIT_USER, GIT_PASSWORD))
+            .setDirectory(localPath.toFile());
+        if (CLONE_BRANCH != null && !CLONE_BRANCH.isEmpty()) {
+            String branch = Constants.R_HEADS + CLONE_BRANCH;
+            cloneCommand
+                .setCloneAllBranches(false)
+                .setBranchesToClone(Collections.singleton(branch))
+                .setBranch(branch);
+        }
+        return cloneCommand;
+    }
+
+    /**
+     * Deletes a repository fetched with {@link #fetchRepository(URL)}.
+     *
+     * @param repoPath Path of the fetched repository.
+     */
+    public void deleteFetchedRepository(Path repoPath) {
+        FileUtils.deleteQuietly(repoPath.toFile());
+        log.debug("Deleted fetched Repository at " + repoPath);
     }
 
     /**
@@ -281,4 +819,14 @@ public class GitService {
         path = path.replaceAll("^scm/", "");
         return path;
     }
+
+    private static class CachedRepository {
+
+        private final Repository repository;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private CachedRepository(Repository repository) {
+            this.repository = repository;
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import de.tum.in.www1.exerciseapp.web.rest.dto.LtiLaunchRequestDTO;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stores the LTI launch requests in memory of this server. The store is bounded: if it is full, the oldest launch
+ * request is evicted, and launch requests expire after the configured time to live.
+ */
+@Service
+public class InMemoryLtiLaunchRequestStore implements LtiLaunchRequestStore {
+
+    private final Logger log = LoggerFactory.getLogger(InMemoryLtiLaunchRequestStore.class);
+
+    @Value("${artemis.lti.launch-request-store.max-entries:10000}")
+    private int MAX_ENTRIES;
+
+    // in seconds
+    @Value("${artemis.lti.launch-request-store.time-to-live:3600}")
+    private long TIME_TO_LIVE;
+
+    private final MetricRegistry metricRegistry;
+
+    // in insertion order, so the oldest launch request comes first
+    private final LinkedHashMap<String, PendingLaunchRequest> launchRequests = new LinkedHashMap<>();
+
+    private Meter evictions;
+    private Meter expirations;
+
+    public InMemoryLtiLaunchRequestStore(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        evictions = metricRegistry.meter(MetricRegistry.name(LtiLaunchRequestStore.class, "evictions"));
+        expirations = metricRegistry.meter(MetricRegistry.name(LtiLaunchRequestStore.class, "expirations"));
+        metricRegistry.register(MetricRegistry.name(LtiLaunchRequestStore.class, "size"), (Gauge<Integer>) () -> {
+            synchronized (launchRequests) {
+                return launchRequests.size();
+            }
+        });
+    }
+
+    @Override
+    public void put(String sessionId, LtiLaunchRequestDTO launchRequest, Long exerciseId) {
+        long expiration = System.currentTimeMillis() + TIME_TO_LIVE * 1000;
+        synchronized (launchRequests) {
+            // remove first, so that the new launch request is moved to the end
+            launchRequests.remove(sessionId);
+            launchRequests.put(sessionId, new PendingLaunchRequest(launchRequest, exerciseId, expiration));
+            Iterator<PendingLaunchRequest> oldest = launchRequests.values().iterator();
+            while (launchRequests.size() > MAX_ENTRIES && oldest.hasNext()) {
+                oldest.next();
+                oldest.remove();
+                evictions.mark();
+            }
+        }
+    }
+
+    @Override
+    public Optional<Pair<LtiLaunchRequestDTO, Long>> remove(String sessionId) {
+        PendingLaunchRequest pendingLaunchRequest;
+        synchronized (launchRequests) {
+            pendingLaunchRequest = launchRequests.remove(sessionId);
+        }
+        if (pendingLaunchRequest == null) {
+            return Optional.empty();
+        }
+        if (pendingLaunchRequest.expiration < System.currentTimeMillis()) {
+            expirations.mark();
+            return Optional.empty();
+        }
+        return Optional.of(Pair.of(pendingLaunchRequest.launchRequest, pendingLaunchRequest.exerciseId));
+    }
+
+    /**
+     * Removes the expired launch requests of sessions in which the user never signed in.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void removeExpiredLaunchRequests() {
+        long now = System.currentTimeMillis();
+        int expired = 0;
+        synchronized (launchRequests) {
+            Iterator<Map.Entry<String, PendingLaunchRequest>> entries = launchRequests.entrySet().iterator();
+            while (entries.hasNext()) {
+                if (entries.next().getValue().expiration < now) {
+                    entries.remove();
+                    expired++;
+                }
+            }
+        }
+        if (expired > 0) {
+            log.debug("Removed {} expired LTI launch requests", expired);
+            expirations.mark(expired);
+        }
+    }
+
+    private static class PendingLaunchRequest {
+
+        private final LtiLaunchRequestDTO launchRequest;
+        private final Long exerciseId;
+        private final long expiration;
+
+        private PendingLaunchRequest(LtiLaunchRequestDTO launchRequest, Long exerciseId, long expiration) {
+            this.launchRequest = launchRequest;
+            this.exerciseId = exerciseId;
+            this.expiration = expiration;
+        }
+    }
+}
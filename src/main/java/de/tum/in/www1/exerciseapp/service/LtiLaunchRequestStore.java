@@ -0,0 +1,33 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import de.tum.in.www1.exerciseapp.web.rest.dto.LtiLaunchRequestDTO;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Optional;
+
+/**
+ * Stores the LTI launch requests of users who could not be signed in automatically, until they sign in manually.
+ * <p>
+ * The launch requests are stored by session ID together with the ID of the launched exercise. Implementations must
+ * be thread-safe and should expire entries of sessions in which the user never signs in. A store which is shared
+ * between several servers can be provided by another implementation of this interface.
+ */
+public interface LtiLaunchRequestStore {
+
+    /**
+     * Remember the launch request for the session, replacing a previous launch request of the session.
+     *
+     * @param sessionId     ID of the session of the user
+     * @param launchRequest the launch request, sent by the LTI consumer
+     * @param exerciseId    ID of the launched exercise
+     */
+    void put(String sessionId, LtiLaunchRequestDTO launchRequest, Long exerciseId);
+
+    /**
+     * Remove and return the launch request of the session, if it has not expired.
+     *
+     * @param sessionId ID of the session of the user
+     * @return the launch request and the ID of the launched exercise
+     */
+    Optional<Pair<LtiLaunchRequestDTO, Long>> remove(String sessionId);
+}
@@ -0,0 +1,273 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import de.tum.in.www1.exerciseapp.domain.LtiOutcomeUpdate;
+import de.tum.in.www1.exerciseapp.domain.LtiOutcomeUrl;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.Result;
+import de.tum.in.www1.exerciseapp.domain.util.PatchedIMSPOXRequest;
+import de.tum.in.www1.exerciseapp.repository.LtiOutcomeUpdateRepository;
+import de.tum.in.www1.exerciseapp.repository.ResultRepository;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.BasicResponseHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Service for sending the scores of the participations to the LTI consumers (e.g. edX).
+ * <p>
+ * New results are stored as pending updates in the database, so that they are not lost if the LTI consumer is not
+ * available or the server is restarted. Multiple results for the same user and exercise are coalesced into one update,
+ * which sends the score of the latest result. The updates are sent in the background with a limited number of concurrent
+ * requests per LTI consumer host, and failed updates are retried with an exponential backoff.
+ * <p>
+ * A result is only queued after the transaction which saved it has been committed, so that the update cannot be sent
+ * before the new score is visible.
+ */
+@Service
+public class LtiOutcomeService {
+
+    private final Logger log = LoggerFactory.getLogger(LtiOutcomeService.class);
+
+    @Value("${artemis.lti.oauth-key}")
+    private String OAUTH_KEY;
+
+    @Value("${artemis.lti.oauth-secret}")
+    private String OAUTH_SECRET;
+
+    @Value("${artemis.lti.outcome-delivery.pool-size:4}")
+    private int POOL_SIZE;
+
+    @Value("${artemis.lti.outcome-delivery.max-requests-per-host:2}")
+    private int MAX_REQUESTS_PER_HOST;
+
+    // in seconds, doubled for every failed attempt
+    @Value("${artemis.lti.outcome-delivery.retry-delay:30}")
+    private long RETRY_DELAY;
+
+    @Value("${artemis.lti.outcome-delivery.max-retry-delay:3600}")
+    private long MAX_RETRY_DELAY;
+
+    @Value("${artemis.lti.outcome-delivery.max-attempts:12}")
+    private int MAX_ATTEMPTS;
+
+    private static final int BATCH_SIZE = 100;
+
+    private final LtiOutcomeUpdateRepository ltiOutcomeUpdateRepository;
+    private final ResultRepository resultRepository;
+    private final HttpClient httpClient;
+    private final MetricRegistry metricRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    private ExecutorService deliveryExecutor;
+
+    // the updates which are currently sent, so that they are not picked up again by the next run
+    private final Set<Long> updatesInFlight = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    // results of the last run, reported as metrics
+    private volatile long queueSize;
+    private volatile long queueLag;
+
+    private Timer outcomeRequestTimer;
+    private Meter deliveries;
+    private Meter failures;
+    private Meter abandoned;
+
+    public LtiOutcomeService(LtiOutcomeUpdateRepository ltiOutcomeUpdateRepository, ResultRepository resultRepository, HttpClient httpClient, MetricRegistry metricRegistry,
+                             PlatformTransactionManager transactionManager) {
+        this.ltiOutcomeUpdateRepository = ltiOutcomeUpdateRepository;
+        this.resultRepository = resultRepository;
+        this.httpClient = httpClient;
+        this.metricRegistry = metricRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void init() {
+        deliveryExecutor = Executors.newFixedThreadPool(POOL_SIZE, new CustomizableThreadFactory("lti-outcome-"));
+        outcomeRequestTimer = metricRegistry.timer(MetricRegistry.name("http.client", "lti", "requests"));
+        deliveries = metricRegistry.meter(MetricRegistry.name(LtiOutcomeService.class, "deliveries"));
+        failures = metricRegistry.meter(MetricRegistry.name(LtiOutcomeService.class, "failures"));
+        abandoned = metricRegistry.meter(MetricRegistry.name(LtiOutcomeService.class, "abandoned"));
+        metricRegistry.register(MetricRegistry.name(LtiOutcomeService.class, "queue", "size"), (Gauge<Long>) () -> queueSize);
+        // the time in milliseconds since the oldest score which has not been sent yet
+        metricRegistry.register(MetricRegistry.name(LtiOutcomeService.class, "queue", "lag"), (Gauge<Long>) () -> queueLag);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // pending updates stay in the database and are sent after the restart
+        deliveryExecutor.shutdownNow();
+    }
+
+    /**
+     * Queues the score of the participation to be sent to the LTI outcome URL. If an update for the outcome URL is
+     * pending already, the new result is coalesced into it.
+     * If called within a transaction, the score is queued after it has been committed.
+     *
+     * @param ltiOutcomeUrl the LTI outcome URL of the user and exercise
+     * @param participation the participation with a new result
+     */
+    public void enqueue(LtiOutcomeUrl ltiOutcomeUrl, Participation participation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        enqueueNow(ltiOutcomeUrl, participation);
+                    } catch (Exception e) {
+                        // the result is committed already
+                        log.error("Queuing the LTI outcome for participation " + participation.getId() + " failed", e);
+                    }
+                }
+            });
+        } else {
+            enqueueNow(ltiOutcomeUrl, participation);
+        }
+    }
+
+    private void enqueueNow(LtiOutcomeUrl ltiOutcomeUrl, Participation participation) {
+        try {
+            transactionTemplate.execute(status -> {
+                if (!coalesce(ltiOutcomeUrl, participation)) {
+                    ZonedDateTime now = ZonedDateTime.now();
+                    LtiOutcomeUpdate update = new LtiOutcomeUpdate();
+                    update.setOutcomeUrl(ltiOutcomeUrl);
+                    update.setParticipation(participation);
+                    update.setRevision(0);
+                    update.setAttempts(0);
+                    update.setCreatedDate(now);
+                    update.setNextAttemptDate(now);
+                    ltiOutcomeUpdateRepository.saveAndFlush(update);
+                }
+                return null;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent result created the pending update of the outcome URL in the meantime
+            transactionTemplate.execute(status -> coalesce(ltiOutcomeUrl, participation));
+        }
+    }
+
+    private boolean coalesce(LtiOutcomeUrl ltiOutcomeUrl, Participation participation) {
+        if (ltiOutcomeUpdateRepository.coalesce(ltiOutcomeUrl.getId(), participation, ZonedDateTime.now()) > 0) {
+            log.debug("Coalesced the LTI outcome for participation {} with a pending update", participation.getId());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sends the pending updates which are due. Updates to hosts which already receive the maximum number of concurrent
+     * requests are left for the next run.
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void sendPendingUpdates() {
+        List<LtiOutcomeUpdate> dueUpdates = ltiOutcomeUpdateRepository.findDue(ZonedDateTime.now(), new PageRequest(0, BATCH_SIZE));
+        for (LtiOutcomeUpdate update : dueUpdates) {
+            if (updatesInFlight.contains(update.getId())) {
+                continue;
+            }
+            Semaphore permits = hostPermits.computeIfAbsent(getHost(update.getOutcomeUrl()), host -> new Semaphore(MAX_REQUESTS_PER_HOST));
+            if (!permits.tryAcquire()) {
+                continue;
+            }
+            updatesInFlight.add(update.getId());
+            try {
+                deliveryExecutor.execute(() -> {
+                    try {
+                        send(update);
+                    } finally {
+                        updatesInFlight.remove(update.getId());
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the server is shutting down
+                updatesInFlight.remove(update.getId());
+                permits.release();
+            }
+        }
+
+        queueSize = ltiOutcomeUpdateRepository.count();
+        ZonedDateTime oldestCreatedDate = ltiOutcomeUpdateRepository.findOldestCreatedDate();
+        queueLag = oldestCreatedDate == null ? 0 : Duration.between(oldestCreatedDate, ZonedDateTime.now()).toMillis();
+    }
+
+    private void send(LtiOutcomeUpdate update) {
+        LtiOutcomeUrl ltiOutcomeUrl = update.getOutcomeUrl();
+        String score = getScore(update.getParticipation());
+        log.debug("Reporting to LTI consumer: Score {} for Participation {}", score, update.getParticipation().getId());
+        try {
+            // Using PatchedIMSPOXRequest until they fixed the problem: https://github.com/IMSGlobal/basiclti-util-java/issues/27
+            HttpPost request = PatchedIMSPOXRequest.buildReplaceResult(ltiOutcomeUrl.getUrl(), OAUTH_KEY, OAUTH_SECRET, ltiOutcomeUrl.getSourcedId(), score, null, false);
+            HttpResponse response;
+            try (Timer.Context ignored = outcomeRequestTimer.time()) {
+                response = httpClient.execute(request);
+            }
+            // throws an HttpResponseException for error status codes
+            String responseString = new BasicResponseHandler().handleResponse(response);
+            log.info("Response from LTI consumer: {}", responseString);
+            ltiOutcomeUpdateRepository.deleteRevision(update.getId(), update.getRevision());
+            deliveries.mark();
+        } catch (Exception e) {
+            int attempts = update.getAttempts() + 1;
+            if (attempts >= MAX_ATTEMPTS) {
+                log.error("Reporting to LTI consumer failed " + attempts + " times, giving up on " + ltiOutcomeUrl.getUrl(), e);
+                ltiOutcomeUpdateRepository.deleteRevision(update.getId(), update.getRevision());
+                abandoned.mark();
+                return;
+            }
+            long delay = Math.min(RETRY_DELAY << Math.min(attempts - 1, 30), MAX_RETRY_DELAY);
+            log.warn("Reporting to LTI consumer {} failed: {}. Retrying in {}s...", ltiOutcomeUrl.getUrl(), e.getMessage(), delay);
+            ltiOutcomeUpdateRepository.scheduleRetry(update.getId(), update.getRevision(), attempts, ZonedDateTime.now().plusSeconds(delay));
+            failures.mark();
+        }
+    }
+
+    /**
+     * Get the score of the latest result of the participation, formatted as String between "0.00" and "1.00" as LTI requires.
+     */
+    private String getScore(Participation participation) {
+        Optional<Result> latestResult = resultRepository.findFirstByParticipationIdOrderByCompletionDateDesc(participation.getId());
+        if (latestResult.isPresent() && latestResult.get().getScore() != null) {
+            return String.format(Locale.ROOT, "%.2f", latestResult.get().getScore().floatValue() / 100);
+        }
+        return "0.00";
+    }
+
+    private String getHost(LtiOutcomeUrl ltiOutcomeUrl) {
+        try {
+            String host = URI.create(ltiOutcomeUrl.getUrl()).getHost();
+            return host != null ? host : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
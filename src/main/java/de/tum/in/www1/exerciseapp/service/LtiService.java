@@ -1,11 +1,10 @@
 package de.tum.in.www1.exerciseapp.service;
 
 import de.tum.in.www1.exerciseapp.domain.*;
-import de.tum.in.www1.exerciseapp.domain.util.PatchedIMSPOXRequest;
 import de.tum.in.www1.exerciseapp.exception.ArtemisAuthenticationException;
+import de.tum.in.www1.exerciseapp.repository.ExerciseRepository;
 import de.tum.in.www1.exerciseapp.repository.LtiOutcomeUrlRepository;
 import de.tum.in.www1.exerciseapp.repository.LtiUserIdRepository;
-import de.tum.in.www1.exerciseapp.repository.ResultRepository;
 import de.tum.in.www1.exerciseapp.repository.UserRepository;
 import de.tum.in.www1.exerciseapp.security.AuthoritiesConstants;
 import de.tum.in.www1.exerciseapp.security.ArtemisAuthenticationProvider;
@@ -13,12 +12,6 @@ import de.tum.in.www1.exerciseapp.security.SecurityUtils;
 import de.tum.in.www1.exerciseapp.service.util.RandomUtil;
 import de.tum.in.www1.exerciseapp.web.rest.dto.LtiLaunchRequestDTO;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.HttpResponseException;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.BasicResponseHandler;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.imsglobal.lti.launch.LtiOauthVerifier;
 import org.imsglobal.lti.launch.LtiVerificationException;
 import org.imsglobal.lti.launch.LtiVerificationResult;
@@ -50,9 +43,6 @@ public class LtiService {
 
     private final Logger log = LoggerFactory.getLogger(LtiService.class);
 
-    @Value("${artemis.lti.oauth-key}")
-    private String OAUTH_KEY;
-
     @Value("${artemis.lti.oauth-secret}")
     private String OAUTH_SECRET;
 
@@ -65,23 +55,25 @@ public class LtiService {
     private final UserService userService;
     private final UserRepository userRepository;
     private final LtiOutcomeUrlRepository ltiOutcomeUrlRepository;
-    private final ResultRepository resultRepository;
+    private final LtiOutcomeService ltiOutcomeService;
     private final PasswordEncoder passwordEncoder;
     private final Optional<ArtemisAuthenticationProvider> artemisAuthenticationProvider;
     private final LtiUserIdRepository ltiUserIdRepository;
     private final HttpServletResponse response;
+    private final ExerciseRepository exerciseRepository;
+    private final LtiLaunchRequestStore ltiLaunchRequestStore;
 
-    public final HashMap<String, Pair<LtiLaunchRequestDTO, Exercise>> launchRequestForSession = new HashMap<>();
-
-    public LtiService(UserService userService, UserRepository userRepository, LtiOutcomeUrlRepository ltiOutcomeUrlRepository, ResultRepository resultRepository, PasswordEncoder passwordEncoder, Optional<ArtemisAuthenticationProvider> artemisAuthenticationProvider, LtiUserIdRepository ltiUserIdRepository, HttpServletResponse response) {
+    public LtiService(UserService userService, UserRepository userRepository, LtiOutcomeUrlRepository ltiOutcomeUrlRepository, LtiOutcomeService ltiOutcomeService, PasswordEncoder passwordEncoder, Optional<ArtemisAuthenticationProvider> artemisAuthenticationProvider, LtiUserIdRepository ltiUserIdRepository, HttpServletResponse response, ExerciseRepository exerciseRepository, LtiLaunchRequestStore ltiLaunchRequestStore) {
         this.userService = userService;
         this.userRepository = userRepository;
         this.ltiOutcomeUrlRepository = ltiOutcomeUrlRepository;
-        this.resultRepository = resultRepository;
+        this.ltiOutcomeService = ltiOutcomeService;
         this.passwordEncoder = passwordEncoder;
         this.artemisAuthenticationProvider = artemisAuthenticationProvider;
         this.ltiUserIdRepository = ltiUserIdRepository;
         this.response = response;
+        this.exerciseRepository = exerciseRepository;
+        this.ltiLaunchRequestStore = ltiLaunchRequestStore;
     }
 
     /**
@@ -140,7 +132,7 @@ public class LtiService {
             // Found it. Remember the launch request for later login.
             if(sessionId != null) {
                 log.debug("Remembering launchRequest for session ID {}", sessionId);
-                launchRequestForSession.put(sessionId, Pair.of(launchRequest, exercise));
+                ltiLaunchRequestStore.put(sessionId, launchRequest, exercise.getId());
             }
 
         }
@@ -362,7 +354,7 @@ public class LtiService {
 
     /**
      * This method is pinged on new build results.
-     * It sends an message to the LTI consumer with the new score.
+     * It queues a message to the LTI consumer with the new score, which is sent by the LtiOutcomeService.
      *
      * @param participation
      */
@@ -372,36 +364,11 @@ public class LtiService {
         Optional<LtiOutcomeUrl> ltiOutcomeUrl = ltiOutcomeUrlRepository.findByUserAndExercise(participation.getStudent(), participation.getExercise());
 
         ltiOutcomeUrl.ifPresent(ltiOutcomeUrl1 -> {
-
-            String score = "0.00";
-
-            // Get the latest result
-            Optional<Result> latestResult = resultRepository.findFirstByParticipationIdOrderByCompletionDateDesc(participation.getId());
-
-            if (latestResult.isPresent() && latestResult.get().getScore() != null) {
-                // LTI scores needs to be formatted as String between "0.00" and "1.00"
-                score = String.format(Locale.ROOT, "%.2f", latestResult.get().getScore().floatValue() / 100);
-            }
-
-            log.debug("Reporting to LTI consumer: Score {} for Participation {}", score, participation);
-
-
             try {
-                // Using PatchedIMSPOXRequest until they fixed the problem: https://github.com/IMSGlobal/basiclti-util-java/issues/27
-                HttpPost request = PatchedIMSPOXRequest.buildReplaceResult(ltiOutcomeUrl1.getUrl(), OAUTH_KEY, OAUTH_SECRET, ltiOutcomeUrl1.getSourcedId(), score, null, false);
-                HttpClient client = HttpClientBuilder.create().build();
-                HttpResponse response = client.execute(request);
-                String responseString = new BasicResponseHandler().handleResponse(response);
-                log.info("Response from LTI consumer: {}", responseString);
-                if (response.getStatusLine().getStatusCode() >= 400) {
-                    throw new HttpResponseException(response.getStatusLine().getStatusCode(),
-                        response.getStatusLine().getReasonPhrase());
-                }
+                ltiOutcomeService.enqueue(ltiOutcomeUrl1, participation);
             } catch (Exception e) {
-                log.error("Reporting to LTI consumer failed: {}", e);
+                log.error("Queuing the LTI outcome for participation " + participation.getId() + " failed", e);
             }
-
-
         });
 
     }
@@ -413,18 +380,21 @@ public class LtiService {
      * @param sessionId
      */
     public void handleLaunchRequestForSession(String sessionId) {
-        if(launchRequestForSession.containsKey(sessionId)) {
+        // the launch request is removed, so it is only handled once
+        Optional<Pair<LtiLaunchRequestDTO, Long>> launchRequestForSession = ltiLaunchRequestStore.remove(sessionId);
+        if(launchRequestForSession.isPresent()) {
 
             log.debug("Found LTI launchRequest for session ID {}", sessionId);
 
-            LtiLaunchRequestDTO launchRequest = launchRequestForSession.get(sessionId).getLeft();
-            Exercise exercise = launchRequestForSession.get(sessionId).getRight();
+            LtiLaunchRequestDTO launchRequest = launchRequestForSession.get().getLeft();
+            Exercise exercise = exerciseRepository.findOne(launchRequestForSession.get().getRight());
+            if (exercise == null) {
+                log.warn("The exercise of the LTI launchRequest for session ID {} does not exist anymore", sessionId);
+                return;
+            }
 
             onSuccessfulLtiAuthentication(launchRequest, exercise);
 
-            // clean up
-            launchRequestForSession.remove(sessionId);
-
         }
     }
 
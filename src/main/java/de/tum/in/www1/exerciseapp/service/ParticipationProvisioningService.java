@@ -0,0 +1,230 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.ProgrammingExercise;
+import de.tum.in.www1.exerciseapp.domain.User;
+import de.tum.in.www1.exerciseapp.domain.enumeration.ParticipationState;
+import de.tum.in.www1.exerciseapp.repository.ParticipationRepository;
+import de.tum.in.www1.exerciseapp.repository.UserRepository;
+import de.tum.in.www1.exerciseapp.service.dto.ProvisioningProgressDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Service for provisioning the participations of all students of a course in a programming exercise in advance
+ * (e.g. before the release of the exercise), so that the repositories and build plans do not need to be created
+ * while the students are waiting for it.
+ * <p>
+ * The participations are initialized in parallel with a bounded number of threads, using the resumable initialization
+ * steps of {@link ParticipationService#init(de.tum.in.www1.exerciseapp.domain.Exercise, String)}. All missing
+ * participations are stored before the first step is executed, so a provisioning that was interrupted (e.g. by a
+ * restart of the server) is resumed on the next startup. The attempts are counted per participation, participations
+ * which could not be initialized within the maximum number of attempts are only retried by a new provisioning.
+ */
+@Service
+public class ParticipationProvisioningService {
+
+    private final Logger log = LoggerFactory.getLogger(ParticipationProvisioningService.class);
+
+    private static final Set<ParticipationState> INCOMPLETE_STATES = EnumSet.of(ParticipationState.UNINITIALIZED,
+        ParticipationState.REPO_COPIED, ParticipationState.REPO_CONFIGURED, ParticipationState.BUILD_PLAN_COPIED,
+        ParticipationState.BUILD_PLAN_CONFIGURED);
+
+    @Value("${artemis.provisioning.parallelism:8}")
+    private int PARALLELISM;
+
+    @Value("${artemis.provisioning.resume-on-startup:true}")
+    private boolean RESUME_ON_STARTUP;
+
+    @Value("${artemis.provisioning.max-attempts:3}")
+    private int MAX_ATTEMPTS;
+
+    private final ParticipationService participationService;
+    private final ParticipationRepository participationRepository;
+    private final UserRepository userRepository;
+    private final Optional<ContinuousIntegrationService> continuousIntegrationService;
+    private final Optional<VersionControlService> versionControlService;
+    private final MetricRegistry metricRegistry;
+
+    // the progress of the latest provisioning of each exercise
+    private final Map<Long, ProvisioningProgressDTO> provisionings = new ConcurrentHashMap<>();
+
+    private ExecutorService provisioningExecutor;
+
+    private Timer provisioningTimer;
+    private Meter provisioningFailures;
+
+    public ParticipationProvisioningService(ParticipationService participationService, ParticipationRepository participationRepository, UserRepository userRepository, Optional<ContinuousIntegrationService> continuousIntegrationService, Optional<VersionControlService> versionControlService, MetricRegistry metricRegistry) {
+        this.participationService = participationService;
+        this.participationRepository = participationRepository;
+        this.userRepository = userRepository;
+        this.continuousIntegrationService = continuousIntegrationService;
+        this.versionControlService = versionControlService;
+        this.metricRegistry = metricRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        provisioningExecutor = Executors.newFixedThreadPool(PARALLELISM, new CustomizableThreadFactory("participation-provisioning-"));
+        provisioningTimer = metricRegistry.timer(MetricRegistry.name(ParticipationProvisioningService.class, "participations"));
+        provisioningFailures = metricRegistry.meter(MetricRegistry.name(ParticipationProvisioningService.class, "failures"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        provisioningExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts the provisioning of the participations of all students of the course in the given exercise.
+     * Students who already have a participation which is initialized, inactive or finished are skipped.
+     * If a provisioning of the exercise is already running, its progress is returned instead.
+     *
+     * @param exercise the exercise for which to provision the participations
+     * @return the progress of the provisioning
+     */
+    public synchronized ProvisioningProgressDTO startProvisioning(ProgrammingExercise exercise) {
+        ProvisioningProgressDTO runningProvisioning = provisionings.get(exercise.getId());
+        if (runningProvisioning != null && !runningProvisioning.isFinished()) {
+            return runningProvisioning;
+        }
+        List<String> studentLogins = userRepository.findAllInGroup(exercise.getCourse().getStudentGroupName()).stream()
+            .map(User::getLogin)
+            .collect(Collectors.toList());
+        log.info("Provisioning participations of {} students for Exercise {}", studentLogins.size(), exercise.getId());
+        return provision(exercise, studentLogins);
+    }
+
+    /**
+     * Get the progress of the latest provisioning of the given exercise.
+     *
+     * @param exerciseId the id of the exercise
+     * @return the progress, or an empty Optional if the participations of the exercise have not been provisioned since the last restart
+     */
+    public Optional<ProvisioningProgressDTO> getProgress(Long exerciseId) {
+        return Optional.ofNullable(provisionings.get(exerciseId));
+    }
+
+    /**
+     * Resumes the initialization of all participations which were interrupted, e.g. by a restart during a provisioning.
+     * Participations which already failed the maximum number of attempts are skipped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void resumeInterruptedProvisionings() {
+        if (!RESUME_ON_STARTUP || !continuousIntegrationService.isPresent() || !versionControlService.isPresent()) {
+            return;
+        }
+        Map<ProgrammingExercise, List<String>> incompleteParticipations = new HashMap<>();
+        int exhaustedParticipations = 0;
+        for (Participation participation : participationRepository.findByInitializationStateIn(INCOMPLETE_STATES)) {
+            if (participation.getExercise() instanceof ProgrammingExercise && participation.getStudent() != null) {
+                if (participation.getProvisioningAttempts() != null && participation.getProvisioningAttempts() >= MAX_ATTEMPTS) {
+                    exhaustedParticipations++;
+                    continue;
+                }
+                incompleteParticipations.computeIfAbsent((ProgrammingExercise) participation.getExercise(), exercise -> new ArrayList<>())
+                    .add(participation.getStudent().getLogin());
+            }
+        }
+        if (exhaustedParticipations > 0) {
+            log.warn("Not resuming {} participations which could not be initialized in {} attempts", exhaustedParticipations, MAX_ATTEMPTS);
+        }
+        incompleteParticipations.forEach((exercise, studentLogins) -> {
+            log.info("Resuming the provisioning of {} participations for Exercise {}", studentLogins.size(), exercise.getId());
+            provision(exercise, studentLogins);
+        });
+    }
+
+    private ProvisioningProgressDTO provision(ProgrammingExercise exercise, List<String> studentLogins) {
+        ProvisioningProgressDTO progress = new ProvisioningProgressDTO(exercise.getId());
+        provisionings.put(exercise.getId(), progress);
+        provisioningExecutor.submit(() -> planProvisioning(exercise, studentLogins, progress));
+        return progress;
+    }
+
+    /**
+     * Stores the missing participations and submits the initialization of all incomplete participations.
+     */
+    private void planProvisioning(ProgrammingExercise exercise, List<String> studentLogins, ProvisioningProgressDTO progress) {
+        List<String> studentsToProvision = new ArrayList<>();
+        for (String studentLogin : studentLogins) {
+            try {
+                Participation participation = participationRepository.findOneByExerciseIdAndStudentLogin(exercise.getId(), studentLogin);
+                if (participation == null) {
+                    // store the participation first, so that the provisioning can be resumed after a restart
+                    if (createParticipation(exercise, studentLogin)) {
+                        studentsToProvision.add(studentLogin);
+                    } else {
+                        log.warn("Skipping the provisioning of the participation of {} for Exercise {}, the user does not exist", studentLogin, exercise.getId());
+                        progress.getSkippedStudents().add(studentLogin);
+                    }
+                } else if (INCOMPLETE_STATES.contains(participation.getInitializationState())) {
+                    studentsToProvision.add(studentLogin);
+                }
+            } catch (Exception e) {
+                log.error("Could not prepare the provisioning of the participation of " + studentLogin + " for Exercise " + exercise.getId(), e);
+                progress.getFailedStudents().add(studentLogin);
+            }
+        }
+
+        progress.setTotal(studentsToProvision.size());
+        if (studentsToProvision.isEmpty()) {
+            progress.finish();
+            return;
+        }
+        for (String studentLogin : studentsToProvision) {
+            provisioningExecutor.submit(() -> provisionParticipation(exercise, studentLogin, progress));
+        }
+    }
+
+    /**
+     * Stores a new uninitialized participation of the student.
+     *
+     * @return false if the student does not exist
+     */
+    private boolean createParticipation(ProgrammingExercise exercise, String studentLogin) {
+        Optional<User> student = userRepository.findOneByLogin(studentLogin);
+        if (!student.isPresent()) {
+            return false;
+        }
+        Participation participation = new Participation();
+        participation.setExercise(exercise);
+        participation.setStudent(student.get());
+        participation.setInitializationState(ParticipationState.UNINITIALIZED);
+        participationService.save(participation);
+        return true;
+    }
+
+    private void provisionParticipation(ProgrammingExercise exercise, String studentLogin, ProvisioningProgressDTO progress) {
+        boolean successful = false;
+        try (Timer.Context ignored = provisioningTimer.time()) {
+            participationService.countProvisioningAttempt(exercise.getId(), studentLogin);
+            participationService.init(exercise, studentLogin);
+            successful = true;
+        } catch (Exception e) {
+            log.error("Provisioning the participation of " + studentLogin + " for Exercise " + exercise.getId() + " failed", e);
+            provisioningFailures.mark();
+        } finally {
+            progress.studentCompleted(studentLogin, successful);
+            if (progress.isFinished()) {
+                log.info("Provisioning for Exercise {} finished: {}", exercise.getId(), progress);
+            }
+        }
+    }
+}
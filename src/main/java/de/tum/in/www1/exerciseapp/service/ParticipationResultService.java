@@ -0,0 +1,65 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.Result;
+import de.tum.in.www1.exerciseapp.repository.ParticipationRepository;
+import de.tum.in.www1.exerciseapp.repository.ResultRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Service for maintaining the latest and the first successful result of a participation, which are stored in the
+ * participation so that the results of an exercise or course can be selected with a simple join.
+ * <p>
+ * Only depends on repositories, so that it can be used by the continuous integration services as well.
+ */
+@Service
+@Transactional
+public class ParticipationResultService {
+
+    private final Logger log = LoggerFactory.getLogger(ParticipationResultService.class);
+
+    private final ParticipationRepository participationRepository;
+    private final ResultRepository resultRepository;
+    private final StudentDashboardService studentDashboardService;
+
+    public ParticipationResultService(ParticipationRepository participationRepository, ResultRepository resultRepository, StudentDashboardService studentDashboardService) {
+        this.participationRepository = participationRepository;
+        this.resultRepository = resultRepository;
+        this.studentDashboardService = studentDashboardService;
+    }
+
+    /**
+     * Updates the result pointers of the participation after one of its results has been created, updated or deleted,
+     * and evicts the cached dashboard of the student once the result has been committed.
+     * Should be called in the transaction which writes the result. The participation is locked until the end of the
+     * transaction, so that concurrent results of the same participation are taken into account one after another.
+     *
+     * @param participation the participation of the changed result
+     */
+    public void onResultChanged(Participation participation) {
+        if (participation == null || participation.getId() == null) {
+            return;
+        }
+        Long participationId = participation.getId();
+        Participation lockedParticipation = participationRepository.findOneForUpdate(participationId);
+        if (lockedParticipation == null) {
+            return;
+        }
+        // locking reads, which see the results of concurrent transactions committed while waiting for the lock
+        PageRequest first = new PageRequest(0, 1);
+        List<Result> latestResults = resultRepository.findLatestByParticipationIdForUpdate(participationId, first);
+        List<Result> firstSuccessfulResults = resultRepository.findFirstSuccessfulByParticipationIdForUpdate(participationId, first);
+        // only the changed pointers are written, the participation is updated in the second level cache instead of
+        // evicting the whole region like a bulk update
+        lockedParticipation.setLatestResult(latestResults.isEmpty() ? null : latestResults.get(0));
+        lockedParticipation.setFirstSuccessfulResult(firstSuccessfulResults.isEmpty() ? null : firstSuccessfulResults.get(0));
+        log.debug("Updated the result pointers of participation {}", participationId);
+        studentDashboardService.onParticipationChanged(lockedParticipation);
+    }
+}
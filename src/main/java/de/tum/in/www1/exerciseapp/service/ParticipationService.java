@@ -9,12 +9,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.net.URL;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -31,13 +35,28 @@ public class ParticipationService {
     private final Optional<GitService> gitService;
     private final Optional<ContinuousIntegrationService> continuousIntegrationService;
     private final Optional<VersionControlService> versionControlService;
+    private final CourseScoreService courseScoreService;
+    private final StudentDashboardService studentDashboardService;
 
-    public ParticipationService(ParticipationRepository participationRepository, UserRepository userRepository, Optional<GitService> gitService, Optional<ContinuousIntegrationService> continuousIntegrationService, Optional<VersionControlService> versionControlService) {
+    // commits every initialization step on its own, calls of save() from within this class bypass the transactional proxy
+    private final TransactionTemplate stepTransactionTemplate;
+
+    // Striped locks, so that the same participation is never initialized concurrently (e.g. by the student and the bulk provisioning)
+    private final Object[] initLocks = new Object[1024];
+
+    public ParticipationService(ParticipationRepository participationRepository, UserRepository userRepository, Optional<GitService> gitService, Optional<ContinuousIntegrationService> continuousIntegrationService, Optional<VersionControlService> versionControlService, CourseScoreService courseScoreService, StudentDashboardService studentDashboardService, PlatformTransactionManager transactionManager) {
         this.participationRepository = participationRepository;
         this.userRepository = userRepository;
         this.gitService = gitService;
         this.continuousIntegrationService = continuousIntegrationService;
         this.versionControlService = versionControlService;
+        this.courseScoreService = courseScoreService;
+        this.studentDashboardService = studentDashboardService;
+        this.stepTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.stepTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < initLocks.length; i++) {
+            initLocks[i] = new Object();
+        }
     }
 
     /**
@@ -49,17 +68,49 @@ public class ParticipationService {
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public Participation save(Participation participation) {
         log.debug("Request to save Participation : {}", participation);
-        return participationRepository.saveAndFlush(participation);
+        boolean created = participation.getId() == null;
+        if (!created) {
+            // the result pointers are maintained by the ParticipationResultService, keeping the stored ones means that
+            // they are not written, so that a participation received via REST or loaded earlier does not reset them
+            Participation storedParticipation = participationRepository.findOne(participation.getId());
+            if (storedParticipation != null && storedParticipation != participation) {
+                participation.setLatestResult(storedParticipation.getLatestResult());
+                participation.setFirstSuccessfulResult(storedParticipation.getFirstSuccessfulResult());
+                participation.setProvisioningAttempts(storedParticipation.getProvisioningAttempts());
+            }
+        }
+        Participation result = participationRepository.saveAndFlush(participation);
+        if (created) {
+            courseScoreService.onParticipationCreated(result);
+        }
+        studentDashboardService.onParticipationChanged(result);
+        return result;
     }
 
     /**
-     * This method should only be invoked for programming exercises, not for other exercises
+     * This method should only be invoked for programming exercises, not for other exercises.
+     * An existing participation which was not initialized completely (e.g. by the bulk provisioning) is resumed at its
+     * last completed initialization step.
+     * <p>
+     * The method runs outside of a transaction: every completed step is committed immediately, so that it is not rolled
+     * back if a later step fails, and the lock is only released after the last step was committed.
+     *
      * @param exercise
      * @param username
      * @return
      */
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Participation init(Exercise exercise, String username) {
+        synchronized (getInitLock(exercise, username)) {
+            return initParticipation(exercise, username);
+        }
+    }
+
+    private Object getInitLock(Exercise exercise, String username) {
+        return initLocks[Math.floorMod(Objects.hash(exercise.getId(), username), initLocks.length)];
+    }
+
+    private Participation initParticipation(Exercise exercise, String username) {
 
         // common for all exercises
         // Check if participation already exists
@@ -72,14 +123,20 @@ public class ParticipationService {
             if (user.isPresent()) {
                 participation.setStudent(user.get());
             }
-            participation = save(participation);
+            participation = saveStep(participation);
         }
 
 
         // specific to programming exercises
         if (exercise instanceof ProgrammingExercise) {
             ProgrammingExercise programmingExercise = (ProgrammingExercise) exercise;
-            participation.setInitializationState(ParticipationState.UNINITIALIZED);
+            if (participation.getInitializationState() == ParticipationState.INITIALIZED) {
+                // e.g. already provisioned in advance, nothing to do
+                return participation;
+            }
+            if (participation.getInitializationState() == null) {
+                participation.setInitializationState(ParticipationState.UNINITIALIZED);
+            }
             participation = copyRepository(participation, programmingExercise);
             participation = configureRepository(participation, programmingExercise);
             participation = copyBuildPlan(participation, programmingExercise);
@@ -94,8 +151,7 @@ public class ParticipationService {
         }
 
 
-        save(participation);
-        return participation;
+        return saveStep(participation);
     }
 
     /**
@@ -104,17 +160,43 @@ public class ParticipationService {
 
      * @return resumed participation
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Participation resume(Exercise exercise, Participation participation) {
-        ProgrammingExercise programmingExercise = (ProgrammingExercise) exercise;
-        participation = copyBuildPlan(participation, programmingExercise);
-        participation = configureBuildPlan(participation, programmingExercise);
-        participation.setInitializationState(ParticipationState.INITIALIZED);
-        if (participation.getInitializationDate() == null) {
-            //only set the date if it was not set before (which should NOT be the case)
-            participation.setInitializationDate(ZonedDateTime.now());
+        synchronized (getInitLock(exercise, participation.getStudent().getLogin())) {
+            ProgrammingExercise programmingExercise = (ProgrammingExercise) exercise;
+            participation = copyBuildPlan(participation, programmingExercise);
+            participation = configureBuildPlan(participation, programmingExercise);
+            participation.setInitializationState(ParticipationState.INITIALIZED);
+            if (participation.getInitializationDate() == null) {
+                //only set the date if it was not set before (which should NOT be the case)
+                participation.setInitializationDate(ZonedDateTime.now());
+            }
+            return saveStep(participation);
         }
-        save(participation);
-        return participation;
+    }
+
+    /**
+     * Counts an attempt of the bulk provisioning to initialize the participation of the student, while the participation
+     * is locked.
+     *
+     * @param exerciseId the id of the exercise
+     * @param username   the username of the student
+     * @return the number of attempts including this one, or 0 if the student has no participation
+     */
+    @Transactional
+    public int countProvisioningAttempt(Long exerciseId, String username) {
+        Participation participation = participationRepository.findOneByExerciseIdAndStudentLogin(exerciseId, username);
+        if (participation == null) {
+            return 0;
+        }
+        Participation lockedParticipation = participationRepository.findOneForUpdate(participation.getId());
+        int attempts = Optional.ofNullable(lockedParticipation.getProvisioningAttempts()).orElse(0) + 1;
+        lockedParticipation.setProvisioningAttempts(attempts);
+        return attempts;
+    }
+
+    private Participation saveStep(Participation participation) {
+        return stepTransactionTemplate.execute(status -> save(participation));
     }
 
     private Participation copyRepository(Participation participation, ProgrammingExercise exercise) {
@@ -124,7 +206,7 @@ public class ParticipationService {
                 participation.setRepositoryUrl(repositoryUrl.toString());
                 participation.setInitializationState(ParticipationState.REPO_COPIED);
             }
-            return save(participation);
+            return saveStep(participation);
         } else {
             return participation;
         }
@@ -134,7 +216,7 @@ public class ParticipationService {
         if (!participation.getInitializationState().hasCompletedState(ParticipationState.REPO_CONFIGURED)) {
             versionControlService.get().configureRepository(participation.getRepositoryUrlAsUrl(), participation.getStudent().getLogin());
             participation.setInitializationState(ParticipationState.REPO_CONFIGURED);
-            return save(participation);
+            return saveStep(participation);
         } else {
             return participation;
         }
@@ -145,7 +227,7 @@ public class ParticipationService {
             String buildPlanId = continuousIntegrationService.get().copyBuildPlan(exercise.getBaseBuildPlanId(), participation.getStudent().getLogin());
             participation.setBuildPlanId(buildPlanId);
             participation.setInitializationState(ParticipationState.BUILD_PLAN_COPIED);
-            return save(participation);
+            return saveStep(participation);
         } else {
             return participation;
         }
@@ -158,7 +240,7 @@ public class ParticipationService {
                 participation.getRepositoryUrlAsUrl(),
                 participation.getStudent().getLogin());
             participation.setInitializationState(ParticipationState.BUILD_PLAN_CONFIGURED);
-            return save(participation);
+            return saveStep(participation);
         } else {
             return participation;
         }
@@ -248,5 +330,10 @@ public class ParticipationService {
 
         }
         participationRepository.delete(id);
+        if (participation != null && participation.getStudent() != null && participation.getExercise() != null && participation.getExercise().getCourse() != null) {
+            // the results of the participation are deleted with it
+            courseScoreService.updateScore(participation.getExercise().getCourse().getId(), participation.getStudent().getId());
+            studentDashboardService.onParticipationChanged(participation);
+        }
     }
 }
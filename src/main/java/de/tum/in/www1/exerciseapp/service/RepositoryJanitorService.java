@@ -0,0 +1,168 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for keeping the disk usage of the local repositories within a configured budget.
+ * <p>
+ * Local repositories are otherwise only deleted together with their participation or exercise. If they use more disk
+ * space than the budget, the least recently used repositories are deleted until the usage is below the budget again.
+ * Repositories which have been used recently, contain changes which have not been pushed yet or are currently in use
+ * are kept. Deleted repositories are cloned again when they are accessed the next time.
+ * <p>
+ * Measuring large clone folders can take a while, so the janitor runs on its own thread instead of the shared scheduler.
+ */
+@Service
+public class RepositoryJanitorService {
+
+    private final Logger log = LoggerFactory.getLogger(RepositoryJanitorService.class);
+
+    // in megabytes, 0 disables the deletion of local repositories
+    @Value("${artemis.repository-janitor.disk-budget:0}")
+    private long DISK_BUDGET;
+
+    @Value("${artemis.repository-janitor.min-idle-time:3600}")
+    private long MIN_IDLE_TIME;
+
+    // in seconds
+    @Value("${artemis.repository-janitor.interval:300}")
+    private long INTERVAL;
+
+    private final Optional<GitService> gitService;
+    private final DeferredCommitService deferredCommitService;
+    private final MetricRegistry metricRegistry;
+
+    // results of the last run, reported as metrics
+    private volatile long diskUsage;
+    private volatile int repositoryCount;
+
+    private ScheduledExecutorService janitorExecutor;
+
+    private Meter deletions;
+    private Meter skipped;
+
+    public RepositoryJanitorService(Optional<GitService> gitService, DeferredCommitService deferredCommitService, MetricRegistry metricRegistry) {
+        this.gitService = gitService;
+        this.deferredCommitService = deferredCommitService;
+        this.metricRegistry = metricRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        deletions = metricRegistry.meter(MetricRegistry.name(RepositoryJanitorService.class, "deletions"));
+        skipped = metricRegistry.meter(MetricRegistry.name(RepositoryJanitorService.class, "skipped"));
+        metricRegistry.register(MetricRegistry.name(RepositoryJanitorService.class, "disk-usage"), (Gauge<Long>) () -> diskUsage);
+        metricRegistry.register(MetricRegistry.name(RepositoryJanitorService.class, "repositories"), (Gauge<Integer>) () -> repositoryCount);
+        janitorExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("repository-janitor-"));
+        janitorExecutor.scheduleWithFixedDelay(this::runJanitor, INTERVAL, INTERVAL, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        janitorExecutor.shutdownNow();
+    }
+
+    private void runJanitor() {
+        try {
+            enforceDiskBudget();
+        } catch (RuntimeException e) {
+            // an exception would cancel all further runs
+            log.error("Enforcing the disk budget of the local repositories failed", e);
+        }
+    }
+
+    /**
+     * Measures the disk usage of the local repositories and deletes the least recently used ones if the usage exceeds
+     * the configured budget.
+     */
+    public void enforceDiskBudget() {
+        if (!gitService.isPresent()) {
+            return;
+        }
+        List<LocalRepository> repositories = new ArrayList<>();
+        long usage = 0;
+        try {
+            for (Path localPath : gitService.get().listLocalRepositories()) {
+                LocalRepository repository = new LocalRepository(localPath, FileUtils.sizeOfDirectory(localPath.toFile()), gitService.get().getLastAccess(localPath));
+                repositories.add(repository);
+                usage += repository.size;
+            }
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            // e.g. a repository was deleted while measuring
+            log.warn("Could not measure the disk usage of the local repositories: " + e.getMessage());
+            return;
+        }
+        diskUsage = usage;
+        repositoryCount = repositories.size();
+
+        long budget = DISK_BUDGET * FileUtils.ONE_MB;
+        if (DISK_BUDGET <= 0 || usage <= budget) {
+            return;
+        }
+        log.info("Local repositories use {} MB, which exceeds the budget of {} MB", usage / FileUtils.ONE_MB, DISK_BUDGET);
+
+        long minimumLastAccess = System.currentTimeMillis() - MIN_IDLE_TIME * 1000;
+        repositories.sort(Comparator.comparingLong(repository -> repository.lastAccess));
+        for (LocalRepository repository : repositories) {
+            if (usage <= budget || repository.lastAccess >= minimumLastAccess) {
+                // the following repositories have been accessed even more recently
+                break;
+            }
+            if (deferredCommitService.isCommitPending(repository.localPath)) {
+                skipped.mark();
+                continue;
+            }
+            try {
+                if (gitService.get().deleteLocalRepositoryIfUnused(repository.localPath, minimumLastAccess)) {
+                    usage -= repository.size;
+                    repositoryCount--;
+                    deletions.mark();
+                } else {
+                    skipped.mark();
+                }
+            } catch (IOException | UncheckedIOException | CannotAcquireLockException e) {
+                log.warn("Could not delete the local repository at " + repository.localPath + ": " + e.getMessage());
+                skipped.mark();
+            }
+        }
+        diskUsage = usage;
+        if (usage > budget) {
+            log.warn("Local repositories still use {} MB, the remaining repositories are in use, were accessed recently or contain unpushed changes", usage / FileUtils.ONE_MB);
+        }
+    }
+
+    private static class LocalRepository {
+
+        private final Path localPath;
+        private final long size;
+        private final long lastAccess;
+
+        private LocalRepository(Path localPath, long size, long lastAccess) {
+            this.localPath = localPath;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -1,11 +1,31 @@
 package de.tum.in.www1.exerciseapp.service;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import de.tum.in.www1.exerciseapp.domain.BuildLogEntry;
 import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.messaging.simp.SimpMessageSendingOperations;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Josias Montag on 06.10.16.
@@ -13,29 +33,135 @@ import java.util.Optional;
 @Service
 public class ResultService {
 
+    private final Logger log = LoggerFactory.getLogger(ResultService.class);
+
+    @Value("${artemis.result-retrieval-delay:10000}")
+    private int RESULT_RETRIEVAL_DELAY;
+
+    @Value("${artemis.result-retrieval-max-attempts:4}")
+    private int RESULT_RETRIEVAL_MAX_ATTEMPTS;
+
     private final Optional<ContinuousIntegrationService> continuousIntegrationService;
     private final LtiService ltiService;
     private final SimpMessageSendingOperations messagingTemplate;
+    private final BuildLogService buildLogService;
+    private final CourseScoreService courseScoreService;
+    private final MetricRegistry metricRegistry;
+    private final TaskExecutor taskExecutor;
 
-    public ResultService(Optional<ContinuousIntegrationService> continuousIntegrationService, LtiService ltiService, SimpMessageSendingOperations messagingTemplate) {
+    // Delayed queue for the result retrievals. Waiting retrievals are only queued and do not block any thread, due
+    // retrievals are handed to the async task executor, as the requests to the CI server block.
+    private ScheduledThreadPoolExecutor retrievalScheduler;
+
+    private Histogram retrievalAttempts;
+    private Timer retrievalLatency;
+    private Meter retrievalFailures;
+
+    public ResultService(Optional<ContinuousIntegrationService> continuousIntegrationService, LtiService ltiService, SimpMessageSendingOperations messagingTemplate, BuildLogService buildLogService, CourseScoreService courseScoreService, MetricRegistry metricRegistry,
+                         @Qualifier("taskExecutor") TaskExecutor taskExecutor) {
         this.continuousIntegrationService = continuousIntegrationService;
         this.ltiService = ltiService;
         this.messagingTemplate = messagingTemplate;
+        this.buildLogService = buildLogService;
+        this.courseScoreService = courseScoreService;
+        this.metricRegistry = metricRegistry;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        retrievalScheduler = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("result-retrieval-"));
+        metricRegistry.register(MetricRegistry.name(ResultService.class, "retrieval", "queue-depth"), (Gauge<Integer>) () -> retrievalScheduler.getQueue().size());
+        retrievalAttempts = metricRegistry.histogram(MetricRegistry.name(ResultService.class, "retrieval", "attempts"));
+        retrievalLatency = metricRegistry.timer(MetricRegistry.name(ResultService.class, "retrieval", "latency"));
+        retrievalFailures = metricRegistry.meter(MetricRegistry.name(ResultService.class, "retrieval", "failures"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        retrievalScheduler.shutdownNow();
     }
 
     /**
      * Perform async operations after we were notified about new results.
+     * The CI server might not provide the new build result immediately, so the retrieval is retried with an exponential
+     * backoff until the result is available or the maximum number of attempts is reached.
      *
      * @param participation Participation for which a new build is available
      */
-    @Async
     public void onResultNotified(Participation participation) {
-        // fetches the new build result
-        continuousIntegrationService.get().onBuildCompleted(participation);
-        // notify user via websocket
-        messagingTemplate.convertAndSend("/topic/participation/" + participation.getId() + "/newResults", true);
-        // handles new results and sends them to LTI consumers
-        ltiService.onNewBuildResult(participation);
+        scheduleResultRetrieval(participation, ZonedDateTime.now(), 1, 0);
+    }
+
+    private void scheduleResultRetrieval(Participation participation, ZonedDateTime notificationDate, int attempt, long delay) {
+        retrievalScheduler.schedule(() -> {
+            try {
+                taskExecutor.execute(() -> retrieveResult(participation, notificationDate, attempt));
+            } catch (RejectedExecutionException e) {
+                log.error("Could not start retrieving the build result for participation " + participation.getId(), e);
+                retrievalFailures.mark();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Performs a single attempt to fetch the new build result. Schedules the next attempt if the result is not available yet.
+     *
+     * @param participation    Participation for which a new build is available
+     * @param notificationDate date at which the CI server notified us about the new build
+     * @param attempt          number of this attempt, starting at 1
+     */
+    private void retrieveResult(Participation participation, ZonedDateTime notificationDate, int attempt) {
+        boolean isLastAttempt = attempt >= RESULT_RETRIEVAL_MAX_ATTEMPTS;
+        Result result = null;
+        try {
+            // fetches the new build result
+            result = continuousIntegrationService.get().onBuildCompleted(participation, notificationDate, isLastAttempt);
+        } catch (Exception e) {
+            log.error("Retrieving the build result for participation " + participation.getId() + " failed in attempt " + attempt, e);
+        }
+
+        if (result == null) {
+            if (isLastAttempt) {
+                log.error("Giving up retrieving the build result for participation {} after {} attempts", participation.getId(), attempt);
+                retrievalAttempts.update(attempt);
+                retrievalFailures.mark();
+            } else {
+                long delay = RESULT_RETRIEVAL_DELAY * (1L << (attempt - 1));
+                log.info("Build result for participation {} is not available yet. Retrying in {}s...", participation.getId(), delay / 1000);
+                scheduleResultRetrieval(participation, notificationDate, attempt + 1, delay);
+            }
+            return;
+        }
+
+        retrievalAttempts.update(attempt);
+        retrievalLatency.update(Duration.between(notificationDate, ZonedDateTime.now()).toMillis(), TimeUnit.MILLISECONDS);
+
+        try {
+            // store the build log once, so that it does not need to be fetched from the CI server for every view. If it
+            // could not be retrieved, nothing is stored and the build log is fetched from the CI server when it is viewed
+            Optional<List<BuildLogEntry>> logEntries = continuousIntegrationService.get().getLatestBuildLogs(participation);
+            if (logEntries.isPresent()) {
+                buildLogService.saveBuildLogs(result, logEntries.get());
+            }
+        } catch (Exception e) {
+            log.error("Storing the build log for participation " + participation.getId() + " failed", e);
+        }
+
+        try {
+            courseScoreService.onResultChanged(participation);
+        } catch (Exception e) {
+            log.error("Updating the course score for participation " + participation.getId() + " failed", e);
+        }
+
+        try {
+            // notify user via websocket
+            messagingTemplate.convertAndSend("/topic/participation/" + participation.getId() + "/newResults", true);
+            // handles new results and sends them to LTI consumers
+            ltiService.onNewBuildResult(participation);
+        } catch (Exception e) {
+            log.error("Handling the new build result for participation " + participation.getId() + " failed", e);
+        }
     }
 
 }
@@ -0,0 +1,110 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import de.tum.in.www1.exerciseapp.domain.*;
+import de.tum.in.www1.exerciseapp.repository.ExerciseRepository;
+import de.tum.in.www1.exerciseapp.repository.ParticipationRepository;
+import de.tum.in.www1.exerciseapp.repository.ResultRepository;
+import de.tum.in.www1.exerciseapp.service.dto.StudentDashboardExerciseDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service for the course overview of a student, which shows the exercises of a course together with the participation
+ * of the student and its latest result.
+ * <p>
+ * The overview is built with one query each for the exercises, participations and results, and is cached per course
+ * and student. The cache entry is evicted when a participation or result of the student changes, after the change has
+ * been committed, so that a concurrent request cannot cache the overview from before the change again.
+ */
+@Service
+public class StudentDashboardService {
+
+    private final Logger log = LoggerFactory.getLogger(StudentDashboardService.class);
+
+    public static final String STUDENT_DASHBOARD_CACHE = "studentDashboard";
+
+    private final ExerciseRepository exerciseRepository;
+    private final ParticipationRepository participationRepository;
+    private final ResultRepository resultRepository;
+    private final CacheManager cacheManager;
+
+    public StudentDashboardService(ExerciseRepository exerciseRepository, ParticipationRepository participationRepository, ResultRepository resultRepository, CacheManager cacheManager) {
+        this.exerciseRepository = exerciseRepository;
+        this.participationRepository = participationRepository;
+        this.resultRepository = resultRepository;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Get the exercises of the course with the participation of the student and its latest result. Like the exercise
+     * list of the course, online exercises are only included if the student has started them using LTI.
+     *
+     * @param courseId the id of the course
+     * @param login    the login of the student
+     * @return one entry per exercise, without build status
+     */
+    @Cacheable(cacheNames = STUDENT_DASHBOARD_CACHE, key = "#courseId + '-' + #login")
+    @Transactional(readOnly = true)
+    public List<StudentDashboardExerciseDTO> getDashboard(Long courseId, String login) {
+        log.debug("Request to get the dashboard of Course {} for User {}", courseId, login);
+        List<Exercise> exercises = exerciseRepository.findAllByCourseIdWhereLtiOutcomeUrlExistsForUser(courseId, login);
+
+        // like ParticipationService.findOneByExerciseIdAndStudentLogin: prefer the initialized over the inactive participation
+        Map<Long, Participation> participations = new HashMap<>();
+        for (Participation participation : participationRepository.findByCourseIdAndStudentLoginAndInitializationStateIn(
+            courseId, login, Arrays.asList(ParticipationState.INITIALIZED, ParticipationState.INACTIVE))) {
+            participations.merge(participation.getExercise().getId(), participation,
+                (existing, other) -> existing.getInitializationState() == ParticipationState.INITIALIZED ? existing : other);
+        }
+
+        Map<Long, Result> latestResults = participations.isEmpty() ? Collections.emptyMap() :
+            resultRepository.findLatestResultsForParticipations(participations.values().stream().map(Participation::getId).collect(Collectors.toList()))
+                .stream().collect(Collectors.toMap(result -> result.getParticipation().getId(), Function.identity()));
+
+        List<StudentDashboardExerciseDTO> dashboard = new ArrayList<>();
+        for (Exercise exercise : exercises) {
+            Participation participation = participations.get(exercise.getId());
+            Result latestResult = participation != null ? latestResults.get(participation.getId()) : null;
+            dashboard.add(new StudentDashboardExerciseDTO(exercise, participation, latestResult));
+        }
+        return dashboard;
+    }
+
+    /**
+     * Evicts the cached dashboard of the student of the participation, e.g. after a new result.
+     * If called within a transaction, the dashboard is evicted after it has been committed.
+     *
+     * @param participation the changed participation
+     */
+    public void onParticipationChanged(Participation participation) {
+        if (participation == null || participation.getStudent() == null || participation.getExercise() == null || participation.getExercise().getCourse() == null) {
+            return;
+        }
+        String key = participation.getExercise().getCourse().getId() + "-" + participation.getStudent().getLogin();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    evict(key);
+                }
+            });
+        } else {
+            evict(key);
+        }
+    }
+
+    private void evict(String key) {
+        log.debug("Evicting the dashboard {}", key);
+        cacheManager.getCache(STUDENT_DASHBOARD_CACHE).evict(key);
+    }
+}
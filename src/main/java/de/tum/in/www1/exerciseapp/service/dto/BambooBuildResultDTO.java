@@ -0,0 +1,135 @@
+package de.tum.in.www1.exerciseapp.service.dto;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO representing the parts of a Bamboo build result that are used by ArTEMiS.
+ */
+public class BambooBuildResultDTO {
+
+    private Integer buildNumber;
+
+    private boolean successful;
+
+    private String buildTestSummary;
+
+    private ZonedDateTime buildCompletedDate;
+
+    private String artifactLink;
+
+    private List<FailedTestDTO> failedTests = new ArrayList<>();
+
+    public Integer getBuildNumber() {
+        return buildNumber;
+    }
+
+    public void setBuildNumber(Integer buildNumber) {
+        this.buildNumber = buildNumber;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    public void setSuccessful(boolean successful) {
+        this.successful = successful;
+    }
+
+    public String getBuildTestSummary() {
+        return buildTestSummary;
+    }
+
+    public void setBuildTestSummary(String buildTestSummary) {
+        this.buildTestSummary = buildTestSummary;
+    }
+
+    public ZonedDateTime getBuildCompletedDate() {
+        return buildCompletedDate;
+    }
+
+    public void setBuildCompletedDate(ZonedDateTime buildCompletedDate) {
+        this.buildCompletedDate = buildCompletedDate;
+    }
+
+    /**
+     * @return the link to the first shared artifact of the build, or null if the build has no shared artifact
+     */
+    public String getArtifactLink() {
+        return artifactLink;
+    }
+
+    public void setArtifactLink(String artifactLink) {
+        this.artifactLink = artifactLink;
+    }
+
+    public boolean hasArtifact() {
+        return artifactLink != null;
+    }
+
+    public List<FailedTestDTO> getFailedTests() {
+        return failedTests;
+    }
+
+    public void setFailedTests(List<FailedTestDTO> failedTests) {
+        this.failedTests = failedTests;
+    }
+
+    @Override
+    public String toString() {
+        return "BambooBuildResultDTO{" +
+            "buildNumber=" + buildNumber +
+            ", successful=" + successful +
+            ", buildTestSummary='" + buildTestSummary + "'" +
+            ", buildCompletedDate=" + buildCompletedDate +
+            ", artifactLink='" + artifactLink + "'" +
+            ", failedTests=" + failedTests.size() +
+            "}";
+    }
+
+    /**
+     * A failed test of a Bamboo build result with the messages of its errors.
+     */
+    public static class FailedTestDTO {
+
+        private String className;
+
+        private String methodName;
+
+        private List<String> errorMessages = new ArrayList<>();
+
+        public String getClassName() {
+            return className;
+        }
+
+        public void setClassName(String className) {
+            this.className = className;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public void setMethodName(String methodName) {
+            this.methodName = methodName;
+        }
+
+        public List<String> getErrorMessages() {
+            return errorMessages;
+        }
+
+        public void setErrorMessages(List<String> errorMessages) {
+            this.errorMessages = errorMessages;
+        }
+
+        @Override
+        public String toString() {
+            return "FailedTestDTO{" +
+                "className='" + className + "'" +
+                ", methodName='" + methodName + "'" +
+                ", errorMessages=" + errorMessages.size() +
+                "}";
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package de.tum.in.www1.exerciseapp.service.dto;
+
+/**
+ * A DTO representing the score of a student in a course.
+ */
+public class CourseScoreDTO {
+
+    private final Long studentId;
+
+    private Long score;
+
+    public CourseScoreDTO(Long studentId, Long score) {
+        this.studentId = studentId;
+        this.score = score;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public Long getScore() {
+        return score;
+    }
+
+    public void setScore(Long score) {
+        this.score = score;
+    }
+
+    @Override
+    public String toString() {
+        return "CourseScoreDTO{" +
+            "studentId=" + studentId +
+            ", score=" + score +
+            '}';
+    }
+}
@@ -0,0 +1,164 @@
+package de.tum.in.www1.exerciseapp.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A DTO representing a background job (cleanup or archive) running on all participations of an exercise.
+ */
+public class ExerciseJobDTO {
+
+    public enum JobType {
+        CLEANUP, ARCHIVE
+    }
+
+    public enum JobStatus {
+        RUNNING, FINISHED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+
+    private final Long exerciseId;
+
+    private final JobType type;
+
+    private final boolean deleteRepositories;
+
+    private final ZonedDateTime startDate = ZonedDateTime.now();
+
+    private volatile ZonedDateTime finishedDate;
+
+    private volatile JobStatus status = JobStatus.RUNNING;
+
+    private volatile String message;
+
+    private volatile int total;
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private final List<Long> failedParticipations = new CopyOnWriteArrayList<>();
+
+    @JsonIgnore
+    private volatile Path resultFile;
+
+    public ExerciseJobDTO(Long exerciseId, JobType type, boolean deleteRepositories) {
+        this.exerciseId = exerciseId;
+        this.type = type;
+        this.deleteRepositories = deleteRepositories;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getExerciseId() {
+        return exerciseId;
+    }
+
+    public JobType getType() {
+        return type;
+    }
+
+    public boolean isDeleteRepositories() {
+        return deleteRepositories;
+    }
+
+    public ZonedDateTime getStartDate() {
+        return startDate;
+    }
+
+    public ZonedDateTime getFinishedDate() {
+        return finishedDate;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public boolean isRunning() {
+        return status == JobStatus.RUNNING;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    /**
+     * @return the number of participations which were processed, including the failed ones
+     */
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public List<Long> getFailedParticipations() {
+        return failedParticipations;
+    }
+
+    /**
+     * Marks a participation as processed.
+     *
+     * @param participationId the id of the participation
+     * @param successful      false if not all steps could be executed for the participation
+     */
+    public void participationCompleted(Long participationId, boolean successful) {
+        if (!successful) {
+            failedParticipations.add(participationId);
+        }
+        completed.incrementAndGet();
+    }
+
+    public Path getResultFile() {
+        return resultFile;
+    }
+
+    public boolean isResultAvailable() {
+        return resultFile != null;
+    }
+
+    public void finish(Path resultFile, String message) {
+        this.resultFile = resultFile;
+        this.message = message;
+        this.finishedDate = ZonedDateTime.now();
+        this.status = JobStatus.FINISHED;
+    }
+
+    public void fail(String message) {
+        this.message = message;
+        this.finishedDate = ZonedDateTime.now();
+        this.status = JobStatus.FAILED;
+    }
+
+    /**
+     * Removes the result of the job, e.g. because the file was deleted.
+     */
+    public void discardResult() {
+        this.resultFile = null;
+    }
+
+    @Override
+    public String toString() {
+        return "ExerciseJobDTO{" +
+            "id='" + id + "'" +
+            ", exerciseId=" + exerciseId +
+            ", type=" + type +
+            ", status=" + status +
+            ", total=" + total +
+            ", completed=" + completed +
+            ", failed=" + failedParticipations.size() +
+            "}";
+    }
+}
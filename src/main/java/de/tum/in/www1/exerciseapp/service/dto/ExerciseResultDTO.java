@@ -0,0 +1,129 @@
+package de.tum.in.www1.exerciseapp.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * A DTO representing a result in the result list of an exercise, together with the number of results (submissions)
+ * of its participation. The JSON structure matches the one of the Result entity with its participation and student,
+ * but only contains the attributes shown in the list.
+ */
+public class ExerciseResultDTO {
+
+    private final Long id;
+
+    private final ZonedDateTime completionDate;
+
+    private final Boolean successful;
+
+    private final String resultString;
+
+    private final Long score;
+
+    private final Long submissionCount;
+
+    private final ParticipationDTO participation;
+
+    public ExerciseResultDTO(Long id, ZonedDateTime completionDate, Boolean successful, String resultString, Long score, Long submissionCount,
+                             Long participationId, ZonedDateTime initializationDate, String login, String firstName, String lastName) {
+        this.id = id;
+        this.completionDate = completionDate;
+        this.successful = successful;
+        this.resultString = resultString;
+        this.score = score;
+        this.submissionCount = submissionCount;
+        this.participation = new ParticipationDTO(participationId, initializationDate, new StudentDTO(login, firstName, lastName));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public ZonedDateTime getCompletionDate() {
+        return completionDate;
+    }
+
+    public Boolean getSuccessful() {
+        return successful;
+    }
+
+    public String getResultString() {
+        return resultString;
+    }
+
+    public Long getScore() {
+        return score;
+    }
+
+    public Long getSubmissionCount() {
+        return submissionCount;
+    }
+
+    public ParticipationDTO getParticipation() {
+        return participation;
+    }
+
+    @Override
+    public String toString() {
+        return "ExerciseResultDTO{" +
+            "id=" + id +
+            ", completionDate=" + completionDate +
+            ", successful=" + successful +
+            ", submissionCount=" + submissionCount +
+            ", participationId=" + participation.getId() +
+            '}';
+    }
+
+    public static class ParticipationDTO {
+
+        private final Long id;
+
+        private final ZonedDateTime initializationDate;
+
+        private final StudentDTO student;
+
+        private ParticipationDTO(Long id, ZonedDateTime initializationDate, StudentDTO student) {
+            this.id = id;
+            this.initializationDate = initializationDate;
+            this.student = student;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public ZonedDateTime getInitializationDate() {
+            return initializationDate;
+        }
+
+        public StudentDTO getStudent() {
+            return student;
+        }
+    }
+
+    public static class StudentDTO {
+
+        private final String login;
+
+        private final String firstName;
+
+        private final String lastName;
+
+        private StudentDTO(String login, String firstName, String lastName) {
+            this.login = login;
+            this.firstName = firstName;
+            this.lastName = lastName;
+        }
+
+        public String getLogin() {
+            return login;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+    }
+}
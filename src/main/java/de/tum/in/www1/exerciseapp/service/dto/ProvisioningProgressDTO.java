@@ -0,0 +1,107 @@
+package de.tum.in.www1.exerciseapp.service.dto;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A DTO representing the progress of the bulk provisioning of the participations of an exercise.
+ */
+public class ProvisioningProgressDTO {
+
+    private final Long exerciseId;
+
+    private final ZonedDateTime startDate = ZonedDateTime.now();
+
+    private volatile ZonedDateTime finishedDate;
+
+    private volatile int total;
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private final List<String> failedStudents = new CopyOnWriteArrayList<>();
+
+    private final List<String> skippedStudents = new CopyOnWriteArrayList<>();
+
+    public ProvisioningProgressDTO(Long exerciseId) {
+        this.exerciseId = exerciseId;
+    }
+
+    public Long getExerciseId() {
+        return exerciseId;
+    }
+
+    public ZonedDateTime getStartDate() {
+        return startDate;
+    }
+
+    public ZonedDateTime getFinishedDate() {
+        return finishedDate;
+    }
+
+    public boolean isFinished() {
+        return finishedDate != null;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    /**
+     * @return the number of participations which were processed, including the failed ones
+     */
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public int getFailed() {
+        return failedStudents.size();
+    }
+
+    public List<String> getFailedStudents() {
+        return failedStudents;
+    }
+
+    /**
+     * @return the logins of the students in the student group of the course which do not exist as users, they are not included in the total
+     */
+    public List<String> getSkippedStudents() {
+        return skippedStudents;
+    }
+
+    /**
+     * Marks the participation of a student as processed. The job is finished as soon as all participations are processed.
+     *
+     * @param studentLogin the login of the student
+     * @param successful   false if the participation could not be provisioned
+     */
+    public void studentCompleted(String studentLogin, boolean successful) {
+        if (!successful) {
+            failedStudents.add(studentLogin);
+        }
+        if (completed.incrementAndGet() >= total) {
+            finish();
+        }
+    }
+
+    public void finish() {
+        finishedDate = ZonedDateTime.now();
+    }
+
+    @Override
+    public String toString() {
+        return "ProvisioningProgressDTO{" +
+            "exerciseId=" + exerciseId +
+            ", total=" + total +
+            ", completed=" + completed +
+            ", failed=" + failedStudents.size() +
+            ", skipped=" + skippedStudents.size() +
+            ", finished=" + isFinished() +
+            "}";
+    }
+}
@@ -0,0 +1,70 @@
+package de.tum.in.www1.exerciseapp.service.dto;
+
+import de.tum.in.www1.exerciseapp.domain.Exercise;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.Result;
+import de.tum.in.www1.exerciseapp.service.ContinuousIntegrationService;
+
+import java.io.Serializable;
+
+/**
+ * A DTO representing an exercise in the course overview of a student, together with the participation of the student,
+ * its latest result and the build status. Instances are cached and shared, so they must not be modified.
+ */
+public class StudentDashboardExerciseDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Exercise exercise;
+
+    private final Participation participation;
+
+    private final Result latestResult;
+
+    private final ContinuousIntegrationService.BuildStatus buildStatus;
+
+    public StudentDashboardExerciseDTO(Exercise exercise, Participation participation, Result latestResult) {
+        this(exercise, participation, latestResult, null);
+    }
+
+    private StudentDashboardExerciseDTO(Exercise exercise, Participation participation, Result latestResult, ContinuousIntegrationService.BuildStatus buildStatus) {
+        this.exercise = exercise;
+        this.participation = participation;
+        this.latestResult = latestResult;
+        this.buildStatus = buildStatus;
+    }
+
+    /**
+     * @param buildStatus the current build status of the participation
+     * @return a copy of this DTO with the given build status
+     */
+    public StudentDashboardExerciseDTO withBuildStatus(ContinuousIntegrationService.BuildStatus buildStatus) {
+        return new StudentDashboardExerciseDTO(exercise, participation, latestResult, buildStatus);
+    }
+
+    public Exercise getExercise() {
+        return exercise;
+    }
+
+    public Participation getParticipation() {
+        return participation;
+    }
+
+    public Result getLatestResult() {
+        return latestResult;
+    }
+
+    public ContinuousIntegrationService.BuildStatus getBuildStatus() {
+        return buildStatus;
+    }
+
+    @Override
+    public String toString() {
+        return "StudentDashboardExerciseDTO{" +
+            "exerciseId=" + exercise.getId() +
+            ", participationId=" + (participation != null ? participation.getId() : null) +
+            ", latestResultId=" + (latestResult != null ? latestResult.getId() : null) +
+            ", buildStatus=" + buildStatus +
+            '}';
+    }
+}
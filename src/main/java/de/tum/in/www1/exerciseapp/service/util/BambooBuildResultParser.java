@@ -0,0 +1,205 @@
+package de.tum.in.www1.exerciseapp.service.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import de.tum.in.www1.exerciseapp.service.dto.BambooBuildResultDTO;
+import de.tum.in.www1.exerciseapp.service.dto.BambooBuildResultDTO.FailedTestDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Streaming parser for the plan and job result responses of the Bamboo REST API
+ * (e.g. <code>/rest/api/latest/result/{planKey}/latest.json?expand=artifacts</code> or
+ * <code>/rest/api/latest/result/{planKey}-JOB1/latest.json?expand=testResults.failedTests.testResult.errors</code>),
+ * also without expansions.
+ * <p>
+ * Only the fields used by ArTEMiS are read, everything else (e.g. the stack traces of passed jobs, links, labels, ...)
+ * is skipped without being materialized.
+ */
+public final class BambooBuildResultParser {
+
+    // the response stream belongs to the caller, e.g. the RestTemplate closes it with the response
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private BambooBuildResultParser() {
+    }
+
+    /**
+     * Parses a Bamboo build result.
+     *
+     * @param inputStream the JSON response body of Bamboo, which is not closed by this method
+     * @return the parsed build result
+     * @throws IOException if the response could not be read or is not a valid build result
+     */
+    public static BambooBuildResultDTO parse(InputStream inputStream) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Invalid Bamboo build result: expected a JSON object");
+            }
+            BambooBuildResultDTO buildResult = new BambooBuildResultDTO();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case "buildNumber":
+                        buildResult.setBuildNumber(parser.getValueAsInt());
+                        break;
+                    case "successful":
+                        buildResult.setSuccessful(parser.getValueAsBoolean());
+                        break;
+                    case "buildTestSummary":
+                        buildResult.setBuildTestSummary(parser.getValueAsString());
+                        break;
+                    case "buildCompletedDate":
+                        String buildCompletedDate = parser.getValueAsString();
+                        buildResult.setBuildCompletedDate(buildCompletedDate != null ? ZonedDateTime.parse(buildCompletedDate) : null);
+                        break;
+                    case "artifacts":
+                        buildResult.setArtifactLink(parseFirstArtifactLink(parser));
+                        break;
+                    case "testResults":
+                        parseTestResults(parser, buildResult.getFailedTests());
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return buildResult;
+        }
+    }
+
+    /**
+     * Reads <code>{"size": 1, "artifact": [{"link": {"href": "..."}}, ...]}</code> and returns the first href.
+     */
+    private static String parseFirstArtifactLink(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String artifactLink = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if ("artifact".equals(fieldName) && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    String href = parseArtifactHref(parser);
+                    if (artifactLink == null) {
+                        artifactLink = href;
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return artifactLink;
+    }
+
+    private static String parseArtifactHref(JsonParser parser) throws IOException {
+        String href = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if ("link".equals(fieldName) && parser.getCurrentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String linkFieldName = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("href".equals(linkFieldName)) {
+                        href = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return href;
+    }
+
+    /**
+     * Reads <code>{"failedTests": {"testResult": [...]}}</code> and adds the failed tests to the given list.
+     */
+    private static void parseTestResults(JsonParser parser, List<FailedTestDTO> failedTests) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if ("failedTests".equals(fieldName) && parser.getCurrentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String failedTestsFieldName = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("testResult".equals(failedTestsFieldName) && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            failedTests.add(parseFailedTest(parser));
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads <code>{"className": "...", "methodName": "...", "errors": {"error": [{"message": "..."}, ...]}}</code>.
+     */
+    private static FailedTestDTO parseFailedTest(JsonParser parser) throws IOException {
+        FailedTestDTO failedTest = new FailedTestDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "className":
+                    failedTest.setClassName(parser.getValueAsString());
+                    break;
+                case "methodName":
+                    failedTest.setMethodName(parser.getValueAsString());
+                    break;
+                case "errors":
+                    parseErrors(parser, failedTest.getErrorMessages());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return failedTest;
+    }
+
+    private static void parseErrors(JsonParser parser, List<String> errorMessages) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if ("error".equals(fieldName) && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String errorFieldName = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("message".equals(errorFieldName)) {
+                            String message = parser.getValueAsString();
+                            if (message != null) {
+                                errorMessages.add(message);
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -2,24 +2,31 @@ package de.tum.in.www1.exerciseapp.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import de.tum.in.www1.exerciseapp.domain.Course;
-import de.tum.in.www1.exerciseapp.domain.Result;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.service.ContinuousIntegrationService;
+import de.tum.in.www1.exerciseapp.service.CourseScoreService;
 import de.tum.in.www1.exerciseapp.service.CourseService;
+import de.tum.in.www1.exerciseapp.service.StudentDashboardService;
 
 import de.tum.in.www1.exerciseapp.repository.CourseRepository;
+import de.tum.in.www1.exerciseapp.service.dto.CourseScoreDTO;
+import de.tum.in.www1.exerciseapp.service.dto.StudentDashboardExerciseDTO;
 import de.tum.in.www1.exerciseapp.web.rest.errors.BadRequestAlertException;
 import de.tum.in.www1.exerciseapp.web.rest.util.HeaderUtil;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Collection;
+import java.security.Principal;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing Course.
@@ -34,9 +41,15 @@ public class CourseResource {
     private static final String ENTITY_NAME = "course";
 
     private final CourseService courseService;
+    private final CourseScoreService courseScoreService;
+    private final StudentDashboardService studentDashboardService;
+    private final Optional<ContinuousIntegrationService> continuousIntegrationService;
 
-    public CourseResource(CourseService courseService) {
+    public CourseResource(CourseService courseService, CourseScoreService courseScoreService, StudentDashboardService studentDashboardService, Optional<ContinuousIntegrationService> continuousIntegrationService) {
         this.courseService = courseService;
+        this.courseScoreService = courseScoreService;
+        this.studentDashboardService = studentDashboardService;
+        this.continuousIntegrationService = continuousIntegrationService;
     }
 
     /**
@@ -111,6 +124,49 @@ public class CourseResource {
         return ResponseUtil.wrapOrNotFound(Optional.ofNullable(course));
     }
 
+    /**
+     * GET  /courses/:courseId/dashboard : get the exercises of the course for the course overview of the current user,
+     * each with the user's participation, its latest result and the current build status.
+     *
+     * @param courseId  the id of the course
+     * @param principal the current user principal
+     * @return the ResponseEntity with status 200 (OK) and with body one entry per exercise, with status 404 (Not Found)
+     * if the course does not exist, or with status 403 (Forbidden) if the user is not a member of the course
+     */
+    @GetMapping("/courses/{courseId}/dashboard")
+    @PreAuthorize("hasAnyRole('USER', 'TA', 'ADMIN')")
+    @Timed
+    public ResponseEntity<List<StudentDashboardExerciseDTO>> getDashboard(@PathVariable Long courseId, Principal principal) {
+        log.debug("REST request to get the dashboard of Course : {}", courseId);
+        Course course = courseService.findOne(courseId);
+        if (course == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!courseService.isMemberOfCourse(course)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        List<StudentDashboardExerciseDTO> dashboard = studentDashboardService.getDashboard(courseId, principal.getName()).stream()
+            .map(entry -> entry.getParticipation() == null ? entry : entry.withBuildStatus(getBuildStatus(entry.getParticipation())))
+            .collect(Collectors.toList());
+        return ResponseEntity.ok(dashboard);
+    }
+
+    /**
+     * The build status is not cached with the dashboard, it is only cached for a few seconds by the CI service.
+     */
+    private ContinuousIntegrationService.BuildStatus getBuildStatus(Participation participation) {
+        if (participation.getBuildPlanId() == null || !continuousIntegrationService.isPresent()) {
+            return ContinuousIntegrationService.BuildStatus.INACTIVE;
+        }
+        try {
+            return continuousIntegrationService.get().getBuildStatus(participation);
+        } catch (Exception e) {
+            // the dashboard is still shown, the result component asks for the status again on the next result
+            log.warn("Could not get the build status of participation {}: {}", participation.getId(), e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * DELETE  /courses/:id : delete the "id" course.
      *
@@ -128,18 +184,49 @@ public class CourseResource {
 
 
     /**
-     * GET /user/:courseId/courseResult
+     * GET /courses/:courseId/getAllCourseScoresOfCourseUsers
      *
      * @param courseId the Id of the course
-     * @return collection of Results where the sum of the best result per exercise, for each student in a course is cointained:
-     *  ResultId refers in this case to the studentId, the score still needs to be divided by the amount of exercises (done in the webapp)
+     * @return list of the scores of the students in the course: the sum of the relevant result per exercise,
+     *  divided by the amount of exercises
      */
     @GetMapping("/courses/{courseId}/getAllCourseScoresOfCourseUsers")
     @PreAuthorize("hasAnyRole('TA', 'ADMIN')")
     @Timed
-    public ResponseEntity<Collection<Result>> getAllSummedScoresOfCourseUsers(@PathVariable("courseId") Long courseId){
+    public ResponseEntity<List<CourseScoreDTO>> getAllSummedScoresOfCourseUsers(@PathVariable("courseId") Long courseId){
         log.debug("REST request to get courseScores from course : {}", courseId);
-        return ResponseEntity.ok(courseService.getAllOverallScoresOfCourse(courseId));
+        return ResponseEntity.ok(courseScoreService.getAverageScores(courseId));
+    }
+
+    /**
+     * POST /courses/:courseId/scores/rebuild : recalculate the scores of all students of the course from their results
+     *
+     * @param courseId the Id of the course
+     * @return the ResponseEntity with status 200 (OK) and the number of students with a score in the body
+     */
+    @PostMapping("/courses/{courseId}/scores/rebuild")
+    @PreAuthorize("hasAnyRole('ADMIN')")
+    @Timed
+    public ResponseEntity<Integer> rebuildScoresOfCourse(@PathVariable("courseId") Long courseId) {
+        log.debug("REST request to rebuild the scores of course : {}", courseId);
+        return ResponseEntity.ok(courseScoreService.rebuildScores(courseId));
+    }
+
+    /**
+     * POST /courses/scores/rebuild : recalculate the scores of all students of all courses in the background, e.g. after
+     * an update
+     *
+     * @return the ResponseEntity with status 202 (Accepted), also if the scores of all courses are being rebuilt already
+     */
+    @PostMapping("/courses/scores/rebuild")
+    @PreAuthorize("hasAnyRole('ADMIN')")
+    @Timed
+    public ResponseEntity<Void> rebuildAllScores() {
+        log.debug("REST request to rebuild the scores of all courses");
+        if (!courseScoreService.startRebuildAllScores()) {
+            log.info("The scores of all courses are being rebuilt already");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).build();
     }
 
 }
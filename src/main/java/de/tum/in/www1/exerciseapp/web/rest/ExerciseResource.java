@@ -1,12 +1,19 @@
 package de.tum.in.www1.exerciseapp.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import de.tum.in.www1.exerciseapp.domain.Course;
 import de.tum.in.www1.exerciseapp.domain.Exercise;
 import de.tum.in.www1.exerciseapp.domain.ProgrammingExercise;
 import de.tum.in.www1.exerciseapp.repository.ExerciseRepository;
 import de.tum.in.www1.exerciseapp.service.ContinuousIntegrationService;
+import de.tum.in.www1.exerciseapp.service.CourseScoreService;
+import de.tum.in.www1.exerciseapp.service.CourseService;
+import de.tum.in.www1.exerciseapp.service.ExerciseJobService;
 import de.tum.in.www1.exerciseapp.service.ExerciseService;
+import de.tum.in.www1.exerciseapp.service.ParticipationProvisioningService;
 import de.tum.in.www1.exerciseapp.service.VersionControlService;
+import de.tum.in.www1.exerciseapp.service.dto.ExerciseJobDTO;
+import de.tum.in.www1.exerciseapp.service.dto.ProvisioningProgressDTO;
 import de.tum.in.www1.exerciseapp.web.rest.errors.BadRequestAlertException;
 import de.tum.in.www1.exerciseapp.web.rest.util.HeaderUtil;
 import de.tum.in.www1.exerciseapp.web.rest.util.PaginationUtil;
@@ -14,9 +21,9 @@ import io.github.jhipster.web.util.ResponseUtil;
 import io.swagger.annotations.ApiParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -28,17 +35,18 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.Principal;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -54,16 +62,28 @@ public class ExerciseResource {
 
     private static final String ENTITY_NAME = "exercise";
 
+    // in seconds, how long the download of the archive of all repositories of an exercise may take
+    @Value("${artemis.exercise-jobs.archive-download-timeout:3600}")
+    private long ARCHIVE_DOWNLOAD_TIMEOUT;
+
     private final ExerciseRepository exerciseRepository;
     private final ExerciseService exerciseService;
     private final Optional<ContinuousIntegrationService> continuousIntegrationService;
     private final Optional<VersionControlService> versionControlService;
+    private final ParticipationProvisioningService participationProvisioningService;
+    private final ExerciseJobService exerciseJobService;
+    private final CourseScoreService courseScoreService;
+    private final CourseService courseService;
 
-    public ExerciseResource(ExerciseRepository exerciseRepository, ExerciseService exerciseService, Optional<ContinuousIntegrationService> continuousIntegrationService, Optional<VersionControlService> versionControlService) {
+    public ExerciseResource(ExerciseRepository exerciseRepository, ExerciseService exerciseService, Optional<ContinuousIntegrationService> continuousIntegrationService, Optional<VersionControlService> versionControlService, ParticipationProvisioningService participationProvisioningService, ExerciseJobService exerciseJobService, CourseScoreService courseScoreService, CourseService courseService) {
         this.exerciseRepository = exerciseRepository;
         this.exerciseService = exerciseService;
         this.continuousIntegrationService = continuousIntegrationService;
         this.versionControlService = versionControlService;
+        this.participationProvisioningService = participationProvisioningService;
+        this.exerciseJobService = exerciseJobService;
+        this.courseScoreService = courseScoreService;
+        this.courseService = courseService;
     }
 
     /**
@@ -133,7 +153,11 @@ public class ExerciseResource {
                 return errorResponse;
             }
         }
+        Exercise previousExercise = exerciseRepository.findOne(exercise.getId());
+        ZonedDateTime previousDueDate = previousExercise != null ? previousExercise.getDueDate() : null;
+        Course previousCourse = previousExercise != null ? previousExercise.getCourse() : null;
         Exercise result = exerciseRepository.save(exercise);
+        courseScoreService.onExerciseUpdated(result, previousDueDate, previousCourse);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, exercise.getId().toString()))
             .body(result);
@@ -225,64 +249,161 @@ public class ExerciseResource {
     }
 
     /**
-     * GET  /exercises/:id/cleanup : delete all build plans (except BASE) of all participations belonging to this exercise. Optionally delete and archive all repositories
+     * DELETE  /exercises/:id/cleanup : start a background job which deletes all build plans (except BASE) of all participations belonging to this exercise. Optionally delete and archive all repositories
      *
      * @param id the id of the exercise to delete build plans for
      * @param deleteRepositories whether repositories should be deleted or not
-     * @return ResponseEntity with status
+     * @return the ResponseEntity with status 202 (Accepted) and with body the started job, or with status 400 (Bad Request) if the exercise is not a programming exercise
      */
     @DeleteMapping(value = "/exercises/{id}/cleanup")
     @PreAuthorize("hasAnyRole('ADMIN', 'TA')")
     @Timed
-    public ResponseEntity<Resource> cleanup(@PathVariable Long id, @RequestParam(defaultValue = "false") boolean deleteRepositories) throws IOException {
+    public ResponseEntity<ExerciseJobDTO> cleanup(@PathVariable Long id, @RequestParam(defaultValue = "false") boolean deleteRepositories) {
         log.info("Start to cleanup build plans for Exercise: {}, delete repositories: {}", id, deleteRepositories);
-        if (deleteRepositories) {
-            File zipFile = exerciseService.cleanup(id, deleteRepositories);
-            if (zipFile == null) {
-                return ResponseEntity.ok()
-                    .headers(HeaderUtil.createAlert("The zip file could not be created, possibly because all repositories have already been deleted or this is not a programming exercise.", ""))
-                    .build();
-            }
-            InputStreamResource resource = new InputStreamResource(new FileInputStream(zipFile));
-            log.info("Cleanup build plans and archive repositories was successful for Exercise : {}", id);
-            return ResponseEntity.ok()
-                .contentLength(zipFile.length())
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header("filename", zipFile.getName())
-                .body(resource);
-        }
-        else {
-            exerciseService.cleanup(id, deleteRepositories);
-            log.info("Cleanup build plans was successful for Exercise : {}", id);
-            return ResponseEntity.ok().headers(HeaderUtil.createAlert("Cleanup was successful.", "")).build();
+        Exercise exercise = exerciseService.findOne(id);
+        if (!(exercise instanceof ProgrammingExercise)) {
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createAlert("Only programming exercises can be cleaned up.", ""))
+                .build();
         }
+        ExerciseJobDTO job = exerciseJobService.startCleanup((ProgrammingExercise) exercise, deleteRepositories);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
     }
 
 
     /**
-     * GET  /exercises/:id/archive : archive all repositories (except BASE) of all participations belonging to this exercise into a zip file and provide a downloadable link.
+     * GET  /exercises/:id/archive : start a background job which archives all repositories (except BASE) of all participations belonging to this exercise into a zip file.
      *
-     * @param id the id of the exercise to delete and archive the repositories
-     * @return ResponseEntity with status
+     * @param id the id of the exercise to archive the repositories
+     * @return the ResponseEntity with status 202 (Accepted) and with body the started job, or with status 400 (Bad Request) if the exercise is not a programming exercise
      */
     @GetMapping(value = "/exercises/{id}/archive")
     @PreAuthorize("hasAnyRole('ADMIN', 'TA')")
     @Timed
-    public ResponseEntity<Resource> archiveRepositories(@PathVariable Long id) throws IOException {
+    public ResponseEntity<ExerciseJobDTO> archiveRepositories(@PathVariable Long id) {
         log.info("Start to archive repositories for Exercise : {}", id);
-        File zipFile = exerciseService.archive(id);
-        if (zipFile == null) {
-            return ResponseEntity.noContent()
-                .headers(HeaderUtil.createAlert("There was an error on the server and the zip file could not be created, possibly because all repositories have already been deleted or this is not a programming exercise.", ""))
+        Exercise exercise = exerciseService.findOne(id);
+        if (!(exercise instanceof ProgrammingExercise)) {
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createAlert("Only the repositories of programming exercises can be archived.", ""))
                 .build();
         }
-        InputStreamResource resource = new InputStreamResource(new FileInputStream(zipFile));
-        log.info("Archive repositories was successful for Exercise : {}", id);
+        ExerciseJobDTO job = exerciseJobService.startArchive((ProgrammingExercise) exercise);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    /**
+     * GET  /exercises/:id/archive/download : stream one zip file with all repositories of all participations belonging to this exercise.
+     * The repositories are written into the response while they are fetched, so the download starts immediately.
+     * The download has its own timeout, as it takes much longer than other asynchronous requests.
+     *
+     * @param id the id of the exercise to archive the repositories
+     * @param response the response into which the zip file is written
+     * @return the task which writes the zip file with status 200 (OK)
+     * @throws BadRequestAlertException 400 (Bad Request) if the exercise is not a programming exercise
+     */
+    @GetMapping(value = "/exercises/{id}/archive/download")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TA')")
+    @Timed
+    public WebAsyncTask<Void> downloadArchive(@PathVariable Long id, HttpServletResponse response) {
+        log.info("Stream the archive of the repositories for Exercise : {}", id);
+        Exercise exercise = exerciseService.findOne(id);
+        if (!(exercise instanceof ProgrammingExercise)) {
+            throw new BadRequestAlertException("Only the repositories of programming exercises can be archived.", ENTITY_NAME, "noprogrammingexercise");
+        }
+        String fileName = (exercise.getCourse().getTitle() + " " + exercise.getTitle() + " Student Repositories.zip").replaceAll("[\"\\\\]", "");
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        response.setHeader("filename", fileName);
+        return new WebAsyncTask<>(ARCHIVE_DOWNLOAD_TIMEOUT * 1000, () -> {
+            exerciseJobService.writeArchive((ProgrammingExercise) exercise, response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
+    }
+
+    /**
+     * GET  /exercise-jobs/:jobId : get the progress of a cleanup or archive job.
+     *
+     * @param jobId the id of the job
+     * @return the ResponseEntity with status 200 (OK) and with body the job, or with status 404 (Not Found)
+     */
+    @GetMapping(value = "/exercise-jobs/{jobId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TA')")
+    @Timed
+    public ResponseEntity<ExerciseJobDTO> getExerciseJob(@PathVariable String jobId) {
+        log.debug("REST request to get exercise job : {}", jobId);
+        return ResponseUtil.wrapOrNotFound(exerciseJobService.getJob(jobId));
+    }
+
+    /**
+     * GET  /exercise-jobs/:jobId/result : download the zip file created by a finished cleanup or archive job.
+     *
+     * @param jobId the id of the job
+     * @return the ResponseEntity with status 200 (OK) and with body the zip file, or with status 404 (Not Found) if the job or its result does not exist (anymore)
+     */
+    @GetMapping(value = "/exercise-jobs/{jobId}/result")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TA')")
+    @Timed
+    public ResponseEntity<Resource> getExerciseJobResult(@PathVariable String jobId) {
+        log.debug("REST request to get the result of exercise job : {}", jobId);
+        Optional<File> zipFile = exerciseJobService.getJob(jobId)
+            .map(ExerciseJobDTO::getResultFile)
+            .map(Path::toFile)
+            .filter(File::isFile);
+        if (!zipFile.isPresent()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
         return ResponseEntity.ok()
-            .contentLength(zipFile.length())
+            .contentLength(zipFile.get().length())
             .contentType(MediaType.APPLICATION_OCTET_STREAM)
-            .header("filename", zipFile.getName())
-            .body(resource);
+            .header("filename", zipFile.get().getName())
+            .body(new FileSystemResource(zipFile.get()));
+    }
+
+    /**
+     * POST  /exercises/:id/provision-participations : create the participations (repositories and build plans) of all students
+     * of the course in the "id" exercise in the background, e.g. before the exercise is released.
+     *
+     * @param id the id of the programming exercise for which to provision the participations
+     * @return the ResponseEntity with status 202 (Accepted) and with body the progress of the provisioning, or with status 400 (Bad Request) if the exercise is not a programming exercise,
+     * or with status 403 (Forbidden) if the user is not an instructor or teaching assistant of the course
+     */
+    @PostMapping(value = "/exercises/{id}/provision-participations")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TA')")
+    @Timed
+    public ResponseEntity<ProvisioningProgressDTO> provisionParticipations(@PathVariable Long id) {
+        log.debug("REST request to provision the participations of Exercise : {}", id);
+        Exercise exercise = exerciseService.findOne(id);
+        if (exercise != null && !courseService.isInstructorOrTeachingAssistantInCourse(exercise.getCourse())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!(exercise instanceof ProgrammingExercise)) {
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createAlert("Participations can only be provisioned for programming exercises.", ""))
+                .build();
+        }
+        ProvisioningProgressDTO progress = participationProvisioningService.startProvisioning((ProgrammingExercise) exercise);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(progress);
+    }
+
+    /**
+     * GET  /exercises/:id/provision-participations : get the progress of the latest provisioning of the "id" exercise.
+     *
+     * @param id the id of the exercise
+     * @return the ResponseEntity with status 200 (OK) and with body the progress, or with status 404 (Not Found),
+     * or with status 403 (Forbidden) if the user is not an instructor or teaching assistant of the course
+     */
+    @GetMapping(value = "/exercises/{id}/provision-participations")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TA')")
+    @Timed
+    public ResponseEntity<ProvisioningProgressDTO> getProvisioningProgress(@PathVariable Long id) {
+        log.debug("REST request to get the provisioning progress of Exercise : {}", id);
+        Exercise exercise = exerciseService.findOne(id);
+        if (exercise != null && !courseService.isInstructorOrTeachingAssistantInCourse(exercise.getCourse())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseUtil.wrapOrNotFound(participationProvisioningService.getProgress(id));
     }
 
 }
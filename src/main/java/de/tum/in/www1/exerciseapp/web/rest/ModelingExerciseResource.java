@@ -1,8 +1,10 @@
 package de.tum.in.www1.exerciseapp.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import de.tum.in.www1.exerciseapp.domain.Course;
 import de.tum.in.www1.exerciseapp.domain.ModelingExercise;
 import de.tum.in.www1.exerciseapp.repository.ModelingExerciseRepository;
+import de.tum.in.www1.exerciseapp.service.CourseScoreService;
 import de.tum.in.www1.exerciseapp.web.rest.util.HeaderUtil;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,8 +30,10 @@ public class ModelingExerciseResource {
     private static final String ENTITY_NAME = "modelingExercise";
 
     private final ModelingExerciseRepository modelingExerciseRepository;
-    public ModelingExerciseResource(ModelingExerciseRepository modelingExerciseRepository) {
+    private final CourseScoreService courseScoreService;
+    public ModelingExerciseResource(ModelingExerciseRepository modelingExerciseRepository, CourseScoreService courseScoreService) {
         this.modelingExerciseRepository = modelingExerciseRepository;
+        this.courseScoreService = courseScoreService;
     }
 
     /**
@@ -67,7 +72,11 @@ public class ModelingExerciseResource {
         if (modelingExercise.getId() == null) {
             return createModelingExercise(modelingExercise);
         }
+        ModelingExercise previousModelingExercise = modelingExerciseRepository.findOne(modelingExercise.getId());
+        ZonedDateTime previousDueDate = previousModelingExercise != null ? previousModelingExercise.getDueDate() : null;
+        Course previousCourse = previousModelingExercise != null ? previousModelingExercise.getCourse() : null;
         ModelingExercise result = modelingExerciseRepository.save(modelingExercise);
+        courseScoreService.onExerciseUpdated(result, previousDueDate, previousCourse);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, modelingExercise.getId().toString()))
             .body(result);
@@ -109,7 +118,9 @@ public class ModelingExerciseResource {
     @Timed
     public ResponseEntity<Void> deleteModelingExercise(@PathVariable Long id) {
         log.debug("REST request to delete ModelingExercise : {}", id);
+        ModelingExercise modelingExercise = modelingExerciseRepository.findOne(id);
         modelingExerciseRepository.delete(id);
+        courseScoreService.onExerciseDeleted(modelingExercise);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
     }
 }
@@ -27,7 +27,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.Principal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -306,6 +308,34 @@ public class ParticipationResource {
             .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * GET  /participations/status: get the build status of multiple participations at once.
+     * Students only get the status of their own participations.
+     *
+     * @param participationIds the ids of the participations
+     * @param authentication   the current user authentication
+     * @return the ResponseEntity with status 200 (OK) and with body a map from participation id to build status
+     */
+    @GetMapping(value = "/participations/status")
+    @PreAuthorize("hasAnyRole('USER', 'TA', 'ADMIN')")
+    @Timed
+    public ResponseEntity<Map<Long, ContinuousIntegrationService.BuildStatus>> getParticipationStatuses(@RequestParam List<Long> participationIds, AbstractAuthenticationToken authentication) {
+        log.debug("REST request to get build status of Participations : {}", participationIds);
+        boolean isPrivilegedUser = authentication.getAuthorities().contains(adminAuthority) || authentication.getAuthorities().contains(taAuthority);
+        Map<Long, ContinuousIntegrationService.BuildStatus> buildStatuses = new HashMap<>();
+        for (Participation participation : participationRepository.findAll(participationIds)) {
+            if (!isPrivilegedUser && (participation.getStudent() == null || !participation.getStudent().getLogin().equals(authentication.getName()))) {
+                continue;
+            }
+            if (participation.getBuildPlanId() == null) {
+                buildStatuses.put(participation.getId(), ContinuousIntegrationService.BuildStatus.INACTIVE);
+            } else {
+                buildStatuses.put(participation.getId(), continuousIntegrationService.get().getBuildStatus(participation));
+            }
+        }
+        return new ResponseEntity<>(buildStatuses, HttpStatus.OK);
+    }
+
     /**
      * DELETE  /participations/:id : delete the "id" participation.
      *
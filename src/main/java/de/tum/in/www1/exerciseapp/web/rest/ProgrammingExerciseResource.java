@@ -1,9 +1,11 @@
 package de.tum.in.www1.exerciseapp.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import de.tum.in.www1.exerciseapp.domain.Course;
 import de.tum.in.www1.exerciseapp.domain.ProgrammingExercise;
 import de.tum.in.www1.exerciseapp.repository.ProgrammingExerciseRepository;
 import de.tum.in.www1.exerciseapp.service.ContinuousIntegrationService;
+import de.tum.in.www1.exerciseapp.service.CourseScoreService;
 import de.tum.in.www1.exerciseapp.service.VersionControlService;
 import de.tum.in.www1.exerciseapp.web.rest.util.HeaderUtil;
 import io.github.jhipster.web.util.ResponseUtil;
@@ -16,6 +18,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,11 +36,13 @@ public class ProgrammingExerciseResource {
     private final ProgrammingExerciseRepository programmingExerciseRepository;
     private final Optional<ContinuousIntegrationService> continuousIntegrationService;
     private final Optional<VersionControlService> versionControlService;
+    private final CourseScoreService courseScoreService;
 
-    public ProgrammingExerciseResource(ProgrammingExerciseRepository programmingExerciseRepository, Optional<ContinuousIntegrationService> continuousIntegrationService, Optional<VersionControlService> versionControlService) {
+    public ProgrammingExerciseResource(ProgrammingExerciseRepository programmingExerciseRepository, Optional<ContinuousIntegrationService> continuousIntegrationService, Optional<VersionControlService> versionControlService, CourseScoreService courseScoreService) {
         this.programmingExerciseRepository = programmingExerciseRepository;
         this.continuousIntegrationService = continuousIntegrationService;
         this.versionControlService = versionControlService;
+        this.courseScoreService = courseScoreService;
     }
 
     /**
@@ -101,7 +106,11 @@ public class ProgrammingExerciseResource {
         if(errorResponse != null) {
             return errorResponse;
         }
+        ProgrammingExercise previousProgrammingExercise = programmingExerciseRepository.findOne(programmingExercise.getId());
+        ZonedDateTime previousDueDate = previousProgrammingExercise != null ? previousProgrammingExercise.getDueDate() : null;
+        Course previousCourse = previousProgrammingExercise != null ? previousProgrammingExercise.getCourse() : null;
         ProgrammingExercise result = programmingExerciseRepository.save(programmingExercise);
+        courseScoreService.onExerciseUpdated(result, previousDueDate, previousCourse);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, programmingExercise.getId().toString()))
             .body(result);
@@ -160,7 +169,9 @@ public class ProgrammingExerciseResource {
     @Timed
     public ResponseEntity<Void> deleteProgrammingExercise(@PathVariable Long id) {
         log.debug("REST request to delete ProgrammingExercise : {}", id);
+        ProgrammingExercise programmingExercise = programmingExerciseRepository.findOne(id);
         programmingExerciseRepository.delete(id);
+        courseScoreService.onExerciseDeleted(programmingExercise);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
     }
 }
@@ -1,11 +1,13 @@
 package de.tum.in.www1.exerciseapp.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import de.tum.in.www1.exerciseapp.domain.Course;
 import de.tum.in.www1.exerciseapp.domain.AnswerOption;
 import de.tum.in.www1.exerciseapp.domain.MultipleChoiceQuestion;
 import de.tum.in.www1.exerciseapp.domain.Question;
 import de.tum.in.www1.exerciseapp.domain.QuizExercise;
 import de.tum.in.www1.exerciseapp.repository.QuizExerciseRepository;
+import de.tum.in.www1.exerciseapp.service.CourseScoreService;
 import de.tum.in.www1.exerciseapp.web.rest.util.HeaderUtil;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
@@ -17,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,9 +35,11 @@ public class QuizExerciseResource {
     private static final String ENTITY_NAME = "quizExercise";
 
     private final QuizExerciseRepository quizExerciseRepository;
+    private final CourseScoreService courseScoreService;
 
-    public QuizExerciseResource(QuizExerciseRepository quizExerciseRepository) {
+    public QuizExerciseResource(QuizExerciseRepository quizExerciseRepository, CourseScoreService courseScoreService) {
         this.quizExerciseRepository = quizExerciseRepository;
+        this.courseScoreService = courseScoreService;
     }
 
     /**
@@ -98,7 +103,11 @@ public class QuizExerciseResource {
         // save result
         // Note: save will automatically remove deleted questions from the exercise and deleted answer options from the questions
         //       and delete the now orphaned entries from the database
+        QuizExercise previousQuizExercise = quizExerciseRepository.findOne(quizExercise.getId());
+        ZonedDateTime previousDueDate = previousQuizExercise != null ? previousQuizExercise.getDueDate() : null;
+        Course previousCourse = previousQuizExercise != null ? previousQuizExercise.getCourse() : null;
         QuizExercise result = quizExerciseRepository.save(quizExercise);
+        courseScoreService.onExerciseUpdated(result, previousDueDate, previousCourse);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, quizExercise.getId().toString()))
             .body(result);
@@ -157,7 +166,9 @@ public class QuizExerciseResource {
     @Timed
     public ResponseEntity<Void> deleteQuizExercise(@PathVariable Long id) {
         log.debug("REST request to delete QuizExercise : {}", id);
+        QuizExercise quizExercise = quizExerciseRepository.findOne(id);
         quizExerciseRepository.delete(id);
+        courseScoreService.onExerciseDeleted(quizExercise);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
     }
 }
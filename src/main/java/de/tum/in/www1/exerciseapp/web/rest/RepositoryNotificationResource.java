@@ -0,0 +1,71 @@
+package de.tum.in.www1.exerciseapp.web.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.tum.in.www1.exerciseapp.service.GitService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+/**
+ * REST controller for notifications of the version control server about changes in repositories.
+ */
+@RestController
+@RequestMapping({"/api", "/api_basic"})
+public class RepositoryNotificationResource {
+
+    private final Logger log = LoggerFactory.getLogger(RepositoryNotificationResource.class);
+
+    // shared with the webhook of the version control server, notifications are rejected if it is not configured
+    @Value("${artemis.bitbucket.notification-token:}")
+    private String NOTIFICATION_TOKEN;
+
+    private final Optional<GitService> gitService;
+
+    public RepositoryNotificationResource(Optional<GitService> gitService) {
+        this.gitService = gitService;
+    }
+
+    /**
+     * POST  /repository-notifications : Notify the application about a push to a repository.
+     * This API is invoked by a Bitbucket webhook (event "repo:refs_changed"), so that the online editor pulls the
+     * changes on its next status check. The URL of the webhook has to contain the configured notification token.
+     *
+     * @param token   the notification token, as configured in artemis.bitbucket.notification-token
+     * @param payload the payload of the webhook, containing the slug and the project key of the repository
+     * @return the ResponseEntity with status 200 (OK), with status 403 (Forbidden) if the token is wrong or not configured,
+     * or with status 400 (Bad Request) if the payload does not describe a repository
+     */
+    @PostMapping(value = "/repository-notifications")
+    public ResponseEntity<Void> notifyPush(@RequestParam(value = "token", required = false) String token, @RequestBody JsonNode payload) {
+        if (!isValidToken(token)) {
+            log.warn("Rejected a repository notification with an invalid token");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        JsonNode repository = payload.path("repository");
+        String projectKey = repository.path("project").path("key").asText(null);
+        String repositorySlug = repository.path("slug").asText(null);
+        if (projectKey == null || repositorySlug == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.debug("REST request to notify a push to repository {}/{}", projectKey, repositorySlug);
+        gitService.ifPresent(service -> service.remoteRepositoryChanged(projectKey, repositorySlug));
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Compares the token in constant time, so that the configured token cannot be guessed from the response times.
+     */
+    private boolean isValidToken(String token) {
+        if (NOTIFICATION_TOKEN == null || NOTIFICATION_TOKEN.isEmpty() || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(NOTIFICATION_TOKEN.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,14 +5,24 @@ import de.tum.in.www1.exerciseapp.domain.File;
 import de.tum.in.www1.exerciseapp.domain.Participation;
 import de.tum.in.www1.exerciseapp.domain.Repository;
 import de.tum.in.www1.exerciseapp.security.AuthoritiesConstants;
+import de.tum.in.www1.exerciseapp.service.BuildLogService;
 import de.tum.in.www1.exerciseapp.service.ContinuousIntegrationService;
+import de.tum.in.www1.exerciseapp.service.DeferredCommitService;
 import de.tum.in.www1.exerciseapp.service.GitService;
 import de.tum.in.www1.exerciseapp.service.ParticipationService;
 import de.tum.in.www1.exerciseapp.web.rest.dto.RepositoryStatusDTO;
 import de.tum.in.www1.exerciseapp.web.rest.util.HeaderUtil;
+import de.tum.in.www1.exerciseapp.web.rest.util.PaginationUtil;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -45,14 +55,18 @@ public class RepositoryResource {
 
     private final Optional<ContinuousIntegrationService> continuousIntegrationService;
     private final Optional<GitService> gitService;
+    private final BuildLogService buildLogService;
+    private final DeferredCommitService deferredCommitService;
 
     private final GrantedAuthority adminAuthority = new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN);
     private final GrantedAuthority taAuthority = new SimpleGrantedAuthority(AuthoritiesConstants.TEACHING_ASSISTANT);
 
-    public RepositoryResource(ParticipationService participationService, Optional<GitService> gitService, Optional<ContinuousIntegrationService> continuousIntegrationService) {
+    public RepositoryResource(ParticipationService participationService, Optional<GitService> gitService, Optional<ContinuousIntegrationService> continuousIntegrationService, BuildLogService buildLogService, DeferredCommitService deferredCommitService) {
         this.participationService = participationService;
         this.gitService = gitService;
         this.continuousIntegrationService = continuousIntegrationService;
+        this.buildLogService = buildLogService;
+        this.deferredCommitService = deferredCommitService;
     }
 
     /**
@@ -75,13 +89,17 @@ public class RepositoryResource {
         }
 
         Repository repository = gitService.get().getOrCheckoutRepository(participation);
-        Iterator<File> itr = gitService.get().listFiles(repository).iterator();
 
-        Collection<String> fileList = new LinkedList<>();
+        Collection<String> fileList = gitService.get().executeWithReadLock(repository, () -> {
+            Iterator<File> itr = gitService.get().listFiles(repository).iterator();
 
-        while (itr.hasNext()) {
-            fileList.add(itr.next().toString());
-        }
+            Collection<String> files = new LinkedList<>();
+
+            while (itr.hasNext()) {
+                files.add(itr.next().toString());
+            }
+            return files;
+        });
 
         return new ResponseEntity<>(fileList, HttpStatus.OK);
     }
@@ -99,7 +117,9 @@ public class RepositoryResource {
      */
     @GetMapping(value = "/repository/{id}/file", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
     @PreAuthorize("hasPermission(#id, 'Repository', 'read')")
-    public ResponseEntity<String> getFile(@PathVariable Long id, @RequestParam("file")  String filename, AbstractAuthenticationToken authentication) throws IOException, GitAPIException {
+    public ResponseEntity<Resource> getFile(@PathVariable Long id, @RequestParam("file")  String filename,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                            AbstractAuthenticationToken authentication) throws IOException, GitAPIException {
         log.debug("REST request to file {} for Participation : {}", filename, id);
         Participation participation = participationService.findOne(id);
 
@@ -109,19 +129,29 @@ public class RepositoryResource {
 
         Repository repository = gitService.get().getOrCheckoutRepository(participation);
 
-        Optional<File> file = gitService.get().getFileByName(repository, filename);
-
-        if(!file.isPresent()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-
-        InputStream inputStream = new FileInputStream(file.get());
-
-        byte[]out=org.apache.commons.io.IOUtils.toByteArray(inputStream);
-
-        HttpHeaders responseHeaders = new HttpHeaders();
-        responseHeaders.setContentType(MediaType.TEXT_PLAIN);
-        return new ResponseEntity(out, responseHeaders, HttpStatus.OK);
+        return gitService.get().executeWithReadLock(repository, () -> {
+            Optional<File> file = gitService.get().getFileByName(repository, filename);
+
+            if(!file.isPresent()) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+
+            // the blob id only changes if the content of the file changes
+            String eTag = "\"" + gitService.get().getBlobId(file.get()).name() + "\"";
+            if (ifNoneMatch != null && (ifNoneMatch.contains(eTag) || ifNoneMatch.trim().equals("*"))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+
+            // The stream can still be read after the lock is released: updating or deleting a file replaces it
+            // with a new one, so the opened file is not modified.
+            return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_PLAIN)
+                .contentLength(file.get().length())
+                .eTag(eTag)
+                // allow the browser to cache the file, but it has to revalidate it on each request
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(new InputStreamResource(new FileInputStream(file.get())));
+        });
     }
 
 
@@ -148,25 +178,28 @@ public class RepositoryResource {
 
         Repository repository = gitService.get().getOrCheckoutRepository(participation);
 
-        if(gitService.get().getFileByName(repository, filename).isPresent()) {
-            // File already existing. Conflict.
-            return new ResponseEntity<>(HttpStatus.CONFLICT);
-        }
+        return gitService.get().executeWithWriteLock(repository, () -> {
+            if(gitService.get().getFileByName(repository, filename).isPresent()) {
+                // File already existing. Conflict.
+                return new ResponseEntity<>(HttpStatus.CONFLICT);
+            }
 
-        File file = new File(new java.io.File(repository.getLocalPath() + File.separator + filename), repository);
+            File file = new File(new java.io.File(repository.getLocalPath() + File.separator + filename), repository);
 
-        if(!repository.isValidFile(file)) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        }
+            if(!repository.isValidFile(file)) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
 
-        file.getParentFile().mkdirs();
+            file.getParentFile().mkdirs();
 
-        InputStream inputStream = request.getInputStream();
-        Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            InputStream inputStream = request.getInputStream();
+            Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
 
-        repository.setFiles(null); // invalidate cache
+            repository.setFiles(null); // invalidate cache
+            deferredCommitService.scheduleCommit(repository);
 
-        return ResponseEntity.ok().headers(HeaderUtil.createEntityCreationAlert("file", filename)).build();
+            return ResponseEntity.ok().headers(HeaderUtil.createEntityCreationAlert("file", filename)).build();
+        });
     }
 
 
@@ -193,17 +226,22 @@ public class RepositoryResource {
 
         Repository repository = gitService.get().getOrCheckoutRepository(participation);
 
-        Optional<File> file = gitService.get().getFileByName(repository, filename);
+        return gitService.get().executeWithWriteLock(repository, () -> {
+            Optional<File> file = gitService.get().getFileByName(repository, filename);
 
-        if(!file.isPresent()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            if(!file.isPresent()) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
 
-        InputStream inputStream = request.getInputStream();
+            InputStream inputStream = request.getInputStream();
 
-        Files.copy(inputStream, file.get().toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(inputStream, file.get().toPath(), StandardCopyOption.REPLACE_EXISTING);
+            file.get().setBlobId(null);
+            // if commits on save are enabled, saves within the quiet period are coalesced into one commit
+            deferredCommitService.scheduleCommit(repository);
 
-        return ResponseEntity.ok().headers(HeaderUtil.createEntityUpdateAlert("file", filename)).build();
+            return ResponseEntity.ok().headers(HeaderUtil.createEntityUpdateAlert("file", filename)).build();
+        });
     }
 
 
@@ -231,26 +269,31 @@ public class RepositoryResource {
 
         Repository repository = gitService.get().getOrCheckoutRepository(participation);
 
-        Optional<File> file = gitService.get().getFileByName(repository, filename);
+        return gitService.get().executeWithWriteLock(repository, () -> {
+            Optional<File> file = gitService.get().getFileByName(repository, filename);
 
-        if(!file.isPresent()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            if(!file.isPresent()) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
 
-        Files.delete(file.get().toPath());
+            Files.delete(file.get().toPath());
 
-        repository.setFiles(null); // invalidate cache
+            repository.setFiles(null); // invalidate cache
+            deferredCommitService.scheduleCommit(repository);
 
-        return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("file", filename)).build();
+            return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("file", filename)).build();
+        });
     }
 
 
 
 
     /**
-     * POST /repository/{id}/commit: Commit into the participation repository
+     * POST /repository/{id}/commit: Commit into the participation repository. The commit is executed immediately and
+     * replaces a commit scheduled after saving files, unless immediate is set to false.
      *
      * @param id Participation ID
+     * @param immediate false to coalesce the commit with further commit requests within the quiet period
      * @param request
      * @param authentication
      * @return
@@ -259,7 +302,7 @@ public class RepositoryResource {
      */
     @PostMapping(value = "/repository/{id}/commit", produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasPermission(#id, 'Repository', 'commit')")
-    public ResponseEntity<Void> updateFile(@PathVariable Long id, HttpServletRequest request, AbstractAuthenticationToken authentication) throws IOException, GitAPIException {
+    public ResponseEntity<Void> updateFile(@PathVariable Long id, @RequestParam(defaultValue = "true") boolean immediate, HttpServletRequest request, AbstractAuthenticationToken authentication) throws IOException, GitAPIException {
         log.debug("REST request to commit Repository for Participation : {}", id);
         Participation participation = participationService.findOne(id);
 
@@ -269,9 +312,10 @@ public class RepositoryResource {
 
         Repository repository = gitService.get().getOrCheckoutRepository(participation);
 
-        gitService.get().stageAllChanges(repository);
-        gitService.get().commitAndPush(repository, "Changes by Online Editor");
-
+        if (deferredCommitService.commit(repository, immediate)) {
+            // the commit is coalesced with further commit requests and pushed in the background
+            return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        }
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -300,10 +344,18 @@ public class RepositoryResource {
 
         RepositoryStatusDTO status = new RepositoryStatusDTO();
 
-        status.isClean = gitService.get().isClean(repository);
-
-        if(status.isClean) {
-            gitService.get().pull(repository);
+        status.isClean = gitService.get().executeWithReadLock(repository, () -> gitService.get().isClean(repository));
+
+        // only pull if the remote repository has actually changed, the editor polls the status regularly
+        if(status.isClean && gitService.get().executeWithReadLock(repository, () -> gitService.get().hasRemoteChanged(repository))) {
+            // check again, the repository might have been modified before the exclusive lock for the pull was acquired
+            status.isClean = gitService.get().executeWithWriteLock(repository, () -> {
+                boolean isClean = gitService.get().isClean(repository);
+                if (isClean) {
+                    gitService.get().pull(repository);
+                }
+                return isClean;
+            });
         }
 
         return new ResponseEntity<>(status, HttpStatus.OK);
@@ -311,14 +363,20 @@ public class RepositoryResource {
 
 
     /**
-     * GET  /repository/:id/buildlogs : get the build log from Bamboo for the "id" repository.
+     * GET  /repository/:id/buildlogs : get the build log of the latest result for the "id" repository.
+     * The stored build log is used if available, otherwise it is fetched from the CI server.
      *
-     * @param id the id of the result to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the result, or with status 404 (Not Found)
+     * @param id   the id of the participation
+     * @param page the page of log entries to retrieve (optional, all entries are returned if not set)
+     * @param size the number of log entries per page (optional)
+     * @return the ResponseEntity with status 200 (OK) and with body the log entries, with status 400 (Bad Request) if the
+     * page or size is invalid, or with status 404 (Not Found)
      */
     @GetMapping(value = "/repository/{id}/buildlogs", produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasPermission(#id, 'Repository', 'read')")
-    public ResponseEntity<?> getResultDetails(@PathVariable Long id, @RequestParam(required = false) String username, AbstractAuthenticationToken authentication) {
+    public ResponseEntity<?> getResultDetails(@PathVariable Long id, @RequestParam(required = false) String username,
+                                              @RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size,
+                                              AbstractAuthenticationToken authentication) {
         log.debug("REST request to get build log : {}", id);
 
         Participation participation = participationService.findOne(id);
@@ -327,8 +385,24 @@ public class RepositoryResource {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        List<BuildLogEntry> logs = continuousIntegrationService.get().getLatestBuildLogs(participation);
-
-        return new ResponseEntity<>(logs, HttpStatus.OK);
+        if ((page != null && page < 0) || (size != null && size < 1)) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("buildlogs", "invalidPage", "The page must not be negative and the size must be positive")).build();
+        }
+        Pageable pageable = page != null && size != null ? new PageRequest(page, size) : null;
+
+        Page<BuildLogEntry> logs = buildLogService.findLatestBuildLogs(participation, pageable).orElseGet(() -> {
+            // no stored build log available, e.g. for results created before build logs were stored or if the build log
+            // could not be retrieved when the result was created
+            List<BuildLogEntry> logEntries = continuousIntegrationService.get().getLatestBuildLogs(participation).orElse(Collections.emptyList());
+            if (pageable == null) {
+                return new PageImpl<>(logEntries);
+            }
+            int fromIndex = Math.min(pageable.getOffset(), logEntries.size());
+            int toIndex = Math.min(fromIndex + pageable.getPageSize(), logEntries.size());
+            return new PageImpl<>(logEntries.subList(fromIndex, toIndex), pageable, logEntries.size());
+        });
+
+        HttpHeaders headers = pageable != null ? PaginationUtil.generatePaginationHttpHeaders(logs, "/api/repository/" + id + "/buildlogs") : new HttpHeaders();
+        return new ResponseEntity<>(logs.getContent(), headers, HttpStatus.OK);
     }
 }
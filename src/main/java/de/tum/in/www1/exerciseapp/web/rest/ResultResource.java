@@ -7,10 +7,12 @@ import de.tum.in.www1.exerciseapp.domain.Result;
 import de.tum.in.www1.exerciseapp.repository.ResultRepository;
 import de.tum.in.www1.exerciseapp.security.AuthoritiesConstants;
 import de.tum.in.www1.exerciseapp.service.*;
+import de.tum.in.www1.exerciseapp.service.dto.ExerciseResultDTO;
 import de.tum.in.www1.exerciseapp.web.rest.errors.BadRequestAlertException;
 import de.tum.in.www1.exerciseapp.web.rest.util.HeaderUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,10 +26,7 @@ import org.springframework.web.bind.annotation.*;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * REST controller for managing Result.
@@ -40,14 +39,18 @@ public class ResultResource {
 
     private static final String ENTITY_NAME = "result";
 
+    private static final int MAX_RESULT_PAGE_SIZE = 1000;
+
     private final ResultRepository resultRepository;
     private final Optional<LtiService> ltiService;
     private final ParticipationService participationService;
     private final ResultService resultService;
     private final Optional<ContinuousIntegrationService> continuousIntegrationService;
     private final FeedbackService feedbackService;
+    private final CourseScoreService courseScoreService;
+    private final ParticipationResultService participationResultService;
 
-    public ResultResource(ResultRepository resultRepository, Optional<LtiService> ltiService, ParticipationService participationService, ResultService resultService, Optional<ContinuousIntegrationService> continuousIntegrationService, FeedbackService feedbackService) {
+    public ResultResource(ResultRepository resultRepository, Optional<LtiService> ltiService, ParticipationService participationService, ResultService resultService, Optional<ContinuousIntegrationService> continuousIntegrationService, FeedbackService feedbackService, CourseScoreService courseScoreService, ParticipationResultService participationResultService) {
 
         this.resultRepository = resultRepository;
         this.ltiService = ltiService;
@@ -55,6 +58,8 @@ public class ResultResource {
         this.resultService = resultService;
         this.continuousIntegrationService = continuousIntegrationService;
         this.feedbackService = feedbackService;
+        this.courseScoreService = courseScoreService;
+        this.participationResultService = participationResultService;
     }
 
     /**
@@ -67,12 +72,15 @@ public class ResultResource {
     @PostMapping("/results")
     @PreAuthorize("hasAnyRole('TA', 'ADMIN')")
     @Timed
+    @Transactional
     public ResponseEntity<Result> createResult(@RequestBody Result result) throws URISyntaxException {
         log.debug("REST request to save Result : {}", result);
         if (result.getId() != null) {
             throw new BadRequestAlertException("A new result cannot already have an ID", ENTITY_NAME, "idexists");
         }
         Result savedResult = resultRepository.save(result);
+        participationResultService.onResultChanged(savedResult.getParticipation());
+        courseScoreService.onResultChanged(savedResult.getParticipation());
         ltiService.ifPresent(ltiService -> ltiService.onNewBuildResult(savedResult.getParticipation()));
         return ResponseEntity.created(new URI("/api/results/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
@@ -121,12 +129,15 @@ public class ResultResource {
      */
     @PutMapping("/results")
     @Timed
+    @Transactional
     public ResponseEntity<Result> updateResult(@RequestBody Result result) throws URISyntaxException {
         log.debug("REST request to update Result : {}", result);
         if (result.getId() == null) {
             return createResult(result);
         }
         resultRepository.save(result);
+        participationResultService.onResultChanged(result.getParticipation());
+        courseScoreService.onResultChanged(result.getParticipation());
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, result.getId().toString()))
             .body(result);
@@ -182,41 +193,32 @@ public class ResultResource {
     }
 
     /**
-     * GET  /courses/:courseId/exercises/:exerciseId/results : get the successful results for an exercise, ordered ascending by build completion date.
+     * GET  /courses/:courseId/exercises/:exerciseId/results : get the first successful (or the latest) result of each student
+     * in an exercise, with the number of results of the participation. The results are paged by id: the next page is
+     * requested with the id of the last result of the previous page as afterId, until a page contains less than size results.
      *
-     * @param courseId   only included for API consistency, not actually used
-     * @param exerciseId the id of the exercise for which to retrieve the results
-     * @return the ResponseEntity with status 200 (OK) and the list of results in body
+     * @param courseId       only included for API consistency, not actually used
+     * @param exerciseId     the id of the exercise for which to retrieve the results
+     * @param showAllResults true to get the latest result of each student, also if it is not successful
+     * @param afterId        only results with a greater id are returned
+     * @param size           the maximum number of results
+     * @return the ResponseEntity with status 200 (OK) and the list of results in body, ordered ascending by id
      */
     @GetMapping(value = "/courses/{courseId}/exercises/{exerciseId}/results")
     @PreAuthorize("hasAnyRole('TA', 'ADMIN')")
     @Timed
-    public List<Result> getResultsForExercise(@PathVariable Long courseId,
-                                                @PathVariable Long exerciseId,
-                                                @RequestParam(defaultValue = "false") boolean showAllResults) {
+    public List<ExerciseResultDTO> getResultsForExercise(@PathVariable Long courseId,
+                                                         @PathVariable Long exerciseId,
+                                                         @RequestParam(defaultValue = "false") boolean showAllResults,
+                                                         @RequestParam(defaultValue = "0") Long afterId,
+                                                         @RequestParam(defaultValue = "1000") int size) {
         log.debug("REST request to get Results for Exercise : {}", exerciseId);
-        List<Result> results;
+        PageRequest page = new PageRequest(0, Math.max(1, Math.min(size, MAX_RESULT_PAGE_SIZE)));
         if (showAllResults) {
-            results = resultRepository.findLatestResultsForExercise(exerciseId);
+            return resultRepository.findLatestResultRowsForExercise(exerciseId, afterId, page);
         } else {
-            results = resultRepository.findEarliestSuccessfulResultsForExercise(exerciseId);
+            return resultRepository.findEarliestSuccessfulResultRowsForExercise(exerciseId, afterId, page);
         }
-
-
-        //Each object array in the list contains two Long values, participation id (index 0) and
-        //number of results for this participation (index 1)
-
-        List<Object[]> submissionCounts = resultRepository.findSubmissionCountsForStudents(exerciseId);
-
-        //Matches each result with the number of results in corresponding participation
-        results.forEach(result ->
-            submissionCounts.forEach(submissionCount -> {
-                if (result.getParticipation().getId().equals(submissionCount[0])) {
-                    result.setSubmissionCount((Long) submissionCount[1]);
-                }
-            }));
-
-        return results;
     }
 
     /**
@@ -230,8 +232,31 @@ public class ResultResource {
     @Timed
     public List<Result> getResultsForCourse(@PathVariable Long courseId) {
         log.debug("REST request to get Results for Course : {}", courseId);
-        List<Result> results;
-        return resultRepository.findEarliestSuccessfulResultsForCourse(courseId);
+        return oneResultPerStudentAndExercise(resultRepository.findEarliestSuccessfulResultsForCourse(courseId), false);
+    }
+
+    /**
+     * Keeps only one result per student and exercise, because a student can have multiple participations (e.g. a finished one)
+     * in the same exercise, but the results are selected per participation.
+     *
+     * @param results the results, ordered ascending by completion date
+     * @param latest  true to keep the latest result of each student and exercise, false to keep the earliest one
+     * @return the remaining results, ordered ascending by completion date
+     */
+    private List<Result> oneResultPerStudentAndExercise(List<Result> results, boolean latest) {
+        Map<String, Result> resultsByStudentAndExercise = new LinkedHashMap<>();
+        for (Result result : results) {
+            Participation participation = result.getParticipation();
+            String key = participation.getExercise().getId() + "/" + participation.getStudent().getId();
+            if (latest) {
+                // moves the result to the end, so that the order is kept
+                resultsByStudentAndExercise.remove(key);
+                resultsByStudentAndExercise.put(key, result);
+            } else {
+                resultsByStudentAndExercise.putIfAbsent(key, result);
+            }
+        }
+        return new ArrayList<>(resultsByStudentAndExercise.values());
     }
 
 
@@ -295,9 +320,15 @@ public class ResultResource {
     @DeleteMapping("/results/{id}")
     @PreAuthorize("hasAnyRole('TA', 'ADMIN')")
     @Timed
+    @Transactional
     public ResponseEntity<Void> deleteResult(@PathVariable Long id) {
         log.debug("REST request to delete Result : {}", id);
+        Result result = resultRepository.findOne(id);
         resultRepository.delete(id);
+        if (result != null) {
+            participationResultService.onResultChanged(result.getParticipation());
+            courseScoreService.onResultChanged(result.getParticipation());
+        }
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
     }
 }
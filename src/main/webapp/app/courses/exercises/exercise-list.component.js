@@ -15,9 +15,9 @@
             controller: ExerciseListController
         });
 
-    ExerciseListController.$inject = ['$sce', '$window', 'AlertService', 'CourseExercises', 'Participation', 'ExerciseParticipation', '$http', '$location', 'Principal', '$rootScope'];
+    ExerciseListController.$inject = ['$sce', '$window', 'AlertService', 'CourseExercises', 'CourseDashboard', 'Participation', '$http', '$location', 'Principal', '$rootScope'];
 
-    function ExerciseListController($sce, $window, AlertService, CourseExercises, Participation, ExerciseParticipation, $http,  $location, Principal, $rootScope) {
+    function ExerciseListController($sce, $window, AlertService, CourseExercises, CourseDashboard, Participation, $http,  $location, Principal, $rootScope) {
         var vm = this;
 
         vm.clonePopover = {
@@ -47,7 +47,16 @@
                 vm.repositoryPassword = password;
             });
 
-            CourseExercises.query({courseId: vm.course.id, withLtiOutcomeUrlExisting: true}).$promise.then(function (exercises) {
+            // one request for the exercises with the participation, latest result and build status of the user
+            CourseDashboard.query({courseId: vm.course.id}).$promise.then(function (dashboard) {
+
+                var exercises = _.map(dashboard, function (entry) {
+                    var exercise = new CourseExercises(entry.exercise);
+                    exercise['participation'] = entry.participation || {};
+                    exercise['latestResult'] = entry.latestResult;
+                    exercise['buildStatus'] = entry.buildStatus;
+                    return exercise;
+                });
 
                 if (vm.filterByExerciseId) {
                     exercises = _.filter(exercises, {id: vm.filterByExerciseId})
@@ -73,12 +82,6 @@
                     //TODO: test the case with LTI users from edX
                 });
 
-                angular.forEach(exercises, function (exercise) {
-                    exercise['participation'] = ExerciseParticipation.get({
-                        courseId: exercise.course.id,
-                        exerciseId: exercise.id
-                    });
-                });
                 vm.exercises = exercises;
             });
         }
@@ -10,6 +10,8 @@
             bindings: {
                 participation: '<',
                 showScore: '<',
+                initialResult: '<',
+                initialStatus: '<',
                 onNewResult: '&',
             },
             templateUrl: 'app/courses/results/result.html',
@@ -27,7 +29,12 @@
         vm.showDetails = showDetails;
 
         function init() {
-            refresh();
+            if (vm.initialStatus) {
+                // the latest result and build status have already been loaded together with the exercise
+                showResult(vm.initialStatus, vm.initialResult ? [vm.initialResult] : []);
+            } else {
+                refresh();
+            }
 
 
             var websocketChannel = '/topic/participation/' + vm.participation.id + '/newResults';
@@ -57,17 +64,28 @@
                         exerciseId: vm.participation.exercise.id,
                         participationId: vm.participation.id,
                         showAllResults: false
-                    }, function (results) {
-                        if(vm.onNewResult) {
-                            vm.onNewResult({ $event: {
-                                newResult: results[0]
-                            }});
-                        }
-                    });
+                    }, notifyNewResult);
                 }
             });
         }
 
+        function showResult(status, results) {
+            vm.queued = status === 'QUEUED';
+            vm.building = status === 'BUILDING';
+            if (!vm.queued && !vm.building) {
+                vm.results = results;
+                notifyNewResult(results);
+            }
+        }
+
+        function notifyNewResult(results) {
+            if(vm.onNewResult) {
+                vm.onNewResult({ $event: {
+                    newResult: results[0]
+                }});
+            }
+        }
+
         function buildResultString(result) {
             if (result.resultString === 'No tests found') {
                 return 'Build failed';
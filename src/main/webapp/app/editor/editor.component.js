@@ -85,6 +85,7 @@
                 vm.isCommitted = true;
                 console.log('comitted');
             }, function (err) {
+                vm.isBuilding = false;
                 console.log(err);
             });
         };
@@ -6,7 +6,8 @@
         .factory('CourseExercises', CourseExercises)
         .factory('CourseProgrammingExercises', CourseProgrammingExercises)
         .factory('CourseQuizExercises', CourseQuizExercises)
-        .factory('CourseScores', CourseScores);
+        .factory('CourseScores', CourseScores)
+        .factory('CourseDashboard', CourseDashboard);
 
     Course.$inject = ['$resource'];
 
@@ -169,4 +170,14 @@
             }
         });
     }
+
+    CourseDashboard.$inject = ['$resource'];
+
+    function CourseDashboard($resource) {
+        var resourceUrl =  'api/courses/:courseId/dashboard';
+
+        return $resource(resourceUrl, {}, {
+            'query': { method: 'GET', isArray: true}
+        });
+    }
 })();
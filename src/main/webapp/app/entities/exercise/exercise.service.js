@@ -27,32 +27,21 @@
                     }
                 },
                 'update': {method: 'PUT'},
-                'cleanupExercise': {
-                    method: 'DELETE',
-                    url: resourceUrl + '/cleanup',
-                    responseType: 'blob',
-                    transformResponse: function (data, headersGetter) {
-                        if (data) {
-                            var headers = headersGetter()
-                            if(headers['filename']) {
-                                FileSaver.saveAs(data, headers['filename'])
-                            }
-                        }
-                        return data;
-                    }
-                },
-                'archiveExercise': {
+                'cleanupExercise': {method: 'DELETE', url: resourceUrl + '/cleanup'},
+                'archiveExercise': {method: 'GET', url: resourceUrl + '/archive'},
+                'getJob': {method: 'GET', url: 'api/exercise-jobs/:jobId'},
+                'downloadJobResult': {
                     method: 'GET',
-                    url: resourceUrl + '/archive',
+                    url: 'api/exercise-jobs/:jobId/result',
                     responseType: 'blob',
                     transformResponse: function (data, headersGetter) {
                         if (data) {
-                            var headers = headersGetter()
-                            FileSaver.saveAs(data, headers['filename'])
+                            var headers = headersGetter();
+                            FileSaver.saveAs(data, headers['filename']);
                         }
                         return data;
                     }
-                },
+                }
             });
         }
 
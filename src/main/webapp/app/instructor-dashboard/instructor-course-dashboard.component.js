@@ -42,7 +42,7 @@
         }
 
         function groupResults() {
-            if(!vm.results || !vm.participations || !vm.courseScores || vm.participations.length == 0 || vm.results.length == 0 || vm.courseScores.length == 0) {
+            if(!vm.results || !vm.participations || !vm.courseScores || vm.participations.length == 0 || vm.results.length == 0 || !vm.courseScores.$resolved) {
                 return
             }
             var rows = {};
@@ -85,7 +85,9 @@
 
             //set the total score of all Exercises (as mentioned on the RESTapi division by amount of exercises)
             _.forEach(vm.courseScores, function (s) {
-               rows[s.participation.student.id].overallScore = s.score;
+               if (rows[s.studentId]) {
+                   rows[s.studentId].overallScore = s.score;
+               }
             })
 
 
@@ -5,37 +5,74 @@
         .module('artemisApp')
         .controller('ArchiveController', ArchiveController);
 
-    ArchiveController.$inject = ['$uibModalInstance', 'entity', 'Exercise', 'AlertService'];
+    ArchiveController.$inject = ['$scope', '$timeout', '$window', '$uibModalInstance', 'entity', 'Exercise', 'AlertService'];
 
-    function ArchiveController($uibModalInstance, entity, Exercise, AlertService) {
+    function ArchiveController($scope, $timeout, $window, $uibModalInstance, entity, Exercise, AlertService) {
         var vm = this;
 
         vm.exercise = entity;
         vm.clear = clear;
         vm.confirmArchive = confirmArchive;
+        vm.downloadArchive = downloadArchive;
         vm.archiveInProgress = false;
+        vm.job = null;
+
+        var pollTimer = null;
+
+        $scope.$on('$destroy', function () {
+            $timeout.cancel(pollTimer);
+        });
 
         function clear () {
             $uibModalInstance.dismiss('cancel');
         }
 
+        function downloadArchive(id) {
+            // the archive is streamed by the server, so the browser downloads it directly instead of buffering it in a blob
+            $window.location.href = 'api/exercises/' + id + '/archive/download';
+            $uibModalInstance.close(true);
+        }
+
         function confirmArchive(id) {
             vm.archiveInProgress = true;
 
             Exercise.archiveExercise({
                     id: id
                 },
-                function () {
-                    $uibModalInstance.close(true);
+                function (job) {
+                    vm.job = job;
+                    pollJob();
+                }, function () {
                     vm.archiveInProgress = false;
+                });
+        }
+
+        function pollJob() {
+            Exercise.getJob({jobId: vm.job.id}, function (job) {
+                vm.job = job;
+                if (job.status === 'RUNNING') {
+                    pollTimer = $timeout(pollJob, 2000);
+                    return;
+                }
+                vm.archiveInProgress = false;
+                $uibModalInstance.close(true);
+                if (job.status === 'FINISHED' && job.resultAvailable) {
+                    Exercise.downloadJobResult({jobId: job.id});
                     AlertService.add({
                         type: 'success',
                         msg: 'Archive was successful. The archive zip file with all repositories is currently being downloaded',
                         timeout: 30000
                     });
-                }, function () {
-                    vm.archiveInProgress = false;
-                });
+                } else {
+                    AlertService.add({
+                        type: 'danger',
+                        msg: 'Archive failed: ' + (job.message || 'no repository could be archived'),
+                        timeout: 30000
+                    });
+                }
+            }, function () {
+                vm.archiveInProgress = false;
+            });
         }
     }
 })();
@@ -5,9 +5,9 @@
         .module('artemisApp')
         .controller('CleanupController', CleanupController);
 
-    CleanupController.$inject = ['$uibModalInstance', 'entity', 'Exercise', 'AlertService'];
+    CleanupController.$inject = ['$scope', '$timeout', '$uibModalInstance', 'entity', 'Exercise', 'AlertService'];
 
-    function CleanupController($uibModalInstance, entity, Exercise, AlertService) {
+    function CleanupController($scope, $timeout, $uibModalInstance, entity, Exercise, AlertService) {
         var vm = this;
 
         vm.exercise = entity;
@@ -16,6 +16,13 @@
         vm.confirmExerciseName = "";
         vm.deleteRepositories = false;
         vm.cleanupInProgress = false;
+        vm.job = null;
+
+        var pollTimer = null;
+
+        $scope.$on('$destroy', function () {
+            $timeout.cancel(pollTimer);
+        });
 
         function clear () {
             $uibModalInstance.dismiss('cancel');
@@ -28,26 +35,53 @@
                     id: id,
                     deleteRepositories: vm.deleteRepositories
                 },
-                function () {
-                    $uibModalInstance.close(true);
-                    vm.deleteInProgress = false;
-                    if(vm.deleteRepositories) {
-                        AlertService.add({
-                            type: 'success',
-                            msg: 'Cleanup was successful. All build plans and repositories have been deleted. All participations have been marked as Finished. The archive zip file with all repositories is currently being downloaded',
-                            timeout: 30000
-                        });
-                    }
-                    else {
-                        AlertService.add({
-                            type: 'success',
-                            msg: 'Cleanup was successful. All build plans have been deleted. Students can now resume their participation',
-                            timeout: 30000
-                        });
-                    }
+                function (job) {
+                    vm.job = job;
+                    pollJob();
                 }, function () {
-                    vm.deleteInProgress = false;
+                    vm.cleanupInProgress = false;
                 });
         }
+
+        function pollJob() {
+            Exercise.getJob({jobId: vm.job.id}, function (job) {
+                vm.job = job;
+                if (job.status === 'RUNNING') {
+                    pollTimer = $timeout(pollJob, 2000);
+                    return;
+                }
+                vm.cleanupInProgress = false;
+                $uibModalInstance.close(true);
+                if (job.status === 'FAILED') {
+                    AlertService.add({
+                        type: 'danger',
+                        msg: 'Cleanup failed: ' + job.message,
+                        timeout: 30000
+                    });
+                    return;
+                }
+                if (job.resultAvailable) {
+                    Exercise.downloadJobResult({jobId: job.id});
+                }
+                if (job.deleteRepositories) {
+                    AlertService.add({
+                        type: job.failedParticipations.length ? 'warning' : 'success',
+                        msg: 'Cleanup finished. All build plans and archived repositories have been deleted. All participations have been marked as Finished. The archive zip file with all repositories is currently being downloaded' +
+                            (job.failedParticipations.length ? '. ' + job.failedParticipations.length + ' participations could not be cleaned up completely' : ''),
+                        timeout: 30000
+                    });
+                }
+                else {
+                    AlertService.add({
+                        type: job.failedParticipations.length ? 'warning' : 'success',
+                        msg: 'Cleanup finished. All build plans have been deleted. Students can now resume their participation' +
+                            (job.failedParticipations.length ? '. ' + job.failedParticipations.length + ' participations could not be cleaned up completely' : ''),
+                        timeout: 30000
+                    });
+                }
+            }, function () {
+                vm.cleanupInProgress = false;
+            });
+        }
     }
 })();
@@ -17,6 +17,9 @@
     function InstructorDashboardController($window, $filter, moment, $uibModal, Exercise, ExerciseResults, Participation) {
         var vm = this;
 
+        var RESULTS_PAGE_SIZE = 1000;
+        var resultsRequest = 0;
+
         vm.showAllResults = false;
         vm.sortReverse = false;
 
@@ -62,10 +65,27 @@
         }
 
         function getResults() {
-            vm.results = ExerciseResults.query({
+            vm.results = [];
+            loadResults(++resultsRequest, 0);
+        }
+
+        // the results are loaded in pages, each page starts after the id of the last result of the previous one
+        function loadResults(request, afterId) {
+            ExerciseResults.query({
                 courseId: vm.courseId,
                 exerciseId: vm.exerciseId,
-                showAllResults: vm.showAllResults
+                showAllResults: vm.showAllResults,
+                afterId: afterId,
+                size: RESULTS_PAGE_SIZE
+            }, function (results) {
+                if (request !== resultsRequest) {
+                    // the results have been requested again in the meantime
+                    return;
+                }
+                vm.results = vm.results.concat(results);
+                if (results.length === RESULTS_PAGE_SIZE) {
+                    loadResults(request, results[results.length - 1].id);
+                }
             });
         }
 
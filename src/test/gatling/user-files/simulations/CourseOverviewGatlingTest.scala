@@ -0,0 +1,87 @@
+import _root_.io.gatling.core.scenario.Simulation
+import ch.qos.logback.classic.{Level, LoggerContext}
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+import org.slf4j.LoggerFactory
+
+import scala.concurrent.duration._
+
+/**
+ * Performance test for the course overview, which is read on every page load of the students.
+ *
+ * Run it against a server with and without hibernate.cache.use_query_cache and compare the metrics
+ * hibernate.statements.prepared and hibernate.cache.*.hit-ratio before and after the run.
+ */
+class CourseOverviewGatlingTest extends Simulation {
+
+    val context: LoggerContext = LoggerFactory.getILoggerFactory.asInstanceOf[LoggerContext]
+    // Log all HTTP requests
+    //context.getLogger("io.gatling.http").setLevel(Level.valueOf("TRACE"))
+    // Log failed HTTP requests
+    //context.getLogger("io.gatling.http").setLevel(Level.valueOf("DEBUG"))
+
+    val baseURL = Option(System.getProperty("baseURL")) getOrElse """http://localhost:8080"""
+
+    val courseId = Option(System.getProperty("courseId")) getOrElse "1"
+
+    val httpConf = http
+        .baseURL(baseURL)
+        .inferHtmlResources()
+        .acceptHeader("*/*")
+        .acceptEncodingHeader("gzip, deflate")
+        .acceptLanguageHeader("fr,fr-fr;q=0.8,en-us;q=0.5,en;q=0.3")
+        .connectionHeader("keep-alive")
+        .userAgentHeader("Mozilla/5.0 (Macintosh; Intel Mac OS X 10.10; rv:33.0) Gecko/20100101 Firefox/33.0")
+
+    val headers_http = Map(
+        "Accept" -> """application/json"""
+    )
+
+    val headers_http_authenticated = Map(
+        "Accept" -> """application/json""",
+        "X-XSRF-TOKEN" -> "${xsrf_token}"
+    )
+
+    val scn = scenario("Test the course overview")
+        .exec(http("First unauthenticated request")
+        .get("/api/account")
+        .headers(headers_http)
+        .check(status.is(401))
+        .check(headerRegex("Set-Cookie", "XSRF-TOKEN=(.*);[\\s]").saveAs("xsrf_token"))).exitHereIfFailed
+        .pause(10)
+        .exec(http("Authentication")
+        .post("/api/authentication")
+        .headers(headers_http_authenticated)
+        .formParam("j_username", "admin")
+        .formParam("j_password", "admin")
+        .formParam("remember-me", "true")
+        .formParam("submit", "Login")
+        .check(headerRegex("Set-Cookie", "XSRF-TOKEN=(.*);[\\s]").saveAs("xsrf_token"))).exitHereIfFailed
+        .pause(1)
+        .exec(http("Authenticated request")
+        .get("/api/account")
+        .headers(headers_http_authenticated)
+        .check(status.is(200)))
+        .pause(10)
+        .repeat(10) {
+            exec(http("Get all courses")
+            .get("/api/courses")
+            .headers(headers_http_authenticated)
+            .check(status.is(200)))
+            .exec(http("Get course dashboard")
+            .get("/api/courses/" + courseId + "/dashboard")
+            .headers(headers_http_authenticated)
+            .check(status.is(200)))
+            .exec(http("Get exercises of course")
+            .get("/api/courses/" + courseId + "/exercises")
+            .headers(headers_http_authenticated)
+            .check(status.is(200)))
+            .pause(5 seconds, 10 seconds)
+        }
+
+    val users = scenario("Users").exec(scn)
+
+    setUp(
+        users.inject(rampUsers(Integer.getInteger("users", 100)) over (Integer.getInteger("ramp", 1) minutes))
+    ).protocols(httpConf)
+}
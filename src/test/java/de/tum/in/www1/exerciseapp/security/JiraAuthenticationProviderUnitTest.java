@@ -0,0 +1,169 @@
+package de.tum.in.www1.exerciseapp.security;
+
+import com.codahale.metrics.MetricRegistry;
+import de.tum.in.www1.exerciseapp.domain.User;
+import de.tum.in.www1.exerciseapp.repository.UserRepository;
+import de.tum.in.www1.exerciseapp.service.CourseService;
+import de.tum.in.www1.exerciseapp.service.UserService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URL;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the background refresh of the cached users in the JiraAuthenticationProvider.
+ *
+ * @see JiraAuthenticationProvider
+ */
+public class JiraAuthenticationProviderUnitTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CourseService courseService;
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private final Map<String, User> users = new HashMap<>();
+
+    private JiraAuthenticationProvider jiraAuthenticationProvider;
+
+    @Before
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(courseService.getAllTeachingAssistantGroupNames()).thenReturn(Collections.emptyList());
+        when(userService.getUserWithAuthoritiesByLogin(anyString()))
+            .thenAnswer(invocation -> Optional.ofNullable(users.get((String) invocation.getArguments()[0])));
+
+        jiraAuthenticationProvider = new JiraAuthenticationProvider(userService, userRepository, courseService, restTemplate, new MetricRegistry());
+        ReflectionTestUtils.setField(jiraAuthenticationProvider, "INSTRUCTOR_GROUP_NAME", "instructors");
+        ReflectionTestUtils.setField(jiraAuthenticationProvider, "JIRA_URL", new URL("http://localhost/jira"));
+        ReflectionTestUtils.setField(jiraAuthenticationProvider, "JIRA_USER", "artemis");
+        ReflectionTestUtils.setField(jiraAuthenticationProvider, "JIRA_PASSWORD", "secret");
+        ReflectionTestUtils.setField(jiraAuthenticationProvider, "CACHE_TIME_TO_LIVE", 300L);
+        ReflectionTestUtils.setField(jiraAuthenticationProvider, "CREDENTIALS_TIME_TO_LIVE", 3600L);
+        ReflectionTestUtils.setField(jiraAuthenticationProvider, "CACHE_MAX_ENTRIES", 100);
+        ReflectionTestUtils.setField(jiraAuthenticationProvider, "REFRESH_PARALLELISM", 2);
+        ReflectionTestUtils.setField(jiraAuthenticationProvider, "MAX_CONCURRENT_REQUESTS", 2);
+        ReflectionTestUtils.setField(jiraAuthenticationProvider, "REQUEST_PERMIT_TIMEOUT", 1L);
+        jiraAuthenticationProvider.init();
+    }
+
+    @After
+    public void cleanup() {
+        jiraAuthenticationProvider.destroy();
+    }
+
+    @Test
+    public void testRefreshUpdatesGroups() {
+        mockJiraUser("johndoe", true, "students");
+        login("johndoe");
+        expireGroups("johndoe");
+
+        mockJiraUser("johndoe", true, "students", "tutors");
+        jiraAuthenticationProvider.refreshCachedUsers();
+
+        assertThat(users.get("johndoe").getGroups()).containsOnly("students", "tutors");
+        assertThat(getCachedUsers()).containsKey("johndoe");
+
+        // the credentials are still cached, so the next login does not ask JIRA
+        login("johndoe");
+        verify(restTemplate, times(2)).exchange(contains("username=johndoe"), eq(HttpMethod.GET), any(HttpEntity.class), eq(Map.class));
+    }
+
+    @Test
+    public void testRefreshRemovesDeactivatedUser() {
+        mockJiraUser("johndoe", true, "students");
+        login("johndoe");
+        expireGroups("johndoe");
+
+        mockJiraUser("johndoe", false, "students");
+        jiraAuthenticationProvider.refreshCachedUsers();
+
+        assertThat(getCachedUsers()).doesNotContainKey("johndoe");
+    }
+
+    @Test
+    public void testRefreshContinuesAfterFailedRequest() {
+        mockJiraUser("johndoe", true, "students");
+        mockJiraUser("janedoe", true, "students");
+        login("johndoe");
+        login("janedoe");
+        expireGroups("johndoe");
+        expireGroups("janedoe");
+
+        when(restTemplate.exchange(contains("username=johndoe"), eq(HttpMethod.GET), any(HttpEntity.class), eq(Map.class)))
+            .thenThrow(new ResourceAccessException("Connection refused"));
+        mockJiraUser("janedoe", true, "students", "tutors");
+        jiraAuthenticationProvider.refreshCachedUsers();
+
+        assertThat(users.get("janedoe").getGroups()).containsOnly("students", "tutors");
+        // the cached groups of the user which could not be refreshed are used until they expire
+        assertThat(users.get("johndoe").getGroups()).containsOnly("students");
+        assertThat(getCachedUsers()).containsKeys("johndoe", "janedoe");
+    }
+
+    private void login(String username) {
+        if (!users.containsKey(username)) {
+            User user = new User();
+            user.setLogin(username);
+            user.setActivated(true);
+            user.setGroups(new ArrayList<>());
+            user.setAuthorities(new HashSet<>());
+            users.put(username, user);
+        }
+        jiraAuthenticationProvider.authenticate(new UsernamePasswordAuthenticationToken(username, "password"));
+    }
+
+    private void mockJiraUser(String username, boolean active, String... groups) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (String group : groups) {
+            items.add(Collections.singletonMap("name", group));
+        }
+        Map<String, Object> content = new HashMap<>();
+        content.put("name", username);
+        content.put("displayName", username);
+        content.put("emailAddress", username + "@example.com");
+        content.put("active", active);
+        content.put("groups", Collections.singletonMap("items", items));
+        when(restTemplate.exchange(contains("username=" + username), eq(HttpMethod.GET), any(HttpEntity.class), eq(Map.class)))
+            .thenReturn(new ResponseEntity<Map>(content, HttpStatus.OK));
+    }
+
+    /**
+     * Marks the groups of the cached user as fetched long enough ago to be refreshed.
+     */
+    private void expireGroups(String username) {
+        Object cachedUser = getCachedUsers().get(username);
+        ReflectionTestUtils.setField(cachedUser, "groupsFetched", System.currentTimeMillis() - 200 * 1000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getCachedUsers() {
+        return (Map<String, Object>) ReflectionTestUtils.getField(jiraAuthenticationProvider, "cachedUsers");
+    }
+}
@@ -0,0 +1,113 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the eviction of the BuildArtifactCacheService.
+ *
+ * @see BuildArtifactCacheService
+ */
+public class BuildArtifactCacheServiceUnitTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private BuildArtifactCacheService buildArtifactCacheService;
+
+    private Path cachePath;
+
+    @Before
+    public void setup() throws Exception {
+        cachePath = Files.createTempDirectory("build-artifacts");
+        buildArtifactCacheService = new BuildArtifactCacheService(metricRegistry);
+        ReflectionTestUtils.setField(buildArtifactCacheService, "CACHE_PATH", cachePath.toString());
+        // two artifacts of 6 bytes fit into the cache
+        ReflectionTestUtils.setField(buildArtifactCacheService, "CACHE_MAX_SIZE", 15L);
+        buildArtifactCacheService.init();
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        FileUtils.deleteDirectory(cachePath.toFile());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedArtifactIsEvicted() throws Exception {
+        put("PLAN-1", "first!");
+        put("PLAN-2", "second");
+        // the first artifact is now used more recently than the second one
+        assertThat(read(buildArtifactCacheService.getArtifact("PLAN-1"))).isEqualTo("first!");
+        put("PLAN-3", "third!");
+
+        assertThat(buildArtifactCacheService.getTotalSize()).isEqualTo(12);
+        assertThat(buildArtifactCacheService.getArtifact("PLAN-2")).isEmpty();
+        assertThat(cachePath.resolve("PLAN-2")).doesNotExist();
+        assertThat(read(buildArtifactCacheService.getArtifact("PLAN-1"))).isEqualTo("first!");
+        assertThat(read(buildArtifactCacheService.getArtifact("PLAN-3"))).isEqualTo("third!");
+        assertThat(getMeterCount("evictions")).isEqualTo(1);
+    }
+
+    @Test
+    public void testOpenArtifactIsDeletedAfterItWasRead() throws Exception {
+        put("PLAN-1", "first!");
+        Resource artifact = buildArtifactCacheService.getArtifact("PLAN-1").get();
+        put("PLAN-2", "second");
+        put("PLAN-3", "third!");
+
+        // evicted, but not deleted while the download has not finished
+        assertThat(buildArtifactCacheService.getArtifact("PLAN-1")).isEmpty();
+        assertThat(cachePath.resolve("PLAN-1").resolve("artifact.jar")).exists();
+
+        try (InputStream content = artifact.getInputStream()) {
+            assertThat(StreamUtils.copyToString(content, StandardCharsets.UTF_8)).isEqualTo("first!");
+        }
+        assertThat(cachePath.resolve("PLAN-1")).doesNotExist();
+    }
+
+    @Test
+    public void testMissingArtifactFileIsRemovedFromCache() throws Exception {
+        put("PLAN-1", "first!");
+        FileUtils.deleteDirectory(cachePath.resolve("PLAN-1").toFile());
+
+        assertThat(buildArtifactCacheService.getArtifact("PLAN-1")).isEmpty();
+        assertThat(buildArtifactCacheService.getTotalSize()).isEqualTo(0);
+        assertThat(getMeterCount("misses")).isEqualTo(1);
+
+        // the artifact can be cached again
+        put("PLAN-1", "first!");
+        assertThat(read(buildArtifactCacheService.getArtifact("PLAN-1"))).isEqualTo("first!");
+        assertThat(buildArtifactCacheService.getTotalSize()).isEqualTo(6);
+    }
+
+    private void put(String key, String content) throws IOException {
+        Resource artifact = buildArtifactCacheService.putArtifact(key, "artifact.jar", new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        artifact.getInputStream().close();
+    }
+
+    private String read(Optional<Resource> artifact) throws IOException {
+        assertThat(artifact).isPresent();
+        try (InputStream content = artifact.get().getInputStream()) {
+            return StreamUtils.copyToString(content, StandardCharsets.UTF_8);
+        }
+    }
+
+    private long getMeterCount(String name) {
+        return metricRegistry.meter(MetricRegistry.name(BuildArtifactCacheService.class, name)).getCount();
+    }
+}
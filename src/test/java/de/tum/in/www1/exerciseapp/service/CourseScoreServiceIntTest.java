@@ -0,0 +1,221 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import de.tum.in.www1.exerciseapp.ArTEMiSApp;
+import de.tum.in.www1.exerciseapp.domain.*;
+import de.tum.in.www1.exerciseapp.repository.*;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Test class for the CourseScoreService.
+ * <p>
+ * Not transactional, because the scores are updated after the transaction which changed the results was committed.
+ *
+ * @see CourseScoreService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ArTEMiSApp.class)
+public class CourseScoreServiceIntTest {
+
+    @Autowired
+    private CourseScoreService courseScoreService;
+
+    @Autowired
+    private CourseScoreRepository courseScoreRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ExerciseRepository exerciseRepository;
+
+    @Autowired
+    private ParticipationRepository participationRepository;
+
+    @Autowired
+    private ResultRepository resultRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ZonedDateTime now = ZonedDateTime.now();
+
+    private Course course;
+
+    private ModelingExercise exercise;
+
+    private User student;
+
+    private Participation participation;
+
+    private final List<Result> results = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        student = new User();
+        student.setLogin("course-score-student");
+        student.setPassword(RandomStringUtils.random(60));
+        student.setActivated(true);
+        student.setEmail("course-score-student@localhost");
+        student = userRepository.saveAndFlush(student);
+
+        course = new Course();
+        course.setTitle("Course Score Test");
+        course.setStudentGroupName("course-score-students");
+        course = courseRepository.saveAndFlush(course);
+
+        exercise = new ModelingExercise();
+        exercise.setTitle("Modeling");
+        exercise.setCourse(course);
+        exercise.setDueDate(now.minusDays(1));
+        exercise = exerciseRepository.saveAndFlush(exercise);
+
+        participation = new Participation();
+        participation.setStudent(student);
+        participation.setExercise(exercise);
+        participation = participationRepository.saveAndFlush(participation);
+
+        createResult(now.minusDays(3), 40L);
+        createResult(now.minusDays(2), 60L);
+        // submitted after the due date
+        createResult(now.minusHours(1), 100L);
+    }
+
+    @After
+    public void cleanup() {
+        getScore().ifPresent(courseScoreRepository::delete);
+        resultRepository.delete(results);
+        if (participationRepository.exists(participation.getId())) {
+            participationRepository.delete(participation.getId());
+        }
+        if (exerciseRepository.exists(exercise.getId())) {
+            exerciseRepository.delete(exercise.getId());
+        }
+        courseRepository.delete(course);
+        userRepository.delete(student);
+    }
+
+    @Test
+    public void testScoreUsesLastResultBeforeDueDate() {
+        courseScoreService.onResultChanged(participation);
+
+        assertThat(getScore().isPresent()).isTrue();
+        assertThat(getScore().get().getScore()).isEqualTo(60L);
+    }
+
+    @Test
+    public void testScoreUsesLastResultWithoutDueDate() {
+        ZonedDateTime previousDueDate = exercise.getDueDate();
+        exercise.setDueDate(null);
+        exercise = exerciseRepository.saveAndFlush(exercise);
+        courseScoreService.onExerciseUpdated(exercise, previousDueDate, course);
+
+        assertThat(getScore().get().getScore()).isEqualTo(100L);
+    }
+
+    @Test
+    public void testScoresAreRebuiltWhenDueDateIsExtended() {
+        courseScoreService.onResultChanged(participation);
+        assertThat(getScore().get().getScore()).isEqualTo(60L);
+
+        ZonedDateTime previousDueDate = exercise.getDueDate();
+        exercise.setDueDate(now);
+        exercise = exerciseRepository.saveAndFlush(exercise);
+        courseScoreService.onExerciseUpdated(exercise, previousDueDate, course);
+
+        // the late result counts now
+        assertThat(getScore().get().getScore()).isEqualTo(100L);
+    }
+
+    @Test
+    public void testScoreIsUpdatedWhenResultIsDeleted() {
+        courseScoreService.onResultChanged(participation);
+
+        resultRepository.delete(results.remove(1));
+        courseScoreService.onResultChanged(participation);
+
+        assertThat(getScore().get().getScore()).isEqualTo(40L);
+    }
+
+    @Test
+    public void testScoreIsDeletedWithParticipation() {
+        courseScoreService.onResultChanged(participation);
+
+        resultRepository.delete(results);
+        results.clear();
+        participationRepository.delete(participation.getId());
+        courseScoreService.updateScore(course.getId(), student.getId());
+
+        assertThat(getScore().isPresent()).isFalse();
+    }
+
+    @Test
+    public void testScoresAreRebuiltWhenExerciseIsDeleted() {
+        courseScoreService.onResultChanged(participation);
+
+        resultRepository.delete(results);
+        results.clear();
+        participationRepository.delete(participation.getId());
+        exerciseRepository.delete(exercise.getId());
+        courseScoreService.onExerciseDeleted(exercise);
+
+        assertThat(getScore().isPresent()).isFalse();
+    }
+
+    @Test
+    public void testScoreIsZeroWithoutCountedResult() {
+        // only the result after the due date is left
+        resultRepository.delete(results.subList(0, 2));
+        results.subList(0, 2).clear();
+        courseScoreService.onResultChanged(participation);
+
+        assertThat(getScore().isPresent()).isTrue();
+        assertThat(getScore().get().getScore()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testRebuildKeepsStudentWithoutResults() {
+        resultRepository.delete(results);
+        results.clear();
+
+        assertThat(courseScoreService.rebuildScores(course.getId())).isEqualTo(1);
+        assertThat(getScore().isPresent()).isTrue();
+        assertThat(getScore().get().getScore()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testAllScoresAreRebuiltInBackground() {
+        assertThat(courseScoreService.startRebuildAllScores()).isTrue();
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> getScore().isPresent());
+        assertThat(getScore().get().getScore()).isEqualTo(60L);
+    }
+
+    private void createResult(ZonedDateTime completionDate, Long score) {
+        Result result = new Result();
+        result.setParticipation(participation);
+        result.setCompletionDate(completionDate);
+        result.setScore(score);
+        result.setSuccessful(score == 100L);
+        results.add(resultRepository.saveAndFlush(result));
+    }
+
+    private Optional<CourseScore> getScore() {
+        return courseScoreRepository.findOneByCourseIdAndStudentId(course.getId(), student.getId());
+    }
+}
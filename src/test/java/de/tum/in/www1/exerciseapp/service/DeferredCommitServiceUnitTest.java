@@ -0,0 +1,140 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.MetricRegistry;
+import de.tum.in.www1.exerciseapp.domain.Repository;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the coalescing of commits in the DeferredCommitService.
+ *
+ * @see DeferredCommitService
+ */
+public class DeferredCommitServiceUnitTest {
+
+    private static final Path LOCAL_PATH = Paths.get("repos", "eist", "eist-exercise-johndoe");
+
+    @Mock
+    private GitService gitService;
+
+    @Mock
+    private Repository repository;
+
+    private DeferredCommitService deferredCommitService;
+
+    @Before
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(repository.getLocalPath()).thenReturn(LOCAL_PATH);
+        when(gitService.executeWithWriteLock(any(Repository.class), any(GitService.RepositoryOperation.class)))
+            .thenAnswer(invocation -> ((GitService.RepositoryOperation<?>) invocation.getArguments()[1]).execute());
+
+        deferredCommitService = new DeferredCommitService(Optional.of(gitService), new MetricRegistry());
+        ReflectionTestUtils.setField(deferredCommitService, "COMMIT_QUIET_PERIOD", 1L);
+        ReflectionTestUtils.setField(deferredCommitService, "COMMIT_ON_SAVE", true);
+        ReflectionTestUtils.setField(deferredCommitService, "PUSH_PARALLELISM", 1);
+        deferredCommitService.init();
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        deferredCommitService.destroy();
+    }
+
+    @Test
+    public void testSavesAreCoalescedIntoOneCommit() throws Exception {
+        assertThat(deferredCommitService.scheduleCommit(repository)).isTrue();
+        assertThat(deferredCommitService.scheduleCommit(repository)).isTrue();
+        assertThat(deferredCommitService.scheduleCommit(repository)).isTrue();
+        assertThat(deferredCommitService.isCommitPending(LOCAL_PATH)).isTrue();
+        verify(gitService, never()).commitAndPush(eq(repository), anyString());
+
+        awaitScheduledCommits();
+        verify(gitService, times(1)).stageAllChanges(repository);
+        verify(gitService, times(1)).commitAndPush(eq(repository), anyString());
+        assertThat(deferredCommitService.isCommitPending(LOCAL_PATH)).isFalse();
+    }
+
+    @Test
+    public void testImmediateCommitCancelsPendingCommit() throws Exception {
+        deferredCommitService.scheduleCommit(repository);
+
+        assertThat(deferredCommitService.commit(repository, true)).isFalse();
+        verify(gitService, times(1)).commitAndPush(eq(repository), anyString());
+        assertThat(deferredCommitService.isCommitPending(LOCAL_PATH)).isFalse();
+
+        // the cancelled commit is not executed after the quiet period
+        awaitScheduledCommits();
+        verify(gitService, times(1)).commitAndPush(eq(repository), anyString());
+    }
+
+    @Test
+    public void testSavesAreNotCommittedByDefault() throws Exception {
+        ReflectionTestUtils.setField(deferredCommitService, "COMMIT_ON_SAVE", false);
+
+        assertThat(deferredCommitService.scheduleCommit(repository)).isFalse();
+        assertThat(deferredCommitService.isCommitPending(LOCAL_PATH)).isFalse();
+
+        // explicit commits are still coalesced
+        assertThat(deferredCommitService.commit(repository, false)).isTrue();
+        assertThat(deferredCommitService.isCommitPending(LOCAL_PATH)).isTrue();
+    }
+
+    @Test
+    public void testFailedCommitIsRetried() throws Exception {
+        doThrow(new TransportException("Connection refused")).doNothing().when(gitService).commitAndPush(eq(repository), anyString());
+
+        assertThat(deferredCommitService.commit(repository, false)).isTrue();
+
+        verify(gitService, timeout(5000).times(2)).commitAndPush(eq(repository), anyString());
+        awaitScheduledCommits();
+        verify(gitService, times(2)).commitAndPush(eq(repository), anyString());
+        assertThat(deferredCommitService.isCommitPending(LOCAL_PATH)).isFalse();
+    }
+
+    @Test
+    public void testFailedCommitIsGivenUpAfterMaxAttempts() throws Exception {
+        doThrow(new TransportException("Connection refused")).when(gitService).commitAndPush(eq(repository), anyString());
+
+        assertThat(deferredCommitService.commit(repository, false)).isTrue();
+
+        verify(gitService, timeout(10000).times(3)).commitAndPush(eq(repository), anyString());
+        awaitScheduledCommits();
+        verify(gitService, times(3)).commitAndPush(eq(repository), anyString());
+        assertThat(deferredCommitService.isCommitPending(LOCAL_PATH)).isFalse();
+    }
+
+    @Test
+    public void testNothingIsScheduledWithoutQuietPeriod() throws Exception {
+        ReflectionTestUtils.setField(deferredCommitService, "COMMIT_QUIET_PERIOD", 0L);
+
+        assertThat(deferredCommitService.scheduleCommit(repository)).isFalse();
+        assertThat(deferredCommitService.isCommitPending(LOCAL_PATH)).isFalse();
+
+        assertThat(deferredCommitService.commit(repository, false)).isFalse();
+        verify(gitService, times(1)).commitAndPush(eq(repository), anyString());
+    }
+
+    /**
+     * Shuts the push executor down, which waits until all scheduled commits that were not cancelled are executed.
+     * Failed commits are not retried afterwards.
+     */
+    private void awaitScheduledCommits() throws InterruptedException {
+        deferredCommitService.destroy();
+    }
+}
@@ -1,9 +1,20 @@
 package de.tum.in.www1.exerciseapp.service;
 
+import com.codahale.metrics.MetricRegistry;
+import de.tum.in.www1.exerciseapp.domain.Repository;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -12,12 +23,37 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 public class GitServiceUnitTest {
 
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private GitService gitService;
+
+    private Path repoClonePath;
+
+    private Path remotePath;
+
+    @Before
+    public void setup() throws Exception {
+        repoClonePath = Files.createTempDirectory("repos");
+        remotePath = Files.createTempDirectory("remote-repos");
+        gitService = new GitService(metricRegistry);
+        ReflectionTestUtils.setField(gitService, "REPO_CLONE_PATH", repoClonePath.toString() + File.separator);
+        ReflectionTestUtils.setField(gitService, "GIT_USER", "artemis");
+        ReflectionTestUtils.setField(gitService, "GIT_PASSWORD", "secret");
+        ReflectionTestUtils.setField(gitService, "REPOSITORY_CACHE_MAX_SIZE", 2);
+        ReflectionTestUtils.setField(gitService, "REPOSITORY_CACHE_MAX_IDLE_TIME", 1800L);
+        gitService.init();
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        gitService.destroy();
+        FileUtils.deleteDirectory(repoClonePath.toFile());
+        FileUtils.deleteDirectory(remotePath.toFile());
+    }
 
     @Test
     public void testFolderNameForRepositoryUrl() throws MalformedURLException {
 
-        GitService gitService = new GitService();
-
         URL repoUrl = new URL("https://ga68dic@repobruegge.in.tum.de/scm/EIST2016RME/RMEXERCISE-ga68dic.git");
 
         String folderName = gitService.folderNameForRepositoryUrl(repoUrl);
@@ -25,4 +61,125 @@ public class GitServiceUnitTest {
 
 
     }
+
+    @Test
+    public void testLeastRecentlyUsedRepositoryIsEvicted() throws Exception {
+        URL firstUrl = createLocalRepository("eist-exercise-first");
+        URL secondUrl = createLocalRepository("eist-exercise-second");
+        URL thirdUrl = createLocalRepository("eist-exercise-third");
+
+        Repository first = gitService.getOrCheckoutRepository(firstUrl);
+        Repository second = gitService.getOrCheckoutRepository(secondUrl);
+        // the first repository is now used more recently than the second one
+        assertThat(gitService.getOrCheckoutRepository(firstUrl)).isSameAs(first);
+        gitService.getOrCheckoutRepository(thirdUrl);
+
+        assertThat(gitService.getCachedRepositoryCount()).isEqualTo(2);
+        assertThat(getMeterCount("repository-cache", "evictions")).isEqualTo(1);
+        assertThat(getMeterCount("repository-cache", "hits")).isEqualTo(1);
+        assertThat(gitService.getOrCheckoutRepository(firstUrl)).isSameAs(first);
+        // the evicted repository is opened again
+        assertThat(gitService.getOrCheckoutRepository(secondUrl)).isNotSameAs(second);
+    }
+
+    @Test
+    public void testIdleRepositoryIsEvicted() throws Exception {
+        URL idleUrl = createLocalRepository("eist-exercise-idle");
+        URL activeUrl = createLocalRepository("eist-exercise-active");
+
+        Repository idle = gitService.getOrCheckoutRepository(idleUrl);
+        Repository active = gitService.getOrCheckoutRepository(activeUrl);
+        setLastAccess(idle, System.currentTimeMillis() - 3600 * 1000);
+
+        gitService.evictIdleRepositories();
+
+        assertThat(gitService.getCachedRepositoryCount()).isEqualTo(1);
+        assertThat(getMeterCount("repository-cache", "evictions")).isEqualTo(1);
+        assertThat(gitService.getOrCheckoutRepository(activeUrl)).isSameAs(active);
+        assertThat(gitService.getOrCheckoutRepository(idleUrl)).isNotSameAs(idle);
+    }
+
+    @Test
+    public void testRemoteChangeIsDetected() throws Exception {
+        ReflectionTestUtils.setField(gitService, "REMOTE_CHECK_INTERVAL", 0L);
+        URL repoUrl = cloneRemoteRepository("eist-exercise-remote");
+        Repository repository = gitService.getOrCheckoutRepository(repoUrl);
+
+        assertThat(gitService.hasRemoteChanged(repository)).isFalse();
+
+        commitToRemote("eist-exercise-remote", "Main.java");
+        assertThat(gitService.hasRemoteChanged(repository)).isTrue();
+        assertThat(getMeterCount("remote-check", "changed")).isEqualTo(1);
+
+        gitService.pull(repository);
+        assertThat(gitService.hasRemoteChanged(repository)).isFalse();
+        assertThat(gitService.getFileByName(repository, "Main.java")).isPresent();
+    }
+
+    @Test
+    public void testNotifiedRemoteChangeIsDetectedWithinCheckInterval() throws Exception {
+        ReflectionTestUtils.setField(gitService, "REMOTE_CHECK_INTERVAL", 3600L);
+        URL repoUrl = cloneRemoteRepository("eist-exercise-notified");
+        URL otherUrl = cloneRemoteRepository("eist-exercise-other");
+        Repository repository = gitService.getOrCheckoutRepository(repoUrl);
+        Repository otherRepository = gitService.getOrCheckoutRepository(otherUrl);
+        assertThat(gitService.hasRemoteChanged(repository)).isFalse();
+        assertThat(gitService.hasRemoteChanged(otherRepository)).isFalse();
+
+        commitToRemote("eist-exercise-notified", "Main.java");
+        // the remote is not contacted again within the check interval
+        assertThat(gitService.hasRemoteChanged(repository)).isFalse();
+
+        // project keys and repository slugs are not case sensitive
+        gitService.remoteRepositoryChanged("eist", "EIST-EXERCISE-NOTIFIED");
+        assertThat(gitService.hasRemoteChanged(repository)).isTrue();
+        assertThat(gitService.hasRemoteChanged(otherRepository)).isFalse();
+    }
+
+    /**
+     * Creates a remote repository with one commit and clones it to the clone path of the returned remote URL, so that
+     * it is opened without cloning.
+     */
+    private URL cloneRemoteRepository(String name) throws Exception {
+        File remote = new File(remotePath.toFile(), name);
+        Git.init().setDirectory(remote).call().close();
+        commitToRemote(name, "README.md");
+
+        URL repoUrl = new URL("https://repobruegge.in.tum.de/scm/EIST/" + name + ".git");
+        File directory = new File(repoClonePath.toFile(), gitService.folderNameForRepositoryUrl(repoUrl));
+        Git.cloneRepository().setURI(remote.toURI().toString()).setDirectory(directory).call().close();
+        return repoUrl;
+    }
+
+    private void commitToRemote(String name, String filename) throws Exception {
+        File remote = new File(remotePath.toFile(), name);
+        try (Git git = Git.open(remote)) {
+            Files.write(remote.toPath().resolve(filename), filename.getBytes());
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Add " + filename).call();
+        }
+    }
+
+    /**
+     * Creates a local repository at the clone path of the returned remote URL, so that it is opened without cloning.
+     */
+    private URL createLocalRepository(String name) throws Exception {
+        URL repoUrl = new URL("https://repobruegge.in.tum.de/scm/EIST/" + name + ".git");
+        File directory = new File(repoClonePath.toFile(), gitService.folderNameForRepositoryUrl(repoUrl));
+        Git.init().setDirectory(directory).call().close();
+        return repoUrl;
+    }
+
+    private void setLastAccess(Repository repository, long lastAccess) {
+        Map<?, ?> cachedRepositories = (Map<?, ?>) ReflectionTestUtils.getField(gitService, "cachedRepositories");
+        for (Object cachedRepository : cachedRepositories.values()) {
+            if (ReflectionTestUtils.getField(cachedRepository, "repository") == repository) {
+                ReflectionTestUtils.setField(cachedRepository, "lastAccess", lastAccess);
+            }
+        }
+    }
+
+    private long getMeterCount(String... names) {
+        return metricRegistry.meter(MetricRegistry.name(GitService.class, names)).getCount();
+    }
 }
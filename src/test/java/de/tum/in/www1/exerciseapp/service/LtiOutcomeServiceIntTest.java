@@ -0,0 +1,153 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import de.tum.in.www1.exerciseapp.ArTEMiSApp;
+import de.tum.in.www1.exerciseapp.domain.*;
+import de.tum.in.www1.exerciseapp.repository.*;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the queue of pending LTI outcomes in the LtiOutcomeService.
+ * <p>
+ * Not transactional, because the outcomes are queued after the transaction which saved the result was committed.
+ *
+ * @see LtiOutcomeService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ArTEMiSApp.class)
+public class LtiOutcomeServiceIntTest {
+
+    @Autowired
+    private LtiOutcomeService ltiOutcomeService;
+
+    @Autowired
+    private LtiOutcomeUpdateRepository ltiOutcomeUpdateRepository;
+
+    @Autowired
+    private LtiOutcomeUrlRepository ltiOutcomeUrlRepository;
+
+    @Autowired
+    private ExerciseRepository exerciseRepository;
+
+    @Autowired
+    private ParticipationRepository participationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User student;
+
+    private ModelingExercise exercise;
+
+    private Participation participation;
+
+    private LtiOutcomeUrl ltiOutcomeUrl;
+
+    @Before
+    public void setup() {
+        student = new User();
+        student.setLogin("lti-outcome-student");
+        student.setPassword(RandomStringUtils.random(60));
+        student.setActivated(true);
+        student.setEmail("lti-outcome-student@localhost");
+        student = userRepository.saveAndFlush(student);
+
+        exercise = new ModelingExercise();
+        exercise.setTitle("Modeling");
+        exercise = exerciseRepository.saveAndFlush(exercise);
+
+        participation = new Participation();
+        participation.setStudent(student);
+        participation.setExercise(exercise);
+        participation = participationRepository.saveAndFlush(participation);
+
+        ltiOutcomeUrl = new LtiOutcomeUrl();
+        ltiOutcomeUrl.setUser(student);
+        ltiOutcomeUrl.setExercise(exercise);
+        // not reachable, so that a scheduled delivery during the test fails and keeps the update
+        ltiOutcomeUrl.setUrl("http://localhost:1/outcome");
+        ltiOutcomeUrl.setSourcedId("lti-outcome-student-sourced-id");
+        ltiOutcomeUrl = ltiOutcomeUrlRepository.saveAndFlush(ltiOutcomeUrl);
+    }
+
+    @After
+    public void cleanup() {
+        getPendingUpdate().ifPresent(ltiOutcomeUpdateRepository::delete);
+        ltiOutcomeUrlRepository.delete(ltiOutcomeUrl);
+        participationRepository.delete(participation);
+        exerciseRepository.delete(exercise);
+        userRepository.delete(student);
+    }
+
+    @Test
+    public void testNewResultsAreCoalescedIntoPendingUpdate() {
+        ltiOutcomeService.enqueue(ltiOutcomeUrl, participation);
+        ltiOutcomeService.enqueue(ltiOutcomeUrl, participation);
+        ltiOutcomeService.enqueue(ltiOutcomeUrl, participation);
+
+        assertThat(ltiOutcomeUpdateRepository.findAll().stream().filter(this::isPendingUpdate).count()).isEqualTo(1);
+        assertThat(getPendingUpdate().get().getRevision()).isEqualTo(2);
+        assertThat(getPendingUpdate().get().getParticipation().getId()).isEqualTo(participation.getId());
+    }
+
+    @Test
+    public void testUpdateChangedWhileSendingIsNotDeleted() {
+        ltiOutcomeService.enqueue(ltiOutcomeUrl, participation);
+        LtiOutcomeUpdate sentUpdate = getPendingUpdate().get();
+        // a new result arrives while the update is sent
+        ltiOutcomeService.enqueue(ltiOutcomeUrl, participation);
+
+        assertThat(ltiOutcomeUpdateRepository.deleteRevision(sentUpdate.getId(), sentUpdate.getRevision())).isEqualTo(0);
+        assertThat(getPendingUpdate().isPresent()).isTrue();
+
+        LtiOutcomeUpdate pendingUpdate = getPendingUpdate().get();
+        assertThat(ltiOutcomeUpdateRepository.deleteRevision(pendingUpdate.getId(), pendingUpdate.getRevision())).isEqualTo(1);
+        assertThat(getPendingUpdate().isPresent()).isFalse();
+    }
+
+    @Test
+    public void testUpdateIsQueuedAfterCommit() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            ltiOutcomeService.enqueue(ltiOutcomeUrl, participation);
+            // the new score is not visible to the delivery before the commit
+            assertThat(getPendingUpdate().isPresent()).isFalse();
+            return null;
+        });
+
+        assertThat(getPendingUpdate().isPresent()).isTrue();
+    }
+
+    @Test
+    public void testUpdateIsNotQueuedAfterRollback() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            ltiOutcomeService.enqueue(ltiOutcomeUrl, participation);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertThat(getPendingUpdate().isPresent()).isFalse();
+    }
+
+    private Optional<LtiOutcomeUpdate> getPendingUpdate() {
+        return ltiOutcomeUpdateRepository.findAll().stream().filter(this::isPendingUpdate).findFirst();
+    }
+
+    private boolean isPendingUpdate(LtiOutcomeUpdate update) {
+        return update.getOutcomeUrl().getId().equals(ltiOutcomeUrl.getId());
+    }
+}
@@ -0,0 +1,133 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.MetricRegistry;
+import de.tum.in.www1.exerciseapp.domain.Course;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.ProgrammingExercise;
+import de.tum.in.www1.exerciseapp.domain.User;
+import de.tum.in.www1.exerciseapp.domain.enumeration.ParticipationState;
+import de.tum.in.www1.exerciseapp.repository.ParticipationRepository;
+import de.tum.in.www1.exerciseapp.repository.UserRepository;
+import de.tum.in.www1.exerciseapp.service.dto.ProvisioningProgressDTO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the attempts and skipped students of the ParticipationProvisioningService.
+ *
+ * @see ParticipationProvisioningService
+ */
+public class ParticipationProvisioningServiceUnitTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private ParticipationService participationService;
+
+    @Mock
+    private ParticipationRepository participationRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ContinuousIntegrationService continuousIntegrationService;
+
+    @Mock
+    private VersionControlService versionControlService;
+
+    private final ProgrammingExercise exercise = new ProgrammingExercise();
+
+    private ParticipationProvisioningService participationProvisioningService;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        Course course = new Course();
+        course.setStudentGroupName("eist-students");
+        exercise.setId(1L);
+        exercise.setCourse(course);
+
+        participationProvisioningService = new ParticipationProvisioningService(participationService, participationRepository, userRepository,
+            Optional.of(continuousIntegrationService), Optional.of(versionControlService), new MetricRegistry());
+        ReflectionTestUtils.setField(participationProvisioningService, "PARALLELISM", 2);
+        ReflectionTestUtils.setField(participationProvisioningService, "RESUME_ON_STARTUP", true);
+        ReflectionTestUtils.setField(participationProvisioningService, "MAX_ATTEMPTS", MAX_ATTEMPTS);
+        participationProvisioningService.init();
+    }
+
+    @After
+    public void cleanup() {
+        participationProvisioningService.destroy();
+    }
+
+    @Test
+    public void testResumeSkipsExhaustedParticipations() {
+        Participation exhausted = createParticipation("johndoe", MAX_ATTEMPTS);
+        Participation interrupted = createParticipation("janedoe", 1);
+        when(participationRepository.findByInitializationStateIn(anyCollection())).thenReturn(Arrays.asList(exhausted, interrupted));
+        when(participationRepository.findOneByExerciseIdAndStudentLogin(1L, "janedoe")).thenReturn(interrupted);
+
+        participationProvisioningService.resumeInterruptedProvisionings();
+
+        ProvisioningProgressDTO progress = awaitProvisioning();
+        assertThat(progress.getTotal()).isEqualTo(1);
+        assertThat(progress.getFailed()).isEqualTo(0);
+        verify(participationService).countProvisioningAttempt(1L, "janedoe");
+        verify(participationService).init(exercise, "janedoe");
+        verify(participationService, never()).init(any(), eq("johndoe"));
+    }
+
+    @Test
+    public void testMissingStudentIsSkipped() {
+        when(userRepository.findAllInGroup("eist-students")).thenReturn(Arrays.asList(createUser("johndoe"), createUser("janedoe")));
+        when(userRepository.findOneByLogin("johndoe")).thenReturn(Optional.of(createUser("johndoe")));
+        // deleted after the student group was loaded
+        when(userRepository.findOneByLogin("janedoe")).thenReturn(Optional.empty());
+
+        participationProvisioningService.startProvisioning(exercise);
+
+        ProvisioningProgressDTO progress = awaitProvisioning();
+        assertThat(progress.getTotal()).isEqualTo(1);
+        assertThat(progress.getSkippedStudents()).containsExactly("janedoe");
+        assertThat(progress.getFailedStudents()).isEmpty();
+        verify(participationService).init(exercise, "johndoe");
+        verify(participationService, never()).init(any(), eq("janedoe"));
+    }
+
+    private ProvisioningProgressDTO awaitProvisioning() {
+        await().atMost(5, TimeUnit.SECONDS).until(() ->
+            participationProvisioningService.getProgress(1L).map(ProvisioningProgressDTO::isFinished).orElse(false));
+        return participationProvisioningService.getProgress(1L).get();
+    }
+
+    private Participation createParticipation(String login, int provisioningAttempts) {
+        Participation participation = new Participation();
+        participation.setExercise(exercise);
+        participation.setStudent(createUser(login));
+        participation.setInitializationState(ParticipationState.REPO_COPIED);
+        participation.setProvisioningAttempts(provisioningAttempts);
+        return participation;
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setLogin(login);
+        return user;
+    }
+}
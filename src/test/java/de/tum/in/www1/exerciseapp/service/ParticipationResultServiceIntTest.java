@@ -0,0 +1,248 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import de.tum.in.www1.exerciseapp.ArTEMiSApp;
+import de.tum.in.www1.exerciseapp.domain.*;
+import de.tum.in.www1.exerciseapp.domain.enumeration.ParticipationState;
+import de.tum.in.www1.exerciseapp.repository.*;
+import de.tum.in.www1.exerciseapp.service.dto.ExerciseResultDTO;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the result pointers of the participations, which are maintained by the ParticipationResultService
+ * and used by the result queries.
+ * <p>
+ * Not transactional, because concurrent results are committed in parallel.
+ *
+ * @see ParticipationResultService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ArTEMiSApp.class)
+public class ParticipationResultServiceIntTest {
+
+    @Autowired
+    private ParticipationResultService participationResultService;
+
+    @Autowired
+    private ParticipationService participationService;
+
+    @Autowired
+    private ResultRepository resultRepository;
+
+    @Autowired
+    private ParticipationRepository participationRepository;
+
+    @Autowired
+    private ExerciseRepository exerciseRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ZonedDateTime now = ZonedDateTime.now();
+
+    private TransactionTemplate transactionTemplate;
+
+    private Course course;
+
+    private ModelingExercise exercise;
+
+    private User student;
+
+    private Participation participation;
+
+    private Participation finishedParticipation;
+
+    private final List<Result> results = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setup() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        student = new User();
+        student.setLogin("participation-result-student");
+        student.setPassword(RandomStringUtils.random(60));
+        student.setActivated(true);
+        student.setEmail("participation-result-student@localhost");
+        student = userRepository.saveAndFlush(student);
+
+        course = new Course();
+        course.setTitle("Participation Result Test");
+        course = courseRepository.saveAndFlush(course);
+
+        exercise = new ModelingExercise();
+        exercise.setTitle("Modeling");
+        exercise.setCourse(course);
+        exercise = exerciseRepository.saveAndFlush(exercise);
+
+        participation = createParticipation(ParticipationState.INITIALIZED);
+        finishedParticipation = createParticipation(ParticipationState.FINISHED);
+    }
+
+    @After
+    public void cleanup() {
+        resultRepository.delete(results);
+        participationRepository.delete(participation.getId());
+        participationRepository.delete(finishedParticipation.getId());
+        exerciseRepository.delete(exercise.getId());
+        courseRepository.delete(course);
+        userRepository.delete(student);
+    }
+
+    @Test
+    public void testResultPointersAreMaintained() {
+        Result firstSuccessfulResult = createResult(participation, now.minusHours(3), true);
+        createResult(participation, now.minusHours(2), true);
+        Result latestResult = createResult(participation, now.minusHours(1), false);
+
+        assertThat(getLatestResultId(participation)).isEqualTo(latestResult.getId());
+        assertThat(getFirstSuccessfulResultId(participation)).isEqualTo(firstSuccessfulResult.getId());
+
+        deleteResult(latestResult);
+        deleteResult(firstSuccessfulResult);
+
+        assertThat(getLatestResultId(participation)).isEqualTo(results.get(0).getId());
+        assertThat(getFirstSuccessfulResultId(participation)).isEqualTo(results.get(0).getId());
+    }
+
+    @Test
+    public void testConcurrentResultsDoNotOverwriteEachOther() throws Exception {
+        // both results are saved before either transaction updates the pointers, so that each one misses the other
+        // result unless the pointers are updated one after another
+        CyclicBarrier resultsSaved = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> successfulResult = executor.submit(() -> createResultConcurrently(now.minusHours(2), true, resultsSaved));
+            Future<?> failedResult = executor.submit(() -> createResultConcurrently(now.minusHours(1), false, resultsSaved));
+            successfulResult.get(30, TimeUnit.SECONDS);
+            failedResult.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Result successfulResult = results.stream().filter(Result::isSuccessful).findFirst().get();
+        Result failedResult = results.stream().filter(result -> !result.isSuccessful()).findFirst().get();
+        assertThat(getLatestResultId(participation)).isEqualTo(failedResult.getId());
+        assertThat(getFirstSuccessfulResultId(participation)).isEqualTo(successfulResult.getId());
+    }
+
+    @Test
+    public void testSavingParticipationKeepsResultPointers() {
+        Result result = createResult(participation, now.minusHours(1), true);
+        Participation staleParticipation = participationRepository.findOne(participation.getId());
+        staleParticipation.setLatestResult(null);
+        staleParticipation.setFirstSuccessfulResult(null);
+        staleParticipation.setBuildPlanId("EIST-EXERCISE-JOHNDOE");
+
+        participationService.save(staleParticipation);
+
+        assertThat(participationRepository.findOne(participation.getId()).getBuildPlanId()).isEqualTo("EIST-EXERCISE-JOHNDOE");
+        assertThat(getLatestResultId(participation)).isEqualTo(result.getId());
+        assertThat(getFirstSuccessfulResultId(participation)).isEqualTo(result.getId());
+    }
+
+    @Test
+    public void testResultQueriesUseOneResultPerStudent() {
+        Result earliestSuccessfulResult = createResult(finishedParticipation, now.minusHours(4), true);
+        createResult(finishedParticipation, now.minusHours(3), false);
+        createResult(participation, now.minusHours(2), true);
+        Result latestResult = createResult(participation, now.minusHours(1), false);
+
+        List<ExerciseResultDTO> latestResults = resultRepository.findLatestResultRowsForExercise(exercise.getId(), 0L, new PageRequest(0, 10));
+        assertThat(latestResults).extracting(ExerciseResultDTO::getId).containsExactly(latestResult.getId());
+        assertThat(latestResults.get(0).getSubmissionCount()).isEqualTo(2L);
+        assertThat(latestResults.get(0).getParticipation().getStudent().getLogin()).isEqualTo(student.getLogin());
+
+        List<ExerciseResultDTO> successfulResults = resultRepository.findEarliestSuccessfulResultRowsForExercise(exercise.getId(), 0L, new PageRequest(0, 10));
+        assertThat(successfulResults).extracting(ExerciseResultDTO::getId).containsExactly(earliestSuccessfulResult.getId());
+        // the next page starts after the last id of the previous one
+        assertThat(resultRepository.findEarliestSuccessfulResultRowsForExercise(exercise.getId(), earliestSuccessfulResult.getId(), new PageRequest(0, 10))).isEmpty();
+
+        // one successful result per participation, ordered by completion date
+        List<Result> courseResults = resultRepository.findEarliestSuccessfulResultsForCourse(course.getId());
+        assertThat(courseResults).extracting(Result::getId).containsExactly(earliestSuccessfulResult.getId(), results.get(2).getId());
+    }
+
+    private Participation createParticipation(ParticipationState initializationState) {
+        Participation newParticipation = new Participation();
+        newParticipation.setStudent(student);
+        newParticipation.setExercise(exercise);
+        newParticipation.setInitializationState(initializationState);
+        return participationRepository.saveAndFlush(newParticipation);
+    }
+
+    private Result createResult(Participation resultParticipation, ZonedDateTime completionDate, boolean successful) {
+        return transactionTemplate.execute(status -> {
+            Result result = saveResult(resultParticipation, completionDate, successful);
+            participationResultService.onResultChanged(resultParticipation);
+            return result;
+        });
+    }
+
+    private void createResultConcurrently(ZonedDateTime completionDate, boolean successful, CyclicBarrier resultsSaved) {
+        transactionTemplate.execute(status -> {
+            saveResult(participation, completionDate, successful);
+            try {
+                resultsSaved.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                throw new IllegalStateException(e);
+            }
+            participationResultService.onResultChanged(participation);
+            return null;
+        });
+    }
+
+    private Result saveResult(Participation resultParticipation, ZonedDateTime completionDate, boolean successful) {
+        Result result = new Result();
+        result.setParticipation(resultParticipation);
+        result.setCompletionDate(completionDate);
+        result.setSuccessful(successful);
+        result.setScore(successful ? 100L : 0L);
+        result = resultRepository.saveAndFlush(result);
+        results.add(result);
+        return result;
+    }
+
+    private void deleteResult(Result result) {
+        transactionTemplate.execute(status -> {
+            resultRepository.delete(result.getId());
+            participationResultService.onResultChanged(participation);
+            return null;
+        });
+        results.remove(result);
+    }
+
+    private Long getLatestResultId(Participation resultParticipation) {
+        return transactionTemplate.execute(status -> {
+            Result latestResult = participationRepository.findOne(resultParticipation.getId()).getLatestResult();
+            return latestResult != null ? latestResult.getId() : null;
+        });
+    }
+
+    private Long getFirstSuccessfulResultId(Participation resultParticipation) {
+        return transactionTemplate.execute(status -> {
+            Result firstSuccessfulResult = participationRepository.findOne(resultParticipation.getId()).getFirstSuccessfulResult();
+            return firstSuccessfulResult != null ? firstSuccessfulResult.getId() : null;
+        });
+    }
+}
@@ -0,0 +1,147 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import de.tum.in.www1.exerciseapp.ArTEMiSApp;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.ProgrammingExercise;
+import de.tum.in.www1.exerciseapp.domain.User;
+import de.tum.in.www1.exerciseapp.domain.enumeration.ParticipationState;
+import de.tum.in.www1.exerciseapp.repository.ExerciseRepository;
+import de.tum.in.www1.exerciseapp.repository.ParticipationRepository;
+import de.tum.in.www1.exerciseapp.repository.UserRepository;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.net.URL;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the initialization of participations in the ParticipationService.
+ * <p>
+ * Not transactional, because every initialization step is committed on its own.
+ *
+ * @see ParticipationService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ArTEMiSApp.class)
+public class ParticipationServiceIntTest {
+
+    private static final String REPOSITORY_URL = "https://bitbucket.example.com/scm/eist/eist-exercise-johndoe.git";
+
+    private static final String BUILD_PLAN_ID = "EIST-EXERCISE-JOHNDOE";
+
+    @Autowired
+    private ParticipationRepository participationRepository;
+
+    @Autowired
+    private ExerciseRepository exerciseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseScoreService courseScoreService;
+
+    @Autowired
+    private StudentDashboardService studentDashboardService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private VersionControlService versionControlService;
+
+    @Mock
+    private ContinuousIntegrationService continuousIntegrationService;
+
+    private ParticipationService participationService;
+
+    private ProgrammingExercise exercise;
+
+    private User student;
+
+    @Before
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        participationService = new ParticipationService(participationRepository, userRepository, Optional.empty(),
+            Optional.of(continuousIntegrationService), Optional.of(versionControlService), courseScoreService, studentDashboardService, transactionManager);
+
+        student = new User();
+        student.setLogin("participation-service-student");
+        student.setPassword(RandomStringUtils.random(60));
+        student.setActivated(true);
+        student.setEmail("participation-service-student@localhost");
+        student = userRepository.saveAndFlush(student);
+
+        exercise = new ProgrammingExercise();
+        exercise.setTitle("Sorting");
+        exercise.setBaseRepositoryUrl("https://bitbucket.example.com/scm/eist/eist-exercise.git");
+        exercise.setBaseBuildPlanId("EIST-EXERCISE-BASE");
+        exercise = exerciseRepository.saveAndFlush(exercise);
+
+        when(versionControlService.copyRepository(any(URL.class), eq(student.getLogin()))).thenReturn(new URL(REPOSITORY_URL));
+    }
+
+    @After
+    public void cleanup() {
+        Participation participation = participationRepository.findOneByExerciseIdAndStudentLogin(exercise.getId(), student.getLogin());
+        if (participation != null) {
+            participationRepository.delete(participation);
+        }
+        exerciseRepository.delete(exercise);
+        userRepository.delete(student);
+    }
+
+    @Test
+    public void testInitResumesAfterFailedStep() {
+        when(continuousIntegrationService.copyBuildPlan(anyString(), anyString())).thenThrow(new RuntimeException("Bamboo is not available"));
+        try {
+            participationService.init(exercise, student.getLogin());
+            fail("The initialization should fail when the build plan cannot be copied");
+        } catch (RuntimeException e) {
+            assertThat(e).hasMessage("Bamboo is not available");
+        }
+
+        // the completed steps are committed although the initialization failed
+        Participation participation = participationRepository.findOneByExerciseIdAndStudentLogin(exercise.getId(), student.getLogin());
+        assertThat(participation.getInitializationState()).isEqualTo(ParticipationState.REPO_CONFIGURED);
+        assertThat(participation.getRepositoryUrl()).isEqualTo(REPOSITORY_URL);
+
+        reset(continuousIntegrationService);
+        when(continuousIntegrationService.copyBuildPlan(anyString(), anyString())).thenReturn(BUILD_PLAN_ID);
+        participation = participationService.init(exercise, student.getLogin());
+
+        // the repository is neither copied nor configured again
+        verify(versionControlService, times(1)).copyRepository(any(URL.class), anyString());
+        verify(versionControlService, times(1)).configureRepository(any(URL.class), anyString());
+        verify(continuousIntegrationService).configureBuildPlan(eq(BUILD_PLAN_ID), any(URL.class), eq(student.getLogin()));
+        assertThat(participation.getInitializationState()).isEqualTo(ParticipationState.INITIALIZED);
+        assertThat(participationRepository.findOne(participation.getId()).getBuildPlanId()).isEqualTo(BUILD_PLAN_ID);
+    }
+
+    @Test
+    public void testInitReturnsInitializedParticipation() {
+        when(continuousIntegrationService.copyBuildPlan(anyString(), anyString())).thenReturn(BUILD_PLAN_ID);
+        Participation participation = participationService.init(exercise, student.getLogin());
+        Participation initializedParticipation = participationService.init(exercise, student.getLogin());
+
+        assertThat(initializedParticipation.getId()).isEqualTo(participation.getId());
+        verify(versionControlService, times(1)).copyRepository(any(URL.class), anyString());
+        verify(continuousIntegrationService, times(1)).copyBuildPlan(anyString(), anyString());
+    }
+}
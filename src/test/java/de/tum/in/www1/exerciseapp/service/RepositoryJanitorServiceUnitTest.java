@@ -0,0 +1,156 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the deletion rules of the RepositoryJanitorService.
+ *
+ * @see RepositoryJanitorService
+ */
+public class RepositoryJanitorServiceUnitTest {
+
+    private static final long IDLE_TIME = 3600 * 1000;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Mock
+    private DeferredCommitService deferredCommitService;
+
+    private GitService gitService;
+
+    private RepositoryJanitorService repositoryJanitorService;
+
+    private Path repoClonePath;
+
+    private Path remotePath;
+
+    @Before
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        repoClonePath = Files.createTempDirectory("repos");
+        remotePath = Files.createTempDirectory("remote-repos");
+
+        gitService = new GitService(metricRegistry);
+        ReflectionTestUtils.setField(gitService, "REPO_CLONE_PATH", repoClonePath.toString() + File.separator);
+        ReflectionTestUtils.setField(gitService, "REPOSITORY_LOCK_TIMEOUT", 1L);
+        gitService.init();
+
+        repositoryJanitorService = new RepositoryJanitorService(Optional.of(gitService), deferredCommitService, metricRegistry);
+        // every local repository is padded to more than 1 MB, so any idle repository is deleted
+        ReflectionTestUtils.setField(repositoryJanitorService, "DISK_BUDGET", 1L);
+        ReflectionTestUtils.setField(repositoryJanitorService, "MIN_IDLE_TIME", 1800L);
+        // the scheduled run must not interfere with the test
+        ReflectionTestUtils.setField(repositoryJanitorService, "INTERVAL", 3600L);
+        repositoryJanitorService.init();
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        repositoryJanitorService.destroy();
+        gitService.destroy();
+        FileUtils.deleteDirectory(repoClonePath.toFile());
+        FileUtils.deleteDirectory(remotePath.toFile());
+    }
+
+    @Test
+    public void testIdleRepositoryIsDeleted() throws Exception {
+        Path idle = createLocalRepository("eist-exercise-idle", System.currentTimeMillis() - IDLE_TIME);
+        Path recent = createLocalRepository("eist-exercise-recent", System.currentTimeMillis());
+
+        repositoryJanitorService.enforceDiskBudget();
+
+        assertThat(idle).doesNotExist();
+        assertThat(recent).exists();
+        assertThat(getMeterCount("deletions")).isEqualTo(1);
+    }
+
+    @Test
+    public void testRepositoryWithUncommittedChangesIsKept() throws Exception {
+        Path dirty = createLocalRepository("eist-exercise-dirty", System.currentTimeMillis() - IDLE_TIME);
+        Files.write(dirty.resolve("Main.java"), "class Main {}".getBytes());
+        setLastAccess(dirty, System.currentTimeMillis() - IDLE_TIME);
+
+        repositoryJanitorService.enforceDiskBudget();
+
+        assertThat(dirty).exists();
+        assertThat(getMeterCount("deletions")).isEqualTo(0);
+        assertThat(getMeterCount("skipped")).isEqualTo(1);
+    }
+
+    @Test
+    public void testRepositoryWithUnpushedCommitsIsKept() throws Exception {
+        Path unpushed = createLocalRepository("eist-exercise-unpushed", System.currentTimeMillis() - IDLE_TIME);
+        try (Git git = Git.open(unpushed.toFile())) {
+            Files.write(unpushed.resolve("Main.java"), "class Main {}".getBytes());
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Not pushed").call();
+        }
+        setLastAccess(unpushed, System.currentTimeMillis() - IDLE_TIME);
+
+        repositoryJanitorService.enforceDiskBudget();
+
+        assertThat(unpushed).exists();
+        assertThat(getMeterCount("skipped")).isEqualTo(1);
+    }
+
+    @Test
+    public void testRepositoryWithPendingCommitIsKept() throws Exception {
+        Path pending = createLocalRepository("eist-exercise-pending", System.currentTimeMillis() - IDLE_TIME);
+        when(deferredCommitService.isCommitPending(pending)).thenReturn(true);
+
+        repositoryJanitorService.enforceDiskBudget();
+
+        assertThat(pending).exists();
+        assertThat(getMeterCount("skipped")).isEqualTo(1);
+    }
+
+    /**
+     * Clones a new remote repository with one commit into the clone path and pads it to more than 1 MB.
+     */
+    private Path createLocalRepository(String name, long lastAccess) throws Exception {
+        File remote = new File(remotePath.toFile(), name);
+        try (Git git = Git.init().setDirectory(remote).call()) {
+            Files.write(remote.toPath().resolve("README.md"), name.getBytes());
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Initial commit").call();
+        }
+
+        Path localPath = repoClonePath.resolve("EIST").resolve(name);
+        Git.cloneRepository().setURI(remote.toURI().toString()).setDirectory(localPath.toFile()).call().close();
+        // a sparse file inside the git directory, which is measured but not seen by git
+        try (RandomAccessFile padding = new RandomAccessFile(localPath.resolve(".git").resolve("padding").toFile(), "rw")) {
+            padding.setLength(FileUtils.ONE_MB + 1);
+        }
+        setLastAccess(localPath, lastAccess);
+        return localPath;
+    }
+
+    /**
+     * The repositories are not accessed through the GitService, so their last access is the modification of the index.
+     */
+    private void setLastAccess(Path localPath, long lastAccess) throws Exception {
+        Files.setLastModifiedTime(localPath.resolve(".git").resolve("index"), FileTime.fromMillis(lastAccess));
+    }
+
+    private long getMeterCount(String name) {
+        return metricRegistry.meter(MetricRegistry.name(RepositoryJanitorService.class, name)).getCount();
+    }
+}
@@ -0,0 +1,117 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import de.tum.in.www1.exerciseapp.domain.BuildLogEntry;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.Result;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the retries of the build result retrieval in the ResultService.
+ *
+ * @see ResultService
+ */
+public class ResultServiceUnitTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private ContinuousIntegrationService continuousIntegrationService;
+
+    @Mock
+    private LtiService ltiService;
+
+    @Mock
+    private SimpMessageSendingOperations messagingTemplate;
+
+    @Mock
+    private BuildLogService buildLogService;
+
+    @Mock
+    private CourseScoreService courseScoreService;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private final Participation participation = new Participation();
+
+    private ResultService resultService;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        participation.setId(42L);
+        resultService = new ResultService(Optional.of(continuousIntegrationService), ltiService, messagingTemplate, buildLogService, courseScoreService,
+            metricRegistry, new SyncTaskExecutor());
+        ReflectionTestUtils.setField(resultService, "RESULT_RETRIEVAL_DELAY", 1);
+        ReflectionTestUtils.setField(resultService, "RESULT_RETRIEVAL_MAX_ATTEMPTS", MAX_ATTEMPTS);
+        resultService.init();
+    }
+
+    @After
+    public void cleanup() {
+        resultService.destroy();
+    }
+
+    @Test
+    public void testRetrievalIsRetriedUntilResultIsAvailable() throws Exception {
+        Result result = new Result();
+        List<BuildLogEntry> logEntries = Collections.singletonList(new BuildLogEntry(ZonedDateTime.now(), "BUILD SUCCESSFUL"));
+        when(continuousIntegrationService.onBuildCompleted(eq(participation), any(ZonedDateTime.class), anyBoolean()))
+            .thenReturn(null)
+            .thenReturn(result);
+        when(continuousIntegrationService.getLatestBuildLogs(participation)).thenReturn(Optional.of(logEntries));
+
+        resultService.onResultNotified(participation);
+
+        verify(ltiService, timeout(5000)).onNewBuildResult(participation);
+        verify(continuousIntegrationService, times(2)).onBuildCompleted(eq(participation), any(ZonedDateTime.class), eq(false));
+        verify(continuousIntegrationService, never()).onBuildCompleted(eq(participation), any(ZonedDateTime.class), eq(true));
+        verify(buildLogService).saveBuildLogs(result, logEntries);
+        verify(courseScoreService).onResultChanged(participation);
+        assertThat(getAttempts().getSnapshot().getMax()).isEqualTo(2);
+        assertThat(metricRegistry.meter(MetricRegistry.name(ResultService.class, "retrieval", "failures")).getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRetrievalGivesUpAfterMaxAttempts() {
+        when(continuousIntegrationService.onBuildCompleted(eq(participation), any(ZonedDateTime.class), anyBoolean()))
+            .thenReturn(null)
+            .thenThrow(new RuntimeException("Bamboo is not available"))
+            .thenReturn(null);
+
+        resultService.onResultNotified(participation);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() ->
+            metricRegistry.meter(MetricRegistry.name(ResultService.class, "retrieval", "failures")).getCount() == 1);
+        // only the last attempt saves an outdated build result
+        verify(continuousIntegrationService, times(MAX_ATTEMPTS - 1)).onBuildCompleted(eq(participation), any(ZonedDateTime.class), eq(false));
+        verify(continuousIntegrationService).onBuildCompleted(eq(participation), any(ZonedDateTime.class), eq(true));
+        assertThat(getAttempts().getSnapshot().getMax()).isEqualTo(MAX_ATTEMPTS);
+        verifyZeroInteractions(ltiService, buildLogService, courseScoreService);
+    }
+
+    private Histogram getAttempts() {
+        return metricRegistry.histogram(MetricRegistry.name(ResultService.class, "retrieval", "attempts"));
+    }
+}
@@ -0,0 +1,100 @@
+package de.tum.in.www1.exerciseapp.service;
+
+import de.tum.in.www1.exerciseapp.ArTEMiSApp;
+import de.tum.in.www1.exerciseapp.domain.Course;
+import de.tum.in.www1.exerciseapp.domain.ModelingExercise;
+import de.tum.in.www1.exerciseapp.domain.Participation;
+import de.tum.in.www1.exerciseapp.domain.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the eviction of the cached dashboards in the StudentDashboardService.
+ * <p>
+ * Not transactional, because the dashboard is evicted after the transaction which changed the participation was committed.
+ *
+ * @see StudentDashboardService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ArTEMiSApp.class)
+public class StudentDashboardServiceIntTest {
+
+    private static final String DASHBOARD_KEY = "42-dashboard-student";
+
+    @Autowired
+    private StudentDashboardService studentDashboardService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Cache dashboardCache;
+
+    private Participation participation;
+
+    @Before
+    public void setup() {
+        Course course = new Course();
+        course.setId(42L);
+        ModelingExercise exercise = new ModelingExercise();
+        exercise.setCourse(course);
+        User student = new User();
+        student.setLogin("dashboard-student");
+        participation = new Participation();
+        participation.setExercise(exercise);
+        participation.setStudent(student);
+
+        dashboardCache = cacheManager.getCache(StudentDashboardService.STUDENT_DASHBOARD_CACHE);
+        dashboardCache.put(DASHBOARD_KEY, Collections.emptyList());
+    }
+
+    @After
+    public void cleanup() {
+        dashboardCache.evict(DASHBOARD_KEY);
+    }
+
+    @Test
+    public void testDashboardIsEvictedAfterCommit() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            studentDashboardService.onParticipationChanged(participation);
+            // evicting before the commit would let a concurrent request cache the old dashboard again
+            assertThat(dashboardCache.get(DASHBOARD_KEY)).isNotNull();
+            return null;
+        });
+
+        assertThat(dashboardCache.get(DASHBOARD_KEY)).isNull();
+    }
+
+    @Test
+    public void testDashboardIsNotEvictedAfterRollback() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            studentDashboardService.onParticipationChanged(participation);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertThat(dashboardCache.get(DASHBOARD_KEY)).isNotNull();
+    }
+
+    @Test
+    public void testDashboardIsEvictedImmediatelyWithoutTransaction() {
+        studentDashboardService.onParticipationChanged(participation);
+
+        assertThat(dashboardCache.get(DASHBOARD_KEY)).isNull();
+    }
+}
@@ -0,0 +1,100 @@
+package de.tum.in.www1.exerciseapp.service.util;
+
+import de.tum.in.www1.exerciseapp.service.dto.BambooBuildResultDTO;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the BambooBuildResultParser utility class.
+ *
+ * @see BambooBuildResultParser
+ */
+public class BambooBuildResultParserUnitTest {
+
+    private static final String BUILD_RESULT = "{" +
+        "\"expand\":\"changes,metadata,plan,artifacts,comments,labels,jiraIssues,stages\"," +
+        "\"link\":{\"href\":\"https://bamboo.example.com/rest/api/latest/result/EIST-EXERCISE-7\",\"rel\":\"self\"}," +
+        "\"artifacts\":{\"size\":1,\"start-index\":0,\"max-result\":1,\"artifact\":[" +
+        "{\"name\":\"jar\",\"link\":{\"href\":\"https://bamboo.example.com/browse/EIST-EXERCISE-7/artifact/shared/jar/\",\"rel\":\"self\"},\"shared\":true}]}," +
+        "\"labels\":{\"size\":0,\"label\":[]}," +
+        "\"buildCompletedDate\":\"2017-10-30T14:55:09.000+01:00\"," +
+        "\"successful\":false," +
+        "\"buildTestSummary\":\"2 of 10 failed\"," +
+        "\"testResults\":{\"all\":10,\"successful\":8,\"failed\":2," +
+        "\"failedTests\":{\"size\":2,\"testResult\":[" +
+        "{\"testCaseId\":1,\"className\":\"de.tum.SortTest\",\"methodName\":\"testSort\",\"status\":\"failed\"," +
+        "\"errors\":{\"size\":1,\"error\":[{\"message\":\"java.lang.AssertionError: not sorted\\n\\tat de.tum.SortTest.testSort(SortTest.java:12)\"}]}}," +
+        "{\"testCaseId\":2,\"className\":\"de.tum.SortTest\",\"methodName\":\"testEmpty\",\"status\":\"failed\"," +
+        "\"errors\":{\"size\":3,\"error\":[{\"message\":\"first\"},{\"message\":null},{\"message\":\"second\"}]}}]}," +
+        "\"successfulTests\":{\"size\":8}}," +
+        "\"buildNumber\":7}";
+
+    @Test
+    public void testParseBuildResult() throws IOException {
+        BambooBuildResultDTO buildResult = BambooBuildResultParser.parse(new ByteArrayInputStream(BUILD_RESULT.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(buildResult.getBuildNumber()).isEqualTo(7);
+        assertThat(buildResult.isSuccessful()).isFalse();
+        assertThat(buildResult.getBuildTestSummary()).isEqualTo("2 of 10 failed");
+        assertThat(buildResult.getBuildCompletedDate()).isEqualTo(ZonedDateTime.parse("2017-10-30T14:55:09.000+01:00"));
+        assertThat(buildResult.getArtifactLink()).isEqualTo("https://bamboo.example.com/browse/EIST-EXERCISE-7/artifact/shared/jar/");
+        assertThat(buildResult.getFailedTests()).hasSize(2);
+        assertThat(buildResult.getFailedTests().get(0).getMethodName()).isEqualTo("testSort");
+        assertThat(buildResult.getFailedTests().get(0).getErrorMessages()).containsExactly("java.lang.AssertionError: not sorted\n\tat de.tum.SortTest.testSort(SortTest.java:12)");
+        assertThat(buildResult.getFailedTests().get(1).getErrorMessages()).containsExactly("first", "second");
+    }
+
+    @Test
+    public void testParseDoesNotCloseInputStream() throws IOException {
+        boolean[] closed = {false};
+        InputStream inputStream = new ByteArrayInputStream(BUILD_RESULT.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        };
+
+        BambooBuildResultParser.parse(inputStream);
+
+        assertThat(closed[0]).isFalse();
+    }
+
+    @Test
+    public void testParseBuildResultWithoutArtifactsAndTests() throws IOException {
+        String json = "{\"successful\":true,\"buildTestSummary\":\"No tests found\",\"buildCompletedDate\":\"2017-10-30T14:55:09.000+01:00\"," +
+            "\"artifacts\":{\"size\":0,\"artifact\":[]},\"testResults\":{\"all\":0}}";
+
+        BambooBuildResultDTO buildResult = BambooBuildResultParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(buildResult.isSuccessful()).isTrue();
+        assertThat(buildResult.hasArtifact()).isFalse();
+        assertThat(buildResult.getFailedTests()).isEmpty();
+    }
+
+    @Test
+    public void testParseBuildResultSummary() throws IOException {
+        // without expansions, Bamboo only returns the number of artifacts and tests
+        String json = "{\"expand\":\"changes,metadata,plan,artifacts,comments,labels,jiraIssues,stages\"," +
+            "\"artifacts\":{\"size\":1,\"start-index\":0,\"max-result\":0}," +
+            "\"successful\":false,\"buildTestSummary\":\"2 of 10 failed\",\"buildNumber\":7}";
+
+        BambooBuildResultDTO buildResult = BambooBuildResultParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(buildResult.getBuildNumber()).isEqualTo(7);
+        assertThat(buildResult.hasArtifact()).isFalse();
+        assertThat(buildResult.getFailedTests()).isEmpty();
+    }
+
+    @Test(expected = IOException.class)
+    public void testParseInvalidBuildResult() throws IOException {
+        BambooBuildResultParser.parse(new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8)));
+    }
+}
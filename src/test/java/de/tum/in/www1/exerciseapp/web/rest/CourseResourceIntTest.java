@@ -3,10 +3,15 @@ package de.tum.in.www1.exerciseapp.web.rest;
 import de.tum.in.www1.exerciseapp.ArTEMiSApp;
 
 import de.tum.in.www1.exerciseapp.domain.Course;
+import de.tum.in.www1.exerciseapp.domain.User;
 import de.tum.in.www1.exerciseapp.repository.CourseRepository;
+import de.tum.in.www1.exerciseapp.repository.UserRepository;
+import de.tum.in.www1.exerciseapp.service.CourseScoreService;
 import de.tum.in.www1.exerciseapp.service.CourseService;
+import de.tum.in.www1.exerciseapp.service.StudentDashboardService;
 import de.tum.in.www1.exerciseapp.web.rest.errors.ExceptionTranslator;
 
+import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -16,13 +21,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static de.tum.in.www1.exerciseapp.web.rest.TestUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -54,6 +62,15 @@ public class CourseResourceIntTest {
     @Autowired
     private CourseService courseService;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseScoreService courseScoreService;
+
+    @Autowired
+    private StudentDashboardService studentDashboardService;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -73,7 +90,7 @@ public class CourseResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final CourseResource courseResource = new CourseResource(courseService);
+        final CourseResource courseResource = new CourseResource(courseService, courseScoreService, studentDashboardService, Optional.empty());
         this.restCourseMockMvc = MockMvcBuilders.standaloneSetup(courseResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -244,6 +261,38 @@ public class CourseResourceIntTest {
         assertThat(courseList).hasSize(databaseSizeBeforeDelete - 1);
     }
 
+    @Test
+    @Transactional
+    @WithMockUser("dashboard-student")
+    public void getDashboardOfCourse() throws Exception {
+        courseRepository.saveAndFlush(course);
+        createUser("dashboard-student", DEFAULT_STUDENT_GROUP_NAME);
+
+        restCourseMockMvc.perform(get("/api/courses/{courseId}/dashboard", course.getId()).principal(() -> "dashboard-student"))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser("dashboard-student")
+    public void getDashboardOfOtherCourse() throws Exception {
+        courseRepository.saveAndFlush(course);
+        createUser("dashboard-student", UPDATED_STUDENT_GROUP_NAME);
+
+        restCourseMockMvc.perform(get("/api/courses/{courseId}/dashboard", course.getId()).principal(() -> "dashboard-student"))
+            .andExpect(status().isForbidden());
+    }
+
+    private void createUser(String login, String group) {
+        User user = new User();
+        user.setLogin(login);
+        user.setPassword(RandomStringUtils.random(60));
+        user.setActivated(true);
+        user.setEmail(login + "@localhost");
+        user.setGroups(Collections.singletonList(group));
+        userRepository.saveAndFlush(user);
+    }
+
     @Test
     @Transactional
     public void equalsVerifier() throws Exception {
@@ -4,6 +4,7 @@ import de.tum.in.www1.exerciseapp.ArTEMiSApp;
 
 import de.tum.in.www1.exerciseapp.domain.ModelingExercise;
 import de.tum.in.www1.exerciseapp.repository.ModelingExerciseRepository;
+import de.tum.in.www1.exerciseapp.service.CourseScoreService;
 import de.tum.in.www1.exerciseapp.web.rest.errors.ExceptionTranslator;
 
 import org.junit.Before;
@@ -43,6 +44,9 @@ public class ModelingExerciseResourceIntTest {
     @Autowired
     private ModelingExerciseRepository modelingExerciseRepository;
 
+    @Autowired
+    private CourseScoreService courseScoreService;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -62,7 +66,7 @@ public class ModelingExerciseResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final ModelingExerciseResource modelingExerciseResource = new ModelingExerciseResource(modelingExerciseRepository);
+        final ModelingExerciseResource modelingExerciseResource = new ModelingExerciseResource(modelingExerciseRepository, courseScoreService);
         this.restModelingExerciseMockMvc = MockMvcBuilders.standaloneSetup(modelingExerciseResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)